@@ -0,0 +1,32 @@
+package com.jcraft.jsch;
+
+/**
+ * Stand-ins for JSch objects in benchmarks. JSch keeps the constructors we need
+ * package-private, so this lives in its package.
+ */
+public final class FakeJsch {
+
+    private FakeJsch() {
+    }
+
+    /**
+     * @param host The host the session claims to be connected to.
+     * @return A session that reports itself connected without ever opening a socket.
+     * @throws JSchException If JSch rejects the session configuration.
+     */
+    public static Session connectedSession(final String host) throws JSchException {
+        return new Session(new JSch(), "benchmark", host, 22) {
+            @Override
+            public boolean isConnected() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return A shell channel that is never connected and therefore never reports itself closed.
+     */
+    public static Channel openChannel() {
+        return new ChannelShell();
+    }
+}
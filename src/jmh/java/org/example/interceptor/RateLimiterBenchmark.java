@@ -0,0 +1,91 @@
+package org.example.interceptor;
+
+import org.example.config.RateLimitProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended admission checks from many threads and clients. With a high limit nearly
+ * every request is let through, with the default limit nearly every one is rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class RateLimiterBenchmark {
+
+    @Param({"16", "10000"})
+    private int clients;
+
+    @Param({"5", "100000000"})
+    private int maxRequests;
+
+    private RateLimitingInterceptor interceptor;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        RateLimitProperties.Group group = new RateLimitProperties.Group();
+        group.setName("status");
+        group.setPaths(Arrays.asList("/ftp/list", "/ftp/connect/**"));
+        group.setMaxRequests(maxRequests);
+        group.setInterval(60000);
+        properties.getGroups().add(group);
+        interceptor = new RateLimitingInterceptor(properties);
+    }
+
+    @TearDown
+    public void tearDown() {
+        interceptor.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private MockHttpServletRequest[] requests;
+        private MockHttpServletResponse response;
+        private int next;
+
+        @Setup
+        public void setUp(RateLimiterBenchmark benchmark) {
+            requests = new MockHttpServletRequest[benchmark.clients];
+            for (int i = 0; i < requests.length; i++) {
+                requests[i] = new MockHttpServletRequest("GET", "/ftp/list");
+                requests[i].setRemoteAddr("10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff));
+            }
+            response = new MockHttpServletResponse();
+            next = ThreadLocalRandom.current().nextInt(requests.length);
+        }
+
+        MockHttpServletRequest nextRequest() {
+            if (++next == requests.length) {
+                next = 0;
+            }
+            return requests[next];
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean preHandle(Client client) throws Exception {
+        return interceptor.preHandle(client.nextRequest(), client.response, null);
+    }
+}
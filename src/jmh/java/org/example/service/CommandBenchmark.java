@@ -0,0 +1,73 @@
+package org.example.service;
+
+import org.example.config.TelnetProperties;
+import org.example.dto.TelnetStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.DataOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one command exchange against a device that answers instantly, so only our
+ * side of the path is measured: writing the command, waking the reader, matching the
+ * prompt and copying the output into the capture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class CommandBenchmark {
+
+    private static final long TIMEOUT_MILLIS = 1000;
+
+    // How many bytes the session thread hands over at once
+    @Param({"64", "1024", "32768"})
+    private int chunkSize;
+
+    @Param({"20", "500"})
+    private int outputLines;
+
+    private CustomFTPClient client;
+    private TelnetStream telnetStream;
+    private SimulatedDevice device;
+    private ChannelReader reader;
+    private OutputCapture capture;
+    private PromptMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        TelnetProperties properties = new TelnetProperties();
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        client = new CustomFTPClient(properties, metricsRegistry);
+        reader = new ChannelReader(properties.getReadBufferSize());
+        device = new SimulatedDevice(reader, SimulatedDevice.statusResponse(outputLines), chunkSize);
+        capture = new OutputCapture(properties.getOutputCap(), properties.getOverflowPolicy(), properties.getSpillDirectory(), properties.getSpillRetention());
+        telnetStream = new TelnetStream(new DataOutputStream(device), reader, capture, null, true, metricsRegistry.forHost("benchmark"));
+        matcher = new PromptMatcher(SimulatedDevice.PROMPT);
+    }
+
+    @Benchmark
+    public String runCommand() {
+        return client.runCommand(telnetStream, "show status", SimulatedDevice.PROMPT, TIMEOUT_MILLIS);
+    }
+
+    @Benchmark
+    public int readUntil() throws InterruptedException {
+        device.deliver();
+        capture.reset();
+        matcher.reset();
+        return reader.readUntil(matcher, capture, TIMEOUT_MILLIS);
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt matching over a status listing, fed in chunks of different sizes. Uses the
+ * same three patterns the telnet handshake waits for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class PromptMatcherBenchmark {
+
+    @Param({"7", "64", "1024"})
+    private int chunkSize;
+
+    @Param({"20", "500"})
+    private int outputLines;
+
+    private byte[] output;
+    private PromptMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        output = SimulatedDevice.statusResponse(outputLines);
+        matcher = new PromptMatcher("Connection refused", "Escape character is ", SimulatedDevice.PROMPT);
+    }
+
+    @Benchmark
+    public int feed() {
+        matcher.reset();
+        for (int offset = 0; offset < output.length; offset += chunkSize) {
+            matcher.feed(output, offset, Math.min(chunkSize, output.length - offset));
+            if (matcher.isMatched()) {
+                return matcher.matched();
+            }
+        }
+        return PromptMatcher.NO_MATCH;
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.service;
+
+import com.jcraft.jsch.FakeJsch;
+import com.jcraft.jsch.JSchException;
+import org.example.config.ConnectProperties;
+import org.example.config.DedupProperties;
+import org.example.config.ExtractProperties;
+import org.example.config.SchedulerProperties;
+import org.example.config.ShutdownProperties;
+import org.example.config.SinkProperties;
+import org.example.config.SshPoolProperties;
+import org.example.config.StoreProperties;
+import org.example.config.StreamProperties;
+import org.example.config.SupervisorProperties;
+import org.example.config.TelnetProperties;
+import org.example.dto.SessionInfo;
+import org.example.dto.SessionTarget;
+import org.example.dto.TelnetStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One scheduler round across many sessions: every connected session runs its tick on
+ * a pool the size of the scheduler's, and the round ends when the last one finishes.
+ * Devices answer instantly, so this shows the per-tick overhead of the service itself,
+ * including publishing and metrics, as the session count grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class SchedulerTickBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sessions;
+
+    private final List<UUID> uuids = new ArrayList<>();
+    private SshSessionPool sshSessionPool;
+    private SessionConnector sessionConnector;
+    private SessionSupervisor sessionSupervisor;
+    private CommandResultBroadcaster broadcaster;
+    private ResultStore resultStore;
+    private ResultSinks resultSinks;
+    private SessionTeardown sessionTeardown;
+    private FTPService ftpService;
+    private ExecutorService tickExecutor;
+
+    @Setup
+    public void setUp() throws JSchException {
+        TelnetProperties telnetProperties = new TelnetProperties();
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        CustomFTPClient client = new CustomFTPClient(telnetProperties, metricsRegistry);
+        SchedulerProperties schedulerProperties = new SchedulerProperties();
+        ConnectProperties connectProperties = new ConnectProperties();
+        StoreProperties storeProperties = new StoreProperties();
+        storeProperties.setEnabled(false);
+
+        sshSessionPool = new SshSessionPool(client, new SshPoolProperties());
+        SupervisorProperties supervisorProperties = new SupervisorProperties();
+        sessionConnector = new SessionConnector(client, sshSessionPool, connectProperties, new HostCircuitBreakers(supervisorProperties));
+        broadcaster = new CommandResultBroadcaster(new StreamProperties());
+        resultStore = new ResultStore(storeProperties);
+        resultSinks = new ResultSinks(Collections.singletonList(resultStore), new SinkProperties());
+        SessionRegistry registry = new SessionRegistry();
+        sessionSupervisor = new SessionSupervisor(registry, sessionConnector, client, supervisorProperties);
+        ShutdownProperties shutdownProperties = new ShutdownProperties();
+        // Every tick returns the same output, measure the full path rather than suppression
+        DedupProperties dedupProperties = new DedupProperties();
+        dedupProperties.setMode(DedupProperties.Mode.OFF);
+        sessionTeardown = new SessionTeardown(client, sessionConnector, shutdownProperties);
+        ftpService = new FTPService(client, sessionConnector, sessionSupervisor, registry, broadcaster, resultSinks,
+                schedulerProperties, connectProperties, sessionTeardown, shutdownProperties,
+                new OutputChangeDetector(dedupProperties), new SeriesStore(new ExtractProperties()));
+        tickExecutor = Executors.newFixedThreadPool(schedulerProperties.getPoolSize());
+
+        byte[] response = SimulatedDevice.statusResponse(20);
+        for (int i = 0; i < sessions; i++) {
+            String host = "10.0." + (i / 250) + "." + (i % 250 + 1);
+            UUID uuid = UUID.randomUUID();
+            SessionTarget target = new SessionTarget();
+            target.setHost(host);
+            target.setTelnetPort(23);
+            target.setCommand("show status");
+            target.setWaitFor(SimulatedDevice.PROMPT);
+            SessionEntry entry = new SessionEntry(uuid, target);
+
+            ChannelReader reader = new ChannelReader(telnetProperties.getReadBufferSize());
+            SimulatedDevice device = new SimulatedDevice(reader, response, 1024);
+            OutputCapture capture = new OutputCapture(telnetProperties.getOutputCap(), telnetProperties.getOverflowPolicy(),
+                    telnetProperties.getSpillDirectory(), telnetProperties.getSpillRetention());
+            TelnetStream telnetStream = new TelnetStream(new DataOutputStream(device), reader, capture, FakeJsch.openChannel(),
+                    true, metricsRegistry.forHost(host));
+            entry.complete(new SessionInfo(FakeJsch.connectedSession(host), host, 23, telnetStream, uuid, true,
+                    "show status", SimulatedDevice.PROMPT, 1000));
+            registry.register(entry);
+            uuids.add(uuid);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        tickExecutor.shutdownNow();
+        sessionSupervisor.shutdown();
+        sessionTeardown.shutdown();
+        sessionConnector.shutdown();
+        sshSessionPool.shutdown();
+        broadcaster.shutdown();
+        resultSinks.shutdown();
+        resultStore.shutdown();
+    }
+
+    @Benchmark
+    public void tickAll() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(uuids.size());
+        for (UUID uuid : uuids) {
+            tickExecutor.execute(() -> {
+                try {
+                    ftpService.runTick(uuid);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
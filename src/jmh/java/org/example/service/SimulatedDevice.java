@@ -0,0 +1,82 @@
+package org.example.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An in-memory device for benchmarks. Every command line written to it is answered on
+ * flush by pushing a canned response into a {@link ChannelReader}, split into chunks the
+ * way the SSH session thread would deliver it.
+ */
+public class SimulatedDevice extends OutputStream {
+
+    public static final String PROMPT = "NES-SIP>";
+
+    private final ChannelReader reader;
+    private final byte[] response;
+    private final int chunkSize;
+    private boolean pending;
+
+    public SimulatedDevice(final ChannelReader reader, final byte[] response, final int chunkSize) {
+        this.reader = reader;
+        this.response = response;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param lines Number of status lines before the prompt.
+     * @return A status listing that ends with {@link #PROMPT}.
+     */
+    public static byte[] statusResponse(final int lines) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            line.setLength(0);
+            line.append("port ").append(i).append("  state UP  rx ").append(1000L * i + 17)
+                    .append("  tx ").append(2000L * i + 3).append("  errors 0  NES-SIP ready\r\n");
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        }
+        byte[] prompt = ("\r\n" + PROMPT).getBytes(StandardCharsets.UTF_8);
+        out.write(prompt, 0, prompt.length);
+        return out.toByteArray();
+    }
+
+    public byte[] getResponse() {
+        return response;
+    }
+
+    @Override
+    public void write(final int b) {
+        if (b == '\n') {
+            pending = true;
+        }
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] == '\n') {
+                pending = true;
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (pending) {
+            pending = false;
+            deliver();
+        }
+    }
+
+    /**
+     * Pushes the response into the reader as if the device had just answered.
+     */
+    public void deliver() {
+        for (int offset = 0; offset < response.length; offset += chunkSize) {
+            reader.write(response, offset, Math.min(chunkSize, response.length - offset));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.simulator;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How simulated devices behave. Every value can be set from the command line with
+ * {@code --device.<name>=<value>}, e.g. {@code --device.latency=50}.
+ */
+@Setter
+@Getter
+public class DeviceProfile {
+    public static final String PROMPT = "NES-SIP>";
+
+    // Milliseconds before a device starts answering a command
+    private long latency = 20;
+    // Added to the latency, uniformly distributed between 0 and this value
+    private long latencyJitter = 10;
+    // Status lines printed before the prompt
+    private int outputLines = 20;
+    // Share of sessions pointed at a closed port
+    private double refusalRate = 0.0;
+    // Chance that a device stops answering for the rest of its connection
+    private double hangProbability = 0.0;
+
+    public static DeviceProfile fromArgs(Map<String, String> args) {
+        DeviceProfile profile = new DeviceProfile();
+        profile.setLatency(Long.parseLong(args.getOrDefault("device.latency", Long.toString(profile.latency))));
+        profile.setLatencyJitter(Long.parseLong(args.getOrDefault("device.latency-jitter", Long.toString(profile.latencyJitter))));
+        profile.setOutputLines(Integer.parseInt(args.getOrDefault("device.output-lines", Integer.toString(profile.outputLines))));
+        profile.setRefusalRate(Double.parseDouble(args.getOrDefault("device.refusal-rate", Double.toString(profile.refusalRate))));
+        profile.setHangProbability(Double.parseDouble(args.getOrDefault("device.hang-probability", Double.toString(profile.hangProbability))));
+        return profile;
+    }
+
+    public long nextLatency() {
+        return latencyJitter > 0 ? latency + ThreadLocalRandom.current().nextLong(latencyJitter + 1) : latency;
+    }
+
+    public boolean nextHang() {
+        return hangProbability > 0 && ThreadLocalRandom.current().nextDouble() < hangProbability;
+    }
+}
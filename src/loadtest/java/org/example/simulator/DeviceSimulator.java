@@ -0,0 +1,57 @@
+package org.example.simulator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Starts an SSH server and a set of telnet devices on loopback and keeps them up until
+ * standard input is closed. {@link LoadDriver} runs it in a child JVM so the simulator
+ * does not count towards the memory of the service under test.
+ * <p>
+ * Prints one line once ready: {@code READY <ssh port> <telnet port> <refused port>},
+ * where nothing listens on the refused port.
+ */
+public class DeviceSimulator {
+
+    public static void main(String[] args) throws IOException {
+        DeviceProfile profile = DeviceProfile.fromArgs(parseArgs(args));
+        try (TelnetDeviceServer devices = new TelnetDeviceServer(profile);
+             SimulatedSshServer ssh = new SimulatedSshServer()) {
+            System.out.println("READY " + ssh.getPort() + " " + devices.getPort() + " " + closedPort());
+            System.out.flush();
+            // The parent closes our stdin when it is done or dies
+            while (System.in.read() != -1) {
+                // Nothing to read, just wait for EOF
+            }
+        }
+    }
+
+    static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * @param args Arguments of the form {@code --name=value}.
+     * @return The values by name, without the leading dashes.
+     */
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,228 @@
+package org.example.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Main;
+import org.example.config.SchedulerConfiguration;
+import org.example.dto.ConnectionMode;
+import org.example.dto.SessionDto;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test against simulated devices, entirely on loopback. Starts a
+ * {@link DeviceSimulator} in a child JVM and the service in this one, connects the
+ * requested number of sessions through the REST endpoints, runs the scheduler for a
+ * while and prints connects/sec, command round trips and heap per session.
+ * <p>
+ * Options, all {@code --name=value}:
+ * <ul>
+ *     <li>{@code sessions} (1000), {@code batch-size} (500), {@code mode} (SHELL or DIRECT)</li>
+ *     <li>{@code tick-interval} in milliseconds (1000), {@code duration} in seconds (60),
+ *     {@code command-timeout} in milliseconds (3000)</li>
+ *     <li>{@code device.*} are passed to the simulator, see {@link DeviceProfile}</li>
+ *     <li>{@code app.*} are passed to the service without the prefix, e.g. {@code --app.ssh.pool.max-channels-per-session=50}</li>
+ * </ul>
+ */
+public class LoadDriver {
+
+    private static final long POLL_INTERVAL = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final String baseUrl;
+    private final Map<String, String> options;
+
+    private LoadDriver(int port, Map<String, String> options) {
+        this.baseUrl = "http://127.0.0.1:" + port + "/ftp";
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DeviceSimulator.parseArgs(args);
+        Process simulator = startSimulator(options);
+        try {
+            String[] ready = awaitReady(simulator);
+            int sshPort = Integer.parseInt(ready[1]);
+            int telnetPort = Integer.parseInt(ready[2]);
+            int refusedPort = Integer.parseInt(ready[3]);
+            ConfigurableApplicationContext app = SpringApplication.run(Main.class, appArgs(options));
+            try {
+                int port = Integer.parseInt(app.getEnvironment().getProperty("local.server.port"));
+                new LoadDriver(port, options).run(sshPort, telnetPort, refusedPort);
+            } finally {
+                app.close();
+            }
+        } finally {
+            simulator.getOutputStream().close();
+            if (!simulator.waitFor(10, TimeUnit.SECONDS)) {
+                simulator.destroyForcibly();
+            }
+        }
+    }
+
+    private static Process startSimulator(Map<String, String> options) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DeviceSimulator.class.getName());
+        options.forEach((name, value) -> {
+            if (name.startsWith("device.")) {
+                command.add("--" + name + "=" + value);
+            }
+        });
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    private static String[] awaitReady(Process simulator) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(simulator.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("READY ")) {
+                return line.split(" ");
+            }
+        }
+        throw new IOException("Simulator exited before it was ready");
+    }
+
+    private static String[] appArgs(Map<String, String> options) throws IOException {
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.add("--store.directory=" + Files.createTempDirectory("load-results"));
+        // One generous group replaces the configured ones, the driver polls a lot
+        args.add("--rate-limit.groups[0].name=load");
+        args.add("--rate-limit.groups[0].paths=/ftp/**");
+        args.add("--rate-limit.groups[0].max-requests=1000000");
+        args.add("--rate-limit.groups[0].interval=1000");
+        options.forEach((name, value) -> {
+            if (name.startsWith("app.")) {
+                args.add("--" + name.substring(4) + "=" + value);
+            }
+        });
+        return args.toArray(new String[0]);
+    }
+
+    private void run(int sshPort, int telnetPort, int refusedPort) throws Exception {
+        int sessions = intOption("sessions", 1000);
+        int batchSize = intOption("batch-size", 500);
+        long tickInterval = intOption("tick-interval", 1000);
+        int duration = intOption("duration", 60);
+        DeviceProfile profile = DeviceProfile.fromArgs(options);
+        ConnectionMode mode = ConnectionMode.valueOf(options.getOrDefault("mode", ConnectionMode.SHELL.name()));
+
+        long baselineHeap = usedHeap();
+
+        long connectStart = System.nanoTime();
+        List<String> jobIds = new ArrayList<>();
+        for (int offset = 0; offset < sessions; offset += batchSize) {
+            int count = Math.min(batchSize, sessions - offset);
+            JsonNode status = post("/connect", sessionDto(count, sshPort, telnetPort, refusedPort, profile.getRefusalRate(), mode));
+            jobIds.add(status.get("jobId").asText());
+        }
+        int connected = 0;
+        int failed = 0;
+        for (String jobId : jobIds) {
+            JsonNode status = get("/connect/" + jobId);
+            while (status.get("connecting").asInt() > 0) {
+                Thread.sleep(POLL_INTERVAL);
+                status = get("/connect/" + jobId);
+            }
+            connected += status.get("connected").asInt();
+            failed += status.get("failed").asInt();
+        }
+        double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+        long connectedHeap = usedHeap();
+
+        SchedulerConfiguration configuration = new SchedulerConfiguration();
+        configuration.setInitialDelay(0);
+        configuration.setDelay((int) tickInterval);
+        configuration.setTimeUnit(TimeUnit.MILLISECONDS);
+        long before = get("/metrics").at("/overall/commandRoundTrip/count").asLong();
+        post("/start", configuration);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+        get("/stop");
+        JsonNode overall = get("/metrics").get("overall");
+        JsonNode roundTrip = overall.get("commandRoundTrip");
+        long commands = roundTrip.get("count").asLong() - before;
+        long expected = connected * TimeUnit.SECONDS.toMillis(duration) / tickInterval;
+        get("/clear");
+
+        System.out.printf("%nLoad test: %d sessions over %s, tick every %d ms for %d s%n", sessions, mode, tickInterval, duration);
+        System.out.printf("  connected            %d (%d failed) in %.1f s, %.1f connects/sec%n",
+                connected, failed, connectSeconds, connected / connectSeconds);
+        System.out.printf("  heap per session     %.1f KiB%n", connected == 0 ? 0.0 : (connectedHeap - baselineHeap) / 1024.0 / connected);
+        System.out.printf("  commands             %d of ~%d expected, %.1f/sec, %d timeouts%n",
+                commands, expected, commands / (double) duration, overall.get("timeouts").asLong());
+        System.out.printf("  command round trip   p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                roundTrip.get("p50").asDouble(), roundTrip.get("p90").asDouble(), roundTrip.get("p99").asDouble(), roundTrip.get("max").asDouble());
+    }
+
+    private SessionDto sessionDto(int count, int sshPort, int telnetPort, int refusedPort, double refusalRate, ConnectionMode mode) {
+        SessionDto dto = new SessionDto();
+        dto.setUserName(new ArrayList<>(Collections.nCopies(count, "load")));
+        dto.setPassword(new ArrayList<>(Collections.nCopies(count, "load")));
+        dto.setHost(new ArrayList<>(Collections.nCopies(count, "127.0.0.1")));
+        dto.setPort(new ArrayList<>(Collections.nCopies(count, sshPort)));
+        dto.setCommands(new ArrayList<>(Collections.nCopies(count, "show status")));
+        dto.setWaitFors(new ArrayList<>(Collections.nCopies(count, DeviceProfile.PROMPT)));
+        dto.setTimeouts(new ArrayList<>(Collections.nCopies(count, (long) intOption("command-timeout", 3000))));
+        dto.setConnectionModes(new ArrayList<>(Collections.nCopies(count, mode)));
+        List<Integer> telnetPorts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            telnetPorts.add(ThreadLocalRandom.current().nextDouble() < refusalRate ? refusedPort : telnetPort);
+        }
+        dto.setTelnetPort(telnetPorts);
+        return dto;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(name, Integer.toString(defaultValue)));
+    }
+
+    private JsonNode get(String path) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build());
+    }
+
+    private JsonNode post(String path, Object body) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build());
+    }
+
+    private JsonNode send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException(request.uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+        String body = response.body();
+        return body.startsWith("{") || body.startsWith("[") ? objectMapper.readTree(body) : objectMapper.getNodeFactory().textNode(body);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
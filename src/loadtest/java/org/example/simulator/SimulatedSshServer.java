@@ -0,0 +1,44 @@
+package org.example.simulator;
+
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.forward.AcceptAllForwardingFilter;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+
+import java.io.IOException;
+
+/**
+ * An SSH server on loopback that accepts any credentials and offers both ways of
+ * reaching a device: a {@link TelnetShell} and direct-tcpip forwarding.
+ */
+public class SimulatedSshServer implements AutoCloseable {
+
+    private final SshServer server = SshServer.setUpDefaultServer();
+
+    public SimulatedSshServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * @param port The port to listen on, 0 for any free one. A fixed port lets a test
+     *             stop the server and bring it back where the sessions expect it.
+     */
+    public SimulatedSshServer(int port) throws IOException {
+        server.setHost("127.0.0.1");
+        server.setPort(port);
+        // Generated in memory on every start, the client does not check host keys
+        server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider());
+        server.setPasswordAuthenticator((username, password, session) -> true);
+        server.setShellFactory(channel -> new TelnetShell());
+        server.setForwardingFilter(AcceptAllForwardingFilter.INSTANCE);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(true);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One conversation with a simulated device: a banner and option negotiation on connect,
+ * then a status listing ending in {@link DeviceProfile#PROMPT} for every command line
+ * until the client sends {@code q} or hangs up.
+ */
+public class TelnetDevice {
+
+    private static final int IAC = 255;
+    private static final int SB = 250;
+    private static final int SE = 240;
+    private static final byte[] NEGOTIATION = {(byte) IAC, (byte) 251, 1, (byte) IAC, (byte) 251, 3};
+
+    private final DeviceProfile profile;
+    private final byte[] response;
+
+    public TelnetDevice(DeviceProfile profile) {
+        this.profile = profile;
+        this.response = statusResponse(profile.getOutputLines());
+    }
+
+    private static byte[] statusResponse(int lines) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            builder.append("port ").append(i).append("  state UP  rx ").append(1000L * i + 17)
+                    .append("  tx ").append(2000L * i + 3).append("  errors 0\r\n");
+        }
+        builder.append("\r\n").append(DeviceProfile.PROMPT);
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Serves one connection until the client leaves. Returns normally on EOF.
+     *
+     * @param in  Bytes from the client.
+     * @param out Bytes to the client.
+     * @throws IOException If the connection breaks.
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        out.write(NEGOTIATION);
+        out.write(("NES simulator ready\r\n\r\n" + DeviceProfile.PROMPT).getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        boolean hung = false;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == IAC) {
+                skipCommand(in);
+                continue;
+            }
+            if (b != '\n') {
+                if (b != '\r') {
+                    line.write(b);
+                }
+                continue;
+            }
+            String command = line.toString(StandardCharsets.US_ASCII).trim();
+            line.reset();
+            if (command.equals("q")) {
+                return;
+            }
+            if (command.isEmpty() || hung) {
+                continue;
+            }
+            // Once hung the device keeps the connection open but never answers again
+            hung = profile.nextHang();
+            if (hung) {
+                continue;
+            }
+            sleep(profile.nextLatency());
+            out.write(response);
+            out.flush();
+        }
+    }
+
+    private static void skipCommand(InputStream in) throws IOException {
+        int command = in.read();
+        if (command == SB) {
+            int previous = 0;
+            int b;
+            while ((b = in.read()) != -1 && !(previous == IAC && b == SE)) {
+                previous = b;
+            }
+        } else if (command >= 251 && command <= 254) {
+            in.read();
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+}
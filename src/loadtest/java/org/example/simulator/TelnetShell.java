@@ -0,0 +1,159 @@
+package org.example.simulator;
+
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.channel.ChannelSession;
+import org.apache.sshd.server.command.Command;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A login shell that only understands {@code telnet <host> <port>}, the way the jump
+ * hosts in front of real devices are used. It opens a real loopback connection, prints
+ * what the telnet client would and relays bytes until either side hangs up.
+ */
+public class TelnetShell implements Command {
+
+    private static final int IAC = 255;
+    private static final int CONNECT_TIMEOUT = 2000;
+
+    private InputStream in;
+    private OutputStream out;
+    private ExitCallback exitCallback;
+    private Thread thread;
+
+    @Override
+    public void setInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void setErrorStream(OutputStream err) {
+    }
+
+    @Override
+    public void setExitCallback(ExitCallback exitCallback) {
+        this.exitCallback = exitCallback;
+    }
+
+    @Override
+    public void start(ChannelSession channel, Environment env) {
+        thread = new Thread(this::run, "telnet-shell");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void destroy(ChannelSession channel) {
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            String line;
+            while ((line = readLine()) != null) {
+                String[] words = line.trim().split("\\s+");
+                if (words.length == 3 && words[0].equals("telnet")) {
+                    telnet(words[1], Integer.parseInt(words[2]));
+                } else if (words[0].equals("exit")) {
+                    break;
+                }
+            }
+            exitCallback.onExit(0);
+        } catch (IOException | RuntimeException e) {
+            exitCallback.onExit(1, e.getMessage());
+        }
+    }
+
+    private void telnet(String host, int port) throws IOException {
+        print("Trying " + host + "...\r\n");
+        try (Socket socket = new Socket()) {
+            try {
+                socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            } catch (ConnectException e) {
+                print("telnet: Unable to connect to remote host: Connection refused\r\n");
+                return;
+            }
+            socket.setTcpNoDelay(true);
+            print("Connected to " + host + ".\r\nEscape character is '^]'.\r\n");
+            Thread relay = new Thread(() -> relayFromDevice(socket), "telnet-shell-relay");
+            relay.setDaemon(true);
+            relay.start();
+            OutputStream device = socket.getOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while (relay.isAlive() && (read = in.read(buffer)) != -1) {
+                try {
+                    device.write(buffer, 0, read);
+                    device.flush();
+                } catch (IOException e) {
+                    break;
+                }
+            }
+        }
+        print("Connection closed by foreign host.\r\n");
+    }
+
+    // The real telnet client answers option negotiation itself, so none of it reaches the shell
+    private void relayFromDevice(Socket socket) {
+        try {
+            InputStream device = socket.getInputStream();
+            byte[] buffer = new byte[1024];
+            byte[] filtered = new byte[buffer.length];
+            int skip = 0;
+            int read;
+            while ((read = device.read(buffer)) != -1) {
+                int length = 0;
+                for (int i = 0; i < read; i++) {
+                    int b = buffer[i] & 0xff;
+                    if (skip > 0) {
+                        skip--;
+                    } else if (b == IAC) {
+                        skip = 2;
+                    } else {
+                        filtered[length++] = buffer[i];
+                    }
+                }
+                synchronized (this) {
+                    out.write(filtered, 0, length);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Either side went away, the shell notices on its next read
+        }
+    }
+
+    private synchronized void print(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return line.toString(StandardCharsets.US_ASCII);
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.size() > 0 ? line.toString(StandardCharsets.US_ASCII) : null;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "cluster")
+public class ClusterProperties {
+    private boolean enabled = false;
+    // Base URL other nodes reach this one at, also its name in the cluster
+    private String nodeUrl = "http://127.0.0.1:8080";
+    // Base URLs of the other nodes, this node's own URL may be in the list
+    private List<String> peers = new ArrayList<>();
+    // Shared directory where nodes announce themselves, instead of or besides the peer list
+    private String directory;
+    // AES key shared by all nodes, base64; signs internal requests and encrypts handed over credentials
+    private String secret;
+    // Milliseconds between membership checks, sessions are rebalanced after a change
+    private long checkInterval = 2000;
+    // A node not seen for this many milliseconds is left out of the ring
+    private long nodeTimeout = 6000;
+    // Points per node on the hash ring, more spread sessions more evenly
+    private int virtualNodes = 128;
+    private long requestTimeout = 5000;
+    // Milliseconds to wait for another node to connect the sessions of /ftp/add and /ftp/import
+    private long adoptTimeout = 60000;
+    // Sessions per request when handing sessions over to another node
+    private int handoffBatch = 200;
+    // Milliseconds between polls of another node's part of an exec job
+    private long execPollInterval = 200;
+    // Largest body in bytes the internal endpoints take, it is read in full before the signature is checked
+    private int maxRequestSize = 16 * 1024 * 1024;
+}
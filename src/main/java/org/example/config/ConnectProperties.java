@@ -0,0 +1,21 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "connect")
+public class ConnectProperties {
+    // Connects running at the same time, independent of scheduler.pool-size
+    private int poolSize = 20;
+    private int maxAttempts = 3;
+    // Retry delays in milliseconds, doubled per attempt and jittered
+    private long initialBackoff = 500;
+    private long maxBackoff = 10000;
+    // Finished connect jobs stay queryable for this many milliseconds
+    private long jobRetention = 3600000;
+}
@@ -0,0 +1,27 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "dedup")
+public class DedupProperties {
+    private Mode mode = Mode.SUPPRESS;
+    // Regexes for volatile parts of the output, e.g. clocks or counters, ignored when comparing
+    private List<String> masks = new ArrayList<>();
+    // Milliseconds after which the output is emitted in full again, changed or not, 0 never does
+    private long heartbeat = 3600000;
+
+    public enum Mode {
+        OFF, // every result is emitted in full
+        SUPPRESS, // unchanged results are dropped, changed ones emitted in full
+        DIFF // unchanged results are dropped, changed ones emitted as the changed lines
+    }
+}
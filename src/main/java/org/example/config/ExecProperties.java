@@ -0,0 +1,26 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "exec")
+public class ExecProperties {
+    // Sessions talked to at the same time by ad-hoc commands, separate from the scheduler's workers
+    private int poolSize = 256;
+    // Upper bound in milliseconds for the timeout of one ad-hoc command
+    private long maxTimeout = 60000;
+    // Results returned per page when polling a job
+    private int pageSize = 500;
+    // Finished jobs stay queryable for this many milliseconds
+    private long jobRetention = 600000;
+    private int senderThreads = 2;
+    // Milliseconds a client may take to accept one result before its stream is closed, 0 waits forever
+    private long sendTimeout = 10000;
+    // Milliseconds before a result stream is closed, 0 keeps it open until the job is done
+    private long emitterTimeout = 0;
+}
@@ -0,0 +1,50 @@
+package org.example.config;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "extract")
+public class ExtractProperties {
+    // Points kept per series at each resolution, older ones are overwritten
+    private int rawCapacity = 1440;
+    private int minuteCapacity = 1440;
+    private int hourCapacity = 720;
+    // Further series of a session are dropped, so a bad pattern cannot use up the memory
+    private int maxSeriesPerSession = 256;
+    // Every extractor whose command pattern matches runs on a result
+    private List<Extractor> extractors = new ArrayList<>();
+
+    @Data
+    public static class Extractor {
+        // Name of the series, or prefix of the names when samples have a key
+        private String name;
+        // Regex found in the command, empty matches every command
+        private String command;
+        private Type type = Type.REGEX;
+        // REGEX: the value is group "value" or group 1, an optional group "key" names the series.
+        // KEY_VALUE and COLUMN: only lines where this is found are parsed, empty parses every line
+        private String pattern;
+        // KEY_VALUE: regex between key and value
+        private String separator = "\\s*[:=]\\s*";
+        // KEY_VALUE: keys to keep, empty keeps every key with a numeric value
+        private List<String> keys = new ArrayList<>();
+        // COLUMN: whitespace separated columns from 0, a key column of -1 means one series
+        private int keyColumn = -1;
+        private int valueColumn = 1;
+    }
+
+    public enum Type {
+        REGEX, // every match of the pattern is a sample
+        KEY_VALUE, // lines like "name: 42"
+        COLUMN // table rows, one sample per row
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "import")
+public class ImportProperties {
+    // Connects an import may have pending, reading the request pauses while they are all taken
+    private int maxInFlight = 64;
+    // Characters per line, longer lines are rejected without being buffered
+    private int maxLineLength = 65536;
+    // Errors listed in the report, later ones are only counted
+    private int maxErrors = 1000;
+}
@@ -0,0 +1,39 @@
+package org.example.config;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    // Clients without a request for this many milliseconds are forgotten
+    private long idleTimeout = 600000;
+    private long evictionInterval = 60000;
+    // Applies to every path no group matches
+    private Limit defaultLimit = new Limit();
+    // Checked in order, the first group with a matching path wins
+    private List<Group> groups = new ArrayList<>();
+
+    @Data
+    public static class Limit {
+        private int maxRequests = 5;
+        private long interval = 60000;
+    }
+
+    @Data
+    public static class Group {
+        private String name;
+        // Exact paths, or prefixes ending with /**
+        private List<String> paths = new ArrayList<>();
+        private int maxRequests = 5;
+        private long interval = 60000;
+    }
+}
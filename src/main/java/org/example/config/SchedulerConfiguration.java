@@ -6,7 +6,9 @@ import java.util.concurrent.TimeUnit;
 
 @Data
 public class SchedulerConfiguration {
+    private String group; // OPTIONEL, the default group if empty
     private int initialDelay;
     private int delay;
+    private int jitter; // OPTIONEL, random extra delay of up to this much per tick
     private TimeUnit timeUnit;
 }
@@ -0,0 +1,23 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "scheduler")
+public class SchedulerProperties {
+    // Upper bound on sessions running a command at the same time
+    private int poolSize = 10;
+    // Resolution of the timing wheel in milliseconds, ticks fire up to this much late
+    private long tickDuration = 100;
+    // Slots in the timing wheel, one revolution covers tickDuration * wheelSize
+    private int wheelSize = 512;
+    // Low priority sessions are skipped while runs start this many milliseconds late, 0 disables shedding
+    private long shedLag = 2000;
+    // Most script steps written to a pipelined device in one go
+    private int pipelineDepth = 8;
+}
@@ -0,0 +1,21 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "shutdown")
+public class ShutdownProperties {
+    // Milliseconds a stop or remove may take in total, connections still open then are force-closed
+    private long timeout = 10000;
+    // Part of the timeout the application waits for running ticks before tearing sessions down
+    private long drainTimeout = 5000;
+    // Milliseconds to wait for a device to confirm the quit command
+    private long quitTimeout = 1000;
+    // Sessions torn down at the same time
+    private int poolSize = 32;
+}
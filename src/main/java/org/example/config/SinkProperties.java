@@ -0,0 +1,55 @@
+package org.example.config;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sink")
+public class SinkProperties {
+    // Queue and batching per sink name, sinks without an entry use the defaults of Pipeline
+    private Map<String, Pipeline> pipelines = new HashMap<>();
+    // Milliseconds the writers get on shutdown to write what is still queued
+    private long shutdownTimeout = 5000;
+    // Results the ring sink keeps for /ftp/results/recent
+    private int ringCapacity = 10000;
+    private File file = new File();
+
+    @Data
+    public static class Pipeline {
+        private boolean enabled = true;
+        // The writer holds up to one more batch while it fills it
+        private int queueCapacity = 8192;
+        // Most results handed to the sink in one write
+        private int batchSize = 256;
+        // Milliseconds a partial batch waits for more results, 0 writes right away
+        private long flushInterval = 1000;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        // BLOCK: milliseconds a publisher waits for room before the result is dropped
+        private long blockTimeout = 100;
+        // SAMPLE: one in this many results is kept while the queue is more than half full
+        private int sampleRate = 10;
+    }
+
+    @Data
+    public static class File {
+        private String directory = "result-log";
+        // Bytes after which the file is rolled over
+        private long maxFileSize = 67108864;
+        // Rolled files kept besides the current one
+        private int maxFiles = 10;
+    }
+
+    public enum OverflowPolicy {
+        DROP_OLDEST, // the oldest queued result makes room
+        BLOCK, // the publisher waits up to block-timeout, then the new result is dropped
+        SAMPLE // thin out while the queue fills up, drop new results once it is full
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "snapshot")
+public class SnapshotProperties {
+    private boolean enabled = true;
+    // Gzipped JSON with the sessions and schedule groups, credentials encrypted
+    private String file = "inventory/inventory.json.gz";
+    // AES key for the credentials, base64; without it the key file is used
+    private String key;
+    // Created with a new random key if missing, keep it out of backups of the snapshot
+    private String keyFile = "inventory/snapshot.key";
+    // Milliseconds between checks for changes, a change is written at the next check
+    private long interval = 2000;
+    // Restored sessions connecting at the same time, leaves room in connect.pool-size for new ones
+    private int restoreParallelism = 8;
+}
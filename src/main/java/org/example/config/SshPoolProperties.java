@@ -0,0 +1,22 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "ssh.pool")
+public class SshPoolProperties {
+    // Channels opened on one SSH session, keep it at or below the server's MaxSessions (OpenSSH default 10)
+    private int maxChannelsPerSession = 10;
+    // A session without open channels is closed after this many milliseconds
+    private long idleTimeout = 60000;
+    private long evictionInterval = 30000;
+    // SSH keepalive, like ServerAliveInterval/ServerAliveCountMax: a session whose server
+    // misses this many keepalives in a row is disconnected
+    private int keepaliveInterval = 15000;
+    private int keepaliveCountMax = 3;
+}
@@ -0,0 +1,20 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "store")
+public class StoreProperties {
+    private boolean enabled = true;
+    private String directory = "results";
+    // Bytes per segment file, a new segment is started when a record does not fit
+    private int segmentSize = 64 * 1024 * 1024;
+    // Segments whose newest record is older than this many milliseconds are deleted
+    private long retention = 7L * 24 * 60 * 60 * 1000;
+    private long retentionCheckInterval = 60000;
+}
@@ -0,0 +1,20 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "stream")
+public class StreamProperties {
+    // Results queued per subscriber, the oldest are dropped when a client falls behind
+    private int subscriberBuffer = 256;
+    private int senderThreads = 2;
+    // Milliseconds a client may take to accept one result before it is disconnected, 0 waits forever
+    private long sendTimeout = 10000;
+    // Milliseconds before an idle subscription is closed, 0 keeps it open
+    private long emitterTimeout = 0;
+}
@@ -0,0 +1,32 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "supervisor")
+public class SupervisorProperties {
+    // How often sessions are checked, in milliseconds
+    private long checkInterval = 5000;
+    // A session the device has not answered for this many milliseconds gets a telnet probe, 0 disables probes
+    private long probeInterval = 60000;
+    private long probeTimeout = 2000;
+    private String probePrompt = "NES-SIP>";
+    // Consecutive failed probes before a session is considered dead
+    private int probeFailures = 2;
+    private int probePoolSize = 4;
+    // Reconnects in flight at the same time, so onboarding keeps some connect threads
+    private int maxReconnects = 10;
+    // Delay before reconnecting a failed session in milliseconds, doubled per failed reconnect
+    private long reconnectInitialBackoff = 5000;
+    private long reconnectMaxBackoff = 300000;
+    // Consecutive connect failures that open a host's circuit breaker
+    private int breakerFailureThreshold = 5;
+    // How long an open breaker rejects connects in milliseconds, doubled each time a trial fails
+    private long breakerOpenDuration = 30000;
+    private long breakerMaxOpenDuration = 600000;
+}
@@ -0,0 +1,28 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "telnet")
+public class TelnetProperties {
+    // Bytes buffered per session between commands, the oldest are dropped when full
+    private int readBufferSize = 65536;
+    // Bytes of a single command's output kept in memory
+    private int outputCap = 1048576;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.TRUNCATE;
+    // Where SPILL writes the full output of commands that exceed the cap
+    private String spillDirectory = System.getProperty("java.io.tmpdir");
+    // Milliseconds a spill file is kept after the last command that wrote it, all go when the session closes
+    private long spillRetention = 3600000;
+    private String charset = "UTF-8";
+
+    public enum OverflowPolicy {
+        TRUNCATE,
+        SPILL
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.config;
 
+import org.example.interceptor.ClusterAuthInterceptor;
 import org.example.interceptor.RateLimitingInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -9,14 +10,19 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebMvcConfig implements WebMvcConfigurer {
 
     private final RateLimitingInterceptor rateLimitingInterceptor;
+    private final ClusterAuthInterceptor clusterAuthInterceptor;
 
-    public WebMvcConfig(RateLimitingInterceptor rateLimitingInterceptor) {
+    public WebMvcConfig(RateLimitingInterceptor rateLimitingInterceptor, ClusterAuthInterceptor clusterAuthInterceptor) {
         this.rateLimitingInterceptor = rateLimitingInterceptor;
+        this.clusterAuthInterceptor = clusterAuthInterceptor;
     }
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(clusterAuthInterceptor)
+                .addPathPatterns("/ftp/cluster/**"); //Node to node, must be signed, see ClusterAuthFilter
         registry.addInterceptor(rateLimitingInterceptor)
-                .addPathPatterns("/**"); //All endpoint
+                .addPathPatterns("/**") //All endpoint
+                .excludePathPatterns("/ftp/cluster/**"); //Node to node, signed instead
     }
 }
@@ -0,0 +1,103 @@
+package org.example.controller;
+
+import org.example.dto.ExecJobStatus;
+import org.example.dto.ExecRequest;
+import org.example.dto.GroupSnapshot;
+import org.example.dto.InventorySnapshot;
+import org.example.dto.NodeInfo;
+import org.example.dto.SchedulerInfo;
+import org.example.dto.SessionRemoveDto;
+import org.example.service.ClusterService;
+import org.example.service.ExecJob;
+import org.example.service.ExecService;
+import org.example.service.FTPService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cluster membership for operators under {@code /ftp/nodes}, and the endpoints the
+ * nodes call on each other under {@code /ftp/cluster}, which only act on this node.
+ */
+@RestController
+@RequestMapping("/ftp")
+public class ClusterController {
+
+    private final ClusterService clusterService;
+    private final FTPService ftpService;
+    private final ExecService execService;
+
+    @Autowired
+    public ClusterController(ClusterService clusterService, FTPService ftpService, ExecService execService) {
+        this.clusterService = clusterService;
+        this.ftpService = ftpService;
+        this.execService = execService;
+    }
+
+    @GetMapping("/nodes")
+    public List<NodeInfo> nodes() {
+        return clusterService.nodes();
+    }
+
+    @PostMapping("/cluster/ping")
+    public NodeInfo ping(@RequestBody NodeInfo caller) {
+        return clusterService.ping(caller);
+    }
+
+    @PostMapping("/cluster/leave")
+    public String leave(@RequestBody NodeInfo node) {
+        clusterService.leave(node);
+        return "OK";
+    }
+
+    @GetMapping("/cluster/sessions")
+    public List<SchedulerInfo> sessions() {
+        return clusterService.localSessions();
+    }
+
+    @PostMapping("/cluster/adopt")
+    public List<SchedulerInfo> adopt(@RequestBody InventorySnapshot snapshot,
+                                     @RequestParam(value = "handoff", defaultValue = "false") boolean handoff,
+                                     @RequestParam(value = "wait", defaultValue = "false") boolean wait) {
+        try {
+            return clusterService.adopt(snapshot, handoff, wait);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    @PostMapping("/cluster/remove")
+    public String remove(@RequestBody SessionRemoveDto sessionDto) {
+        return ftpService.removeScheduler(sessionDto);
+    }
+
+    @PostMapping("/cluster/groups")
+    public String groups(@RequestBody List<GroupSnapshot> groups) {
+        clusterService.applyGroups(groups);
+        return "OK";
+    }
+
+    @PostMapping("/cluster/exec")
+    public ExecJobStatus exec(@RequestBody ExecRequest execRequest) {
+        ExecJob job;
+        try {
+            job = execService.submit(execRequest);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return execService.await(job, 0);
+    }
+
+    @GetMapping("/cluster/exec/{jobId}")
+    public ExecJobStatus execStatus(@PathVariable UUID jobId, @RequestParam(value = "from", defaultValue = "0") int from) {
+        ExecJobStatus status = execService.status(jobId, from);
+        if (status == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown exec job " + jobId);
+        }
+        return status;
+    }
+}
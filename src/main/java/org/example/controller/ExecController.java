@@ -0,0 +1,63 @@
+package org.example.controller;
+
+import org.example.dto.ExecJobStatus;
+import org.example.dto.ExecRequest;
+import org.example.service.ClusterService;
+import org.example.service.ExecJob;
+import org.example.service.ExecService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/ftp")
+public class ExecController {
+
+    private final ExecService execService;
+    private final ClusterService clusterService;
+
+    @Autowired
+    public ExecController(ExecService execService, ClusterService clusterService) {
+        this.execService = execService;
+        this.clusterService = clusterService;
+    }
+
+    /**
+     * Runs a command on all matching sessions. Returns right away unless {@code wait} is
+     * given, in which case it returns once every session answered or the wait is over.
+     */
+    @PostMapping("/exec")
+    public ExecJobStatus exec(@RequestBody ExecRequest execRequest,
+                              @RequestParam(value = "wait", defaultValue = "0") long wait) {
+        ExecJob job;
+        try {
+            job = clusterService.exec(execRequest);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return execService.await(job, wait);
+    }
+
+    @GetMapping("/exec/{jobId}")
+    public ExecJobStatus execStatus(@PathVariable UUID jobId, @RequestParam(value = "from", defaultValue = "0") int from) {
+        ExecJobStatus status = execService.status(jobId, from);
+        if (status == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown exec job " + jobId);
+        }
+        return status;
+    }
+
+    @GetMapping(value = "/exec/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter execStream(@PathVariable UUID jobId) {
+        SseEmitter emitter = execService.stream(jobId);
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown exec job " + jobId);
+        }
+        return emitter;
+    }
+}
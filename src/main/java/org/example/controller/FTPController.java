@@ -1,50 +1,126 @@
 package org.example.controller;
 
 import org.example.config.SchedulerConfiguration;
+import org.example.dto.ConnectJobStatus;
+import org.example.dto.ImportFormat;
+import org.example.dto.ImportReport;
+import org.example.dto.ScheduleGroupInfo;
 import org.example.dto.SchedulerInfo;
 import org.example.dto.SessionDto;
 import org.example.dto.SessionRemoveDto;
 import org.example.dto.SshResponse;
+import org.example.service.ClusterService;
 import org.example.service.FTPService;
+import org.example.service.TargetImporter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/ftp")
 public class FTPController {
 
     private final FTPService ftpService;
+    private final ClusterService clusterService;
+    private final TargetImporter targetImporter;
 
     @Autowired
-    public FTPController(FTPService ftpService) {
+    public FTPController(FTPService ftpService, ClusterService clusterService, TargetImporter targetImporter) {
         this.ftpService = ftpService;
+        this.clusterService = clusterService;
+        this.targetImporter = targetImporter;
     }
 
     @PostMapping("/connect")
-    public List<SshResponse> connectSSH(@RequestBody SessionDto sessionDto) throws Exception {
-        return ftpService.connectSSH(sessionDto);
+    public ConnectJobStatus connectSSH(@RequestBody SessionDto sessionDto) {
+        try {
+            return clusterService.connect(sessionDto);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/connect/{jobId}")
+    public ConnectJobStatus connectStatus(@PathVariable UUID jobId) {
+        ConnectJobStatus status = ftpService.connectStatus(jobId);
+        if (status == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown connect job " + jobId);
+        }
+        return status;
     }
 
     @PostMapping("/add")
-    public List<SshResponse> addSSH(@RequestBody SessionDto sessionDto) throws Exception {
-        return ftpService.addSSH(sessionDto);
+    public List<SshResponse> addSSH(@RequestBody SessionDto sessionDto) {
+        try {
+            return clusterService.add(sessionDto);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Imports one target per line and connects each as soon as it is read. The body is
+     * CSV if sent as {@code text/csv}, NDJSON otherwise, unless {@code format} says which.
+     */
+    @PostMapping("/import")
+    public ImportReport importTargets(HttpServletRequest request,
+                                      @RequestParam(value = "format", required = false) ImportFormat format) throws IOException {
+        if (format == null) {
+            String contentType = request.getContentType();
+            format = contentType != null && contentType.startsWith("text/csv") ? ImportFormat.CSV : ImportFormat.NDJSON;
+        }
+        return targetImporter.importTargets(request.getInputStream(), format);
     }
 
     @PostMapping("/start")
     public String configureScheduler(@RequestBody SchedulerConfiguration schedulerConfiguration) {
-        return ftpService.configureScheduler(schedulerConfiguration);
+        return clusterService.configureScheduler(schedulerConfiguration);
+    }
+
+    @GetMapping("/groups")
+    public List<ScheduleGroupInfo> listGroups() {
+        return ftpService.listGroups();
+    }
+
+    @PostMapping("/groups/{group}/pause")
+    public String pauseGroup(@PathVariable String group) {
+        if (!clusterService.pauseGroup(group)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown schedule group " + group);
+        }
+        return "Group " + group + " paused";
+    }
+
+    @PostMapping("/groups/{group}/resume")
+    public String resumeGroup(@PathVariable String group) {
+        if (!clusterService.resumeGroup(group)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown schedule group " + group);
+        }
+        return "Group " + group + " resumed";
+    }
+
+    @PostMapping("/groups/{group}/resize")
+    public String resizeGroup(@PathVariable String group, @RequestBody SchedulerConfiguration schedulerConfiguration) {
+        String message = clusterService.resizeGroup(group, schedulerConfiguration);
+        if (message == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown schedule group " + group);
+        }
+        return message;
     }
 
     @GetMapping("/list")
     public List<SchedulerInfo> listSchedulers() {
-        return ftpService.listSchedulers();
+        return clusterService.list();
     }
 
     @PostMapping("/remove")
     public String removeScheduler(@RequestBody SessionRemoveDto sessionDto) {
-        return ftpService.removeScheduler(sessionDto);
+        return clusterService.remove(sessionDto);
     }
 
     @GetMapping("/stop")
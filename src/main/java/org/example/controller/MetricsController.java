@@ -0,0 +1,50 @@
+package org.example.controller;
+
+import org.example.dto.CircuitBreakerInfo;
+import org.example.dto.MetricsSnapshot;
+import org.example.dto.SinkInfo;
+import org.example.service.HostCircuitBreakers;
+import org.example.service.MetricsRegistry;
+import org.example.service.ResultSinks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/ftp")
+public class MetricsController {
+
+    private final MetricsRegistry metricsRegistry;
+    private final HostCircuitBreakers hostCircuitBreakers;
+    private final ResultSinks resultSinks;
+
+    @Autowired
+    public MetricsController(MetricsRegistry metricsRegistry, HostCircuitBreakers hostCircuitBreakers, ResultSinks resultSinks) {
+        this.metricsRegistry = metricsRegistry;
+        this.hostCircuitBreakers = hostCircuitBreakers;
+        this.resultSinks = resultSinks;
+    }
+
+    @GetMapping("/metrics")
+    public MetricsSnapshot metrics() {
+        return metricsRegistry.snapshot();
+    }
+
+    @GetMapping(value = "/metrics/prometheus", produces = "text/plain; version=0.0.4")
+    public String prometheus() {
+        return metricsRegistry.prometheus();
+    }
+
+    @GetMapping("/breakers")
+    public List<CircuitBreakerInfo> breakers() {
+        return hostCircuitBreakers.snapshot();
+    }
+
+    @GetMapping("/sinks")
+    public List<SinkInfo> sinks() {
+        return resultSinks.snapshot();
+    }
+}
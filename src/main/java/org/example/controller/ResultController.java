@@ -0,0 +1,52 @@
+package org.example.controller;
+
+import org.example.dto.CommandResult;
+import org.example.service.ResultStore;
+import org.example.service.RingSink;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/ftp")
+public class ResultController {
+
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private final ResultStore resultStore;
+    private final RingSink ringSink;
+
+    @Autowired
+    public ResultController(ResultStore resultStore, RingSink ringSink) {
+        this.resultStore = resultStore;
+        this.ringSink = ringSink;
+    }
+
+    /**
+     * Stored command results in [from, to), oldest first. Times are epoch millis and
+     * default to the last hour.
+     */
+    @GetMapping("/results")
+    public List<CommandResult> results(@RequestParam(value = "sessionId", required = false) UUID sessionId,
+                                       @RequestParam(value = "from", required = false) Long from,
+                                       @RequestParam(value = "to", required = false) Long to,
+                                       @RequestParam(value = "limit", required = false) Integer limit) {
+        long end = to == null ? System.currentTimeMillis() + 1 : to;
+        long start = from == null ? end - 3600000 : from;
+        return resultStore.query(sessionId, start, end, limit == null ? DEFAULT_LIMIT : limit);
+    }
+
+    /**
+     * The newest results from memory, oldest first. Empty if the ring sink is disabled.
+     */
+    @GetMapping("/results/recent")
+    public List<CommandResult> recent(@RequestParam(value = "sessionId", required = false) UUID sessionId,
+                                      @RequestParam(value = "limit", required = false) Integer limit) {
+        return ringSink.recent(sessionId, limit == null ? DEFAULT_LIMIT : limit);
+    }
+}
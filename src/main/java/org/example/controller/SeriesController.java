@@ -0,0 +1,59 @@
+package org.example.controller;
+
+import org.example.dto.SeriesData;
+import org.example.dto.SeriesResolution;
+import org.example.service.SeriesStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/ftp")
+public class SeriesController {
+
+    private final SeriesStore seriesStore;
+
+    @Autowired
+    public SeriesController(SeriesStore seriesStore) {
+        this.seriesStore = seriesStore;
+    }
+
+    /**
+     * Names of the metric series extracted for a session.
+     */
+    @GetMapping("/series")
+    public List<String> names(@RequestParam("sessionId") UUID sessionId) {
+        List<String> names = seriesStore.names(sessionId);
+        if (names == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No series for session " + sessionId);
+        }
+        return names;
+    }
+
+    /**
+     * Points of one series in [from, to), oldest first. Times are epoch millis and
+     * default to the last hour; without a resolution the finest one that still covers
+     * {@code from} is used.
+     */
+    @GetMapping("/series/query")
+    public SeriesData query(@RequestParam("sessionId") UUID sessionId,
+                            @RequestParam("name") String name,
+                            @RequestParam(value = "from", required = false) Long from,
+                            @RequestParam(value = "to", required = false) Long to,
+                            @RequestParam(value = "resolution", required = false) SeriesResolution resolution) {
+        long end = to == null ? System.currentTimeMillis() + 1 : to;
+        long start = from == null ? end - 3600000 : from;
+        SeriesData data = seriesStore.query(sessionId, name, start, end, resolution);
+        if (data == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No series " + name + " for session " + sessionId);
+        }
+        return data;
+    }
+}
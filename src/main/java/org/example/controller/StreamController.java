@@ -0,0 +1,29 @@
+package org.example.controller;
+
+import org.example.service.CommandResultBroadcaster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/ftp")
+public class StreamController {
+
+    private final CommandResultBroadcaster commandResultBroadcaster;
+
+    @Autowired
+    public StreamController(CommandResultBroadcaster commandResultBroadcaster) {
+        this.commandResultBroadcaster = commandResultBroadcaster;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(value = "sessionId", required = false) UUID sessionId) {
+        return commandResultBroadcaster.subscribe(sessionId);
+    }
+}
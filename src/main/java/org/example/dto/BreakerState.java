@@ -0,0 +1,7 @@
+package org.example.dto;
+
+public enum BreakerState {
+    CLOSED, // Connects go through
+    OPEN, // Connects are rejected without trying
+    HALF_OPEN // A single trial connect decides whether to close or open again
+}
@@ -0,0 +1,13 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CircuitBreakerInfo {
+    private String host;
+    private BreakerState state;
+    private int consecutiveFailures;
+    private long openUntil; // epoch milliseconds, 0 unless open
+}
@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class CommandResult {
+    private UUID sessionId;
+    private String host;
+    private int telnetPort;
+    private String command;
+    private long timestamp; // epoch millis when the command was sent
+    private long latency; // milliseconds until the prompt, or the timeout
+    private String output;
+    private boolean diff; // output only holds the lines changed since the previous result, see OutputChangeDetector
+}
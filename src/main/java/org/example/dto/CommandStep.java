@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.Data;
+import org.apache.logging.log4j.core.config.plugins.validation.constraints.Required;
+
+import java.util.Map;
+
+@Data
+public class CommandStep { // One command of a session's script
+
+    @Required
+    private String command; // ${name} is replaced with a variable captured by an earlier step
+    private String waitFor;// OPTIONEL, the session's waitFor otherwise
+    private long timeout;// OPTIONEL, milliseconds
+    private String when;// OPTIONEL, the step only runs if this regex is found in the previous step's output
+    private String whenVariable;// OPTIONEL, test the regex against this variable instead
+    private Map<String, String> capture;// OPTIONEL, variable name -> regex, stores its first group or the whole match, up to the first line break
+}
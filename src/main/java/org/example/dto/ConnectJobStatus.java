@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class ConnectJobStatus {
+    private UUID jobId;
+    private int total;
+    private int connecting;
+    private int connected;
+    private int failed;
+    private List<SchedulerInfo> sessions;
+    private int forwarded; // handed to other cluster nodes, see /ftp/list
+}
@@ -0,0 +1,8 @@
+package org.example.dto;
+
+public enum ConnectionMode {
+    // Opens a shell on the SSH host and runs the telnet client there
+    SHELL,
+    // Opens a direct-tcpip channel to the telnet port and negotiates in-process
+    DIRECT
+}
@@ -0,0 +1,21 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecJobStatus {
+    private UUID jobId;
+    private String command;
+    private int total;
+    private int completed;
+    private boolean done;
+    private List<ExecResult> results; // in the order they completed, starting at the requested offset
+    private int next; // offset of the next page
+}
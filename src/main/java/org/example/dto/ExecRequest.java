@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import lombok.Data;
+import org.apache.logging.log4j.core.config.plugins.validation.constraints.Required;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class ExecRequest { // An ad-hoc command for many sessions, filters are combined, all sessions if none is set
+
+    @Required
+    private String command;
+    private String waitFor;// OPTIONEL
+    private long timeout;// OPTIONEL, milliseconds per session
+    private String hostPattern;// OPTIONEL, regular expression the whole host has to match
+    private List<UUID> sessionIds;// OPTIONEL
+    private List<String> tags;// OPTIONEL, sessions carrying any of them
+}
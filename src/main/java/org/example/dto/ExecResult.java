@@ -0,0 +1,20 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecResult {
+    private UUID sessionId;
+    private String host;
+    private int telnetPort;
+    private ExecStatus status;
+    private long timestamp; // epoch millis when the session was picked up
+    private long latency; // milliseconds including the wait for the session
+    private String output;
+}
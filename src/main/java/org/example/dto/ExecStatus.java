@@ -0,0 +1,9 @@
+package org.example.dto;
+
+public enum ExecStatus {
+    OK, // the expected prompt came back
+    TIMEOUT, // no prompt before the timeout, the output is what arrived until then
+    BUSY, // another command held the session for the whole timeout
+    DISCONNECTED, // the session was not connected
+    FAILED
+}
@@ -0,0 +1,16 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupSnapshot { // milliseconds
+    private String name;
+    private long initialDelay;
+    private long interval;
+    private long jitter;
+    private boolean paused;
+}
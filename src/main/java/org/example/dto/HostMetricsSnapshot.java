@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class HostMetricsSnapshot {
+    private String host;
+    private LatencySummary sshConnect;
+    private LatencySummary telnetHandshake;
+    private LatencySummary commandRoundTrip;
+    private long bytesRead;
+    private long timeouts;
+    private long failedConnects;
+    private long resultsEmitted; // results logged, stored and streamed, in full or as a diff
+    private long resultsDiffed; // of those, sent as a diff
+    private long resultsSuppressed; // results dropped because the output did not change
+}
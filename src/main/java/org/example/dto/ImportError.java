@@ -0,0 +1,11 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ImportError {
+    private long line; // 1-based line of the request body
+    private String message;
+}
@@ -0,0 +1,6 @@
+package org.example.dto;
+
+public enum ImportFormat {
+    NDJSON, // one SessionTarget JSON object per line
+    CSV // a header line naming SessionTarget fields, then one target per line, tags separated by ';'
+}
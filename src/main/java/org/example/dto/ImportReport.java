@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportReport {
+    private long lines; // non-empty lines read, including a CSV header
+    private long imported; // targets registered and connected or still retrying
+    private long rejected; // lines that could not be parsed or validated
+    private long connected;
+    private long failed; // registered, but the first connect failed, the supervisor keeps retrying
+    private List<ImportError> errors = new ArrayList<>();
+    private long errorsDropped; // errors beyond import.max-errors, counted only
+}
@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySnapshot { // What a restart needs to resume polling
+    private int version;
+    private long savedAt; // epoch millis
+    private List<GroupSnapshot> groups = new ArrayList<>();
+    private List<SessionSnapshot> sessions = new ArrayList<>();
+}
@@ -0,0 +1,13 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class MetricsSnapshot {
+    private HostMetricsSnapshot overall;
+    private List<HostMetricsSnapshot> hosts;
+}
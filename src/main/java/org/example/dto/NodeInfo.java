@@ -0,0 +1,16 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeInfo {
+    private String url;
+    private long incarnation; // start time of the node, tells a restarted node from one that left
+    private int sessions;
+    private boolean leaving;
+    private long lastSeen; // epoch millis when the node was last heard from
+}
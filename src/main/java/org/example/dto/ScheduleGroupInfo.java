@@ -0,0 +1,26 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ScheduleGroupInfo { // milliseconds
+    private String name;
+    private long initialDelay;
+    private long interval;
+    private long jitter;
+    private boolean configured;
+    private boolean paused;
+    private int sessions;
+    private long runs;
+    // Slots passed over because the previous run was still going
+    private long skipped;
+    // Runs dropped because they could not start before the next one was due
+    private long expired;
+    // Low priority runs dropped while the workers were behind
+    private long shed;
+    private long failed;
+    // How late runs started compared to when they were due
+    private LatencySummary lag;
+}
@@ -2,11 +2,14 @@ package org.example.dto;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.apache.logging.log4j.core.config.plugins.validation.constraints.Required;
 
+import java.util.List;
 import java.util.UUID;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class SchedulerInfo {
     @Required
@@ -14,4 +17,8 @@ public class SchedulerInfo {
     private int telnetPort;
     private UUID id;
     private Boolean connectionStatus;
+    private SessionState state;
+    private String group;
+    private List<String> tags;
+    private String node; // cluster node that owns the session, null outside cluster mode
 }
@@ -0,0 +1,22 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class SeriesData {
+    private UUID sessionId;
+    private String name;
+    private SeriesResolution resolution;
+    // Sample times, or bucket starts when downsampled, epoch millis
+    private long[] timestamps;
+    // The samples, or the mean per bucket when downsampled
+    private double[] values;
+    // Only when downsampled
+    private double[] min;
+    private double[] max;
+    private int[] count;
+}
@@ -0,0 +1,17 @@
+package org.example.dto;
+
+public enum SeriesResolution {
+    RAW(0), // every sample as it was taken
+    MINUTE(60000), // min, max and mean per minute
+    HOUR(3600000); // min, max and mean per hour
+
+    private final long millis;
+
+    SeriesResolution(long millis) {
+        this.millis = millis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+}
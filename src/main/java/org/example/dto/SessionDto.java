@@ -3,6 +3,7 @@ package org.example.dto;
 import lombok.Data;
 import org.apache.logging.log4j.core.config.plugins.validation.constraints.Required;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -14,7 +15,69 @@ public class SessionDto { // TODO: 8/11/2022  Parameters required for ssh and te
     private List<String> host;
     private List<Integer> port; // OPTIONEL
     private List<Integer> telnetPort;
-    @Required
-    private List<String> commands;
+    private List<String> commands;// required unless scripts are given
     private List<String> waitFors;// OPTIONEL
+    private List<Long> timeouts;// OPTIONEL, milliseconds per command
+    private List<ConnectionMode> connectionModes;// OPTIONEL, SHELL by default
+    private List<String> groups;// OPTIONEL, schedule group per session, the default group otherwise
+    private List<SessionPriority> priorities;// OPTIONEL, NORMAL by default
+    private List<List<String>> tags;// OPTIONEL, labels per session
+    private List<List<CommandStep>> scripts;// OPTIONEL, replaces the command of a session when given
+    private List<Boolean> pipelined;// OPTIONEL, false by default
+
+    /**
+     * @return One target per host.
+     * @throws IllegalArgumentException If a required list is missing or a list does not have one entry per host.
+     */
+    public List<SessionTarget> toTargets() {
+        if (host == null) {
+            throw new IllegalArgumentException("host is required");
+        }
+        int size = host.size();
+        checkSize("userName", userName, size, true);
+        checkSize("password", password, size, true);
+        checkSize("telnetPort", telnetPort, size, true);
+        checkSize("port", port, size, false);
+        checkSize("commands", commands, size, false);
+        checkSize("waitFors", waitFors, size, false);
+        checkSize("timeouts", timeouts, size, false);
+        checkSize("connectionModes", connectionModes, size, false);
+        checkSize("groups", groups, size, false);
+        checkSize("priorities", priorities, size, false);
+        checkSize("tags", tags, size, false);
+        checkSize("scripts", scripts, size, false);
+        checkSize("pipelined", pipelined, size, false);
+        List<SessionTarget> targets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            SessionTarget target = new SessionTarget();
+            target.setUserName(userName.get(i));
+            target.setPassword(password.get(i));
+            target.setHost(host.get(i));
+            if (telnetPort.get(i) != null) target.setTelnetPort(telnetPort.get(i));
+            if (commands != null) target.setCommand(commands.get(i));
+            if (port != null && port.get(i) != null) target.setPort(port.get(i));
+            if (waitFors != null) target.setWaitFor(waitFors.get(i));
+            if (timeouts != null && timeouts.get(i) != null) target.setTimeout(timeouts.get(i));
+            if (connectionModes != null && connectionModes.get(i) != null) target.setConnectionMode(connectionModes.get(i));
+            if (groups != null) target.setGroup(groups.get(i));
+            if (priorities != null && priorities.get(i) != null) target.setPriority(priorities.get(i));
+            if (tags != null) target.setTags(tags.get(i));
+            if (scripts != null) target.setSteps(scripts.get(i));
+            if (pipelined != null) target.setPipelined(Boolean.TRUE.equals(pipelined.get(i)));
+            targets.add(target);
+        }
+        return targets;
+    }
+
+    private static void checkSize(String name, List<?> list, int size, boolean required) {
+        if (list == null) {
+            if (required) {
+                throw new IllegalArgumentException(name + " is required");
+            }
+            return;
+        }
+        if (list.size() != size) {
+            throw new IllegalArgumentException(name + " has " + list.size() + " entries for " + size + " hosts");
+        }
+    }
 }
@@ -20,5 +20,6 @@ public class SessionInfo {
     @Required
     private String command;
     private String waitFor;
+    private long timeout;
 
 }
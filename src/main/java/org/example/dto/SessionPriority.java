@@ -0,0 +1,7 @@
+package org.example.dto;
+
+public enum SessionPriority {
+    LOW, // Shed first when the scheduler falls behind
+    NORMAL,
+    HIGH
+}
@@ -0,0 +1,16 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionSnapshot {
+    private UUID uuid;
+    private SessionTarget target; // without userName and password
+    private String credentials; // userName and password encrypted, null if the target has none
+}
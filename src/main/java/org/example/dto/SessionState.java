@@ -0,0 +1,8 @@
+package org.example.dto;
+
+public enum SessionState {
+    CONNECTING,
+    CONNECTED,
+    FAILED,
+    CLOSED
+}
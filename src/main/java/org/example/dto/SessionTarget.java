@@ -0,0 +1,30 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.logging.log4j.core.config.plugins.validation.constraints.Required;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionTarget { // Everything needed to connect and poll a single host
+
+    private String userName;
+    private String password;
+    @Required
+    private String host;
+    private int port = 22;
+    private int telnetPort;
+    private String command;
+    private String waitFor;
+    private long timeout;
+    private ConnectionMode connectionMode = ConnectionMode.SHELL;
+    private String group;
+    private SessionPriority priority = SessionPriority.NORMAL;
+    private List<String> tags; // free-form labels to select sessions by, e.g. for /ftp/exec
+    private List<CommandStep> steps; // run in order at every tick instead of the single command
+    private boolean pipelined; // the device reads ahead, so independent steps may be sent in one write
+}
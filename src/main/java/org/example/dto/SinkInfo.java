@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.example.config.SinkProperties;
+
+@Data
+@AllArgsConstructor
+public class SinkInfo {
+    private String name;
+    private SinkProperties.OverflowPolicy overflowPolicy;
+    private int queued;
+    private int capacity;
+    private long published;
+    private long written;
+    private long dropped; // by the overflow policy, or published during shutdown
+    private long failed; // handed to the sink but its write threw
+}
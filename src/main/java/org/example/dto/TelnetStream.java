@@ -4,9 +4,11 @@ import com.jcraft.jsch.Channel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.example.service.ChannelReader;
+import org.example.service.HostMetrics;
+import org.example.service.OutputCapture;
 
 import java.io.DataOutputStream;
-import java.io.InputStream;
 
 @Data
 @AllArgsConstructor
@@ -14,9 +16,13 @@ public class TelnetStream {
 
     private DataOutputStream outputStream;
 
-    private InputStream inputStream;
+    private ChannelReader reader;
+
+    private OutputCapture capture;
 
     private Channel channel;
     private Boolean isConnect;
 
+    private HostMetrics metrics;
+
 }
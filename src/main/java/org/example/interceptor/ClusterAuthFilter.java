@@ -0,0 +1,145 @@
+package org.example.interceptor;
+
+import org.example.config.ClusterProperties;
+import org.example.service.ClusterSigner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Only lets requests signed by another cluster node through to the internal cluster
+ * endpoints. The body is read before the controller sees it, since the signature
+ * covers it, and handed on from memory.
+ * <p>
+ * Requests are picked by their decoded path without ';' parameters, the path MVC routes
+ * by, so no spelling of a cluster path gets around the check. {@link ClusterAuthInterceptor}
+ * then refuses whatever reaches a cluster handler without having been checked here.
+ */
+@Component
+public class ClusterAuthFilter extends OncePerRequestFilter {
+
+    public static final String VERIFIED_ATTRIBUTE = ClusterAuthFilter.class.getName() + ".verified";
+    private static final String PREFIX = "/ftp/cluster";
+
+    private final ClusterSigner signer;
+    private final int maxRequestSize;
+
+    @Autowired
+    public ClusterAuthFilter(ClusterSigner signer, ClusterProperties properties) {
+        this.signer = signer;
+        this.maxRequestSize = properties.getMaxRequestSize();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        return !path.equals(PREFIX) && !path.startsWith(PREFIX + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (request.getContentLengthLong() > maxRequestSize) {
+            response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+        byte[] body = read(request.getInputStream());
+        if (body == null) {
+            response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+        if (!signer.verify(request.getHeader(ClusterSigner.HEADER), request.getMethod(), request.getRequestURI(),
+                request.getQueryString(), body)) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+        request.setAttribute(VERIFIED_ATTRIBUTE, Boolean.TRUE);
+        chain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    // Null if the body is larger than allowed, a chunked request has no length to check up front
+    private byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > maxRequestSize) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.interceptor;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Refuses requests to the internal cluster endpoints that {@link ClusterAuthFilter} did
+ * not verify. It is mapped with the same path matcher as the handlers, so it also holds
+ * if the filter and MVC ever disagree on what a cluster path is.
+ */
+@Component
+public class ClusterAuthInterceptor extends HandlerInterceptorAdapter {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (Boolean.TRUE.equals(request.getAttribute(ClusterAuthFilter.VERIFIED_ATTRIBUTE))) {
+            return true;
+        }
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        return false;
+    }
+}
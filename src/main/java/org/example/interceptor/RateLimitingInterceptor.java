@@ -1,49 +1,120 @@
 package org.example.interceptor;
 
+import org.example.config.RateLimitProperties;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
+import javax.annotation.PreDestroy;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class RateLimitingInterceptor extends HandlerInterceptorAdapter {
 
-    private static final int MAX_REQUESTS = 5;
-    private static final long TIME_INTERVAL_MS = 60000;
+    private final List<Limiter> limiters = new ArrayList<>();
+    private final Limiter defaultLimiter;
+    private final long idleNanos;
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rate-limit-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private final Map<String, Queue<Long>> requestMap = new ConcurrentHashMap<>();
+    @Autowired
+    public RateLimitingInterceptor(RateLimitProperties properties) {
+        for (RateLimitProperties.Group group : properties.getGroups()) {
+            limiters.add(new Limiter(group.getPaths(), group.getMaxRequests(), group.getInterval()));
+        }
+        RateLimitProperties.Limit defaultLimit = properties.getDefaultLimit();
+        defaultLimiter = new Limiter(List.of(), defaultLimit.getMaxRequests(), defaultLimit.getInterval());
+        idleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getIdleTimeout());
+        evictor.scheduleWithFixedDelay(this::evictIdleClients, properties.getEvictionInterval(), properties.getEvictionInterval(), TimeUnit.MILLISECONDS);
+    }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         String clientId = getClientId(request);
+        Limiter limiter = limiterFor(request.getRequestURI());
+        long now = System.nanoTime();
 
-        if (!requestMap.containsKey(clientId)) {
-            requestMap.put(clientId, new LinkedList<>());
+        TokenBucket bucket = limiter.buckets.get(clientId);
+        if (bucket == null) {
+            bucket = limiter.buckets.computeIfAbsent(clientId, key -> new TokenBucket(System.nanoTime()));
         }
-
-        Queue<Long> requests = requestMap.get(clientId);
-        long now = System.currentTimeMillis();
-
-        while (!requests.isEmpty() && now - requests.peek() > TIME_INTERVAL_MS) {
-            requests.poll();
+        if (bucket.tryAcquire(now, limiter.emissionInterval, limiter.burstTolerance)) {
+            return true;
         }
+        long retryAfter = TimeUnit.NANOSECONDS.toSeconds(bucket.waitTime(now, limiter.burstTolerance)) + 1;
+        response.setHeader("Retry-After", Long.toString(retryAfter));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        return false;
+    }
 
-        if (requests.size() >= MAX_REQUESTS) {
-            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-            return false;
+    private Limiter limiterFor(String path) {
+        for (int i = 0; i < limiters.size(); i++) {
+            Limiter limiter = limiters.get(i);
+            if (limiter.matches(path)) {
+                return limiter;
+            }
         }
+        return defaultLimiter;
+    }
+
+    private void evictIdleClients() {
+        long now = System.nanoTime();
+        limiters.forEach(limiter -> limiter.evict(now, idleNanos));
+        defaultLimiter.evict(now, idleNanos);
+    }
 
-        requests.offer(now);
-        return true;
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdownNow();
     }
 
     private String getClientId(HttpServletRequest request) {
         return request.getRemoteAddr();
     }
+
+    private static final class Limiter {
+        private final String[] exactPaths;
+        private final String[] prefixes;
+        private final long emissionInterval;
+        private final long burstTolerance;
+        private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        private Limiter(List<String> paths, int maxRequests, long intervalMillis) {
+            exactPaths = paths.stream().filter(path -> !path.endsWith("/**")).toArray(String[]::new);
+            prefixes = paths.stream().filter(path -> path.endsWith("/**")).map(path -> path.substring(0, path.length() - 2)).toArray(String[]::new);
+            long interval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            emissionInterval = interval / Math.max(1, maxRequests);
+            burstTolerance = interval - emissionInterval;
+        }
+
+        private boolean matches(String path) {
+            for (String exactPath : exactPaths) {
+                if (exactPath.equals(path)) {
+                    return true;
+                }
+            }
+            for (String prefix : prefixes) {
+                if (path.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void evict(long now, long idleNanos) {
+            buckets.entrySet().removeIf(entry -> entry.getValue().isIdle(now, idleNanos));
+        }
+    }
 }
@@ -0,0 +1,50 @@
+package org.example.interceptor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm: the whole state
+ * is the theoretical arrival time of the next request, updated with a single CAS.
+ * Allowing a request allocates nothing.
+ */
+public class TokenBucket {
+
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(long nowNanos) {
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @param nowNanos          The current {@link System#nanoTime()}.
+     * @param emissionInterval  The time one request "costs", i.e. interval / maxRequests.
+     * @param burstTolerance    How far ahead of now the bucket may run, i.e. interval - emissionInterval.
+     * @return True if the request is allowed.
+     */
+    public boolean tryAcquire(long nowNanos, long emissionInterval, long burstTolerance) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long start = arrival - nowNanos > 0 ? arrival : nowNanos;
+            if (start - nowNanos > burstTolerance) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, start + emissionInterval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return Nanoseconds until the next request would be allowed, 0 if it is allowed now.
+     */
+    public long waitTime(long nowNanos, long burstTolerance) {
+        return Math.max(0, theoreticalArrival.get() - nowNanos - burstTolerance);
+    }
+
+    /**
+     * @return True if the bucket is full again and has been for at least {@code idleNanos}.
+     */
+    public boolean isIdle(long nowNanos, long idleNanos) {
+        return nowNanos - theoreticalArrival.get() > idleNanos;
+    }
+}
@@ -0,0 +1,164 @@
+package org.example.service;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Receives the bytes a channel pushes to us and lets a caller block until a prompt
+ * shows up or a deadline passes.
+ * <p>
+ * It is attached with {@code Channel#setOutputStream}, so data is delivered by the
+ * SSH session thread and a waiting command wakes up as soon as it arrives instead of
+ * sleeping between {@code available()} polls. Bytes after a matched prompt stay
+ * buffered until the next exchange, which may {@link #discard()} them.
+ * <p>
+ * Data is kept in a fixed-size ring. The session thread must never block, so when a
+ * device writes more than fits between two commands the oldest bytes are dropped.
+ */
+public class ChannelReader extends OutputStream {
+
+    private static final int SCRATCH_SIZE = 8192;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+
+    private final byte[] ring;
+    // Only used by the reading thread, lets it hand bytes to the capture outside the lock
+    private final byte[] scratch;
+    private int head;
+    private int size;
+    private long droppedBytes;
+    private boolean closed;
+
+    public ChannelReader(final int capacity) {
+        this.ring = new byte[capacity];
+        this.scratch = new byte[Math.min(capacity, SCRATCH_SIZE)];
+    }
+
+    @Override
+    public void write(final int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, int offset, int length) {
+        lock.lock();
+        try {
+            final int capacity = ring.length;
+            if (length >= capacity) {
+                droppedBytes += size + length - capacity;
+                offset += length - capacity;
+                length = capacity;
+                head = 0;
+                size = 0;
+            }
+            final int overflow = size + length - capacity;
+            if (overflow > 0) {
+                head = (head + overflow) % capacity;
+                size -= overflow;
+                droppedBytes += overflow;
+            }
+            final int tail = (head + size) % capacity;
+            final int first = Math.min(length, capacity - tail);
+            System.arraycopy(bytes, offset, ring, tail, first);
+            System.arraycopy(bytes, offset + first, ring, 0, length - first);
+            size += length;
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Bytes lost because the ring was full, since the reader was created.
+     */
+    public long getDroppedBytes() {
+        lock.lock();
+        try {
+            return droppedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops everything buffered so far, e.g. a greeting or the late answer to a command
+     * that timed out, so it is not mistaken for the response to the next command.
+     *
+     * @return The number of bytes dropped.
+     */
+    public int discard() {
+        lock.lock();
+        try {
+            final int discarded = size;
+            head = 0;
+            size = 0;
+            return discarded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves buffered bytes into {@code output} until the matcher reports a prompt, the
+     * channel is closed or the deadline passes. Only one thread may read at a time.
+     *
+     * @param matcher       The matcher fed with every consumed byte.
+     * @param output        Receives everything consumed, including the prompt.
+     * @param timeoutMillis How long to wait for the prompt.
+     * @return The index of the matched pattern, or {@link PromptMatcher#NO_MATCH}.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public int readUntil(final PromptMatcher matcher, final OutputCapture output, final long timeoutMillis) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            final int consumed;
+            lock.lock();
+            try {
+                long remaining = deadline - System.nanoTime();
+                while (size == 0) {
+                    if (closed || remaining <= 0) {
+                        return PromptMatcher.NO_MATCH;
+                    }
+                    remaining = dataAvailable.awaitNanos(remaining);
+                }
+                final int contiguous = Math.min(Math.min(size, ring.length - head), scratch.length);
+                consumed = matcher.feed(ring, head, contiguous);
+                System.arraycopy(ring, head, scratch, 0, consumed);
+                head = (head + consumed) % ring.length;
+                size -= consumed;
+            } finally {
+                lock.unlock();
+            }
+            output.write(scratch, 0, consumed);
+            if (matcher.isMatched()) {
+                return matcher.matched();
+            }
+            if (deadline - System.nanoTime() <= 0) {
+                return PromptMatcher.NO_MATCH;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.service;
+
+import org.example.dto.BreakerState;
+import org.example.dto.CircuitBreakerInfo;
+
+/**
+ * Circuit breaker for connects to one host. After enough consecutive failures it opens
+ * and rejects connects for a while, then lets a single trial through. Every successful
+ * {@link #tryAcquire} has to be followed by {@link #onSuccess} or {@link #onFailure}.
+ */
+public class CircuitBreaker {
+
+    private final String host;
+    private final int failureThreshold;
+    private final long openDuration;
+    private final long maxOpenDuration;
+
+    private BreakerState state = BreakerState.CLOSED;
+    private int consecutiveFailures;
+    private long currentOpenDuration;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String host, int failureThreshold, long openDuration, long maxOpenDuration) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.maxOpenDuration = maxOpenDuration;
+        this.currentOpenDuration = openDuration;
+    }
+
+    /**
+     * @return True if a connect may be attempted now.
+     */
+    public synchronized boolean tryAcquire(long now) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now < openUntil) {
+                    return false;
+                }
+                state = BreakerState.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = BreakerState.CLOSED;
+        consecutiveFailures = 0;
+        currentOpenDuration = openDuration;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure(long now) {
+        consecutiveFailures++;
+        if (state == BreakerState.HALF_OPEN) {
+            trialInFlight = false;
+            currentOpenDuration = Math.min(maxOpenDuration, currentOpenDuration * 2);
+            open(now);
+        } else if (state == BreakerState.CLOSED && consecutiveFailures >= failureThreshold) {
+            open(now);
+        }
+    }
+
+    private void open(long now) {
+        state = BreakerState.OPEN;
+        openUntil = now + currentOpenDuration;
+    }
+
+    public synchronized BreakerState getState() {
+        return state;
+    }
+
+    public synchronized CircuitBreakerInfo toInfo() {
+        return new CircuitBreakerInfo(host, state, consecutiveFailures, state == BreakerState.OPEN ? openUntil : 0);
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * JSON over HTTP to the internal endpoints of other cluster nodes, every request
+ * signed with {@link ClusterSigner}.
+ */
+public class ClusterClient {
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final ClusterSigner signer;
+    private final long timeoutMillis;
+
+    public ClusterClient(ObjectMapper objectMapper, ClusterSigner signer, long timeoutMillis, Executor executor) {
+        this.objectMapper = objectMapper;
+        this.signer = signer;
+        this.timeoutMillis = timeoutMillis;
+        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofMillis(timeoutMillis)).executor(executor).build();
+    }
+
+    public <T> CompletableFuture<T> call(String nodeUrl, String path, Object body, JavaType type) {
+        return call(nodeUrl, path, body, type, timeoutMillis);
+    }
+
+    /**
+     * @param path  Path with an optional query, appended to the node's base URL.
+     * @param body  Sent as JSON, or null for a GET.
+     * @param type  Type of the response body, a String is taken as is.
+     * @return Completes with the parsed response, or exceptionally on a transport error
+     * or a status other than 2xx.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> call(String nodeUrl, String path, Object body, JavaType type, long timeoutMillis) {
+        HttpRequest request;
+        try {
+            URI uri = URI.create(nodeUrl + path);
+            String method = body == null ? "GET" : "POST";
+            byte[] content = body == null ? null : objectMapper.writeValueAsBytes(body);
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(timeoutMillis))
+                    .header("Accept", "application/json")
+                    .header(ClusterSigner.HEADER, signer.sign(method, uri.getRawPath(), uri.getRawQuery(), content));
+            if (content == null) {
+                builder.GET();
+            } else {
+                builder.header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(content));
+            }
+            request = builder.build();
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException(nodeUrl + path + " answered " + response.statusCode());
+            }
+            if (type.hasRawClass(String.class)) {
+                return (T) new String(response.body(), StandardCharsets.UTF_8);
+            }
+            try {
+                return objectMapper.readValue(response.body(), type);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unreadable answer from " + nodeUrl + path + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    public JavaType type(Class<?> type) {
+        return objectMapper.constructType(type);
+    }
+
+    public JavaType listOf(Class<?> elementType) {
+        return objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+    }
+}
@@ -0,0 +1,860 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.ClusterProperties;
+import org.example.config.SchedulerConfiguration;
+import org.example.dto.ConnectJobStatus;
+import org.example.dto.ExecJobStatus;
+import org.example.dto.ExecRequest;
+import org.example.dto.ExecResult;
+import org.example.dto.ExecStatus;
+import org.example.dto.GroupSnapshot;
+import org.example.dto.InventorySnapshot;
+import org.example.dto.NodeInfo;
+import org.example.dto.SchedulerInfo;
+import org.example.dto.SessionDto;
+import org.example.dto.SessionRemoveDto;
+import org.example.dto.SessionSnapshot;
+import org.example.dto.SessionState;
+import org.example.dto.SessionTarget;
+import org.example.dto.SshResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the sessions over several instances of the service.
+ * <p>
+ * Nodes find each other by pinging the peers in {@code cluster.peers} and every node
+ * that pinged them, and through heartbeat files in {@code cluster.directory}. All live
+ * nodes build the same {@link HashRing} and a session belongs to the node its SSH host
+ * and port hash to, so the sessions sharing a pooled SSH connection stay together.
+ * <p>
+ * New sessions are sent to their owner when they are posted. When the ring changes,
+ * every node hands the sessions it no longer owns to their new owner once the ring has
+ * held for a whole check, and a node that shuts down hands all of its sessions over
+ * before it goes. The sessions of a node that crashed come back when it restarts from
+ * its snapshot.
+ * <p>
+ * The controllers go through this class. Outside cluster mode it only passes calls on to
+ * the local services; in cluster mode listing, removing, exec and group changes are fanned
+ * out to the other nodes and their answers merged.
+ */
+@Service
+public class ClusterService implements SmartLifecycle {
+
+    private static final Logger logger = LogManager.getLogger(ClusterService.class);
+    private static final int VERSION = 1;
+    // Starts after InventorySnapshots and stops before it, so the final snapshot no longer holds the sessions handed over
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 2046;
+    private static final int MAX_POLL_FAILURES = 3;
+    // Members not heard from for this many node timeouts are forgotten
+    private static final int FORGET_AFTER_TIMEOUTS = 10;
+
+    private final FTPService ftpService;
+    private final ExecService execService;
+    private final SessionRegistry sessionRegistry;
+    private final ClusterProperties properties;
+    private final ClusterSigner signer;
+    private final ObjectMapper objectMapper;
+    private final String self;
+    private final long incarnation = System.currentTimeMillis();
+    private final Map<String, NodeInfo> members = new ConcurrentHashMap<>();
+    private ScheduledThreadPoolExecutor scheduler;
+    private ExecutorService httpExecutor;
+    private ClusterClient client;
+    private CredentialCipher cipher;
+    private volatile HashRing ring;
+    private volatile boolean active;
+    private volatile boolean leaving;
+    private volatile boolean running;
+    // Only touched by the check thread, and by stop() once it is done
+    private HashRing checkedRing;
+    private HashRing balancedRing;
+    private long balancedVersion = -1;
+
+    @Autowired
+    public ClusterService(FTPService ftpService, ExecService execService, SessionRegistry sessionRegistry,
+                          ClusterProperties properties, ClusterSigner signer, ObjectMapper objectMapper) {
+        this.ftpService = ftpService;
+        this.execService = execService;
+        this.sessionRegistry = sessionRegistry;
+        this.properties = properties;
+        this.signer = signer;
+        // Credentials only leave the node encrypted
+        this.objectMapper = CredentialCipher.withoutCredentials(objectMapper);
+        this.self = normalize(properties.getNodeUrl());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!signer.isConfigured()) {
+            logger.error("Cluster mode needs cluster.secret, running as a single node");
+            return;
+        }
+        try {
+            cipher = new CredentialCipher(CredentialCipher.decodeKey(properties.getSecret()));
+        } catch (IllegalArgumentException e) {
+            logger.error("Cluster mode disabled, cluster.secret is not a usable key. Error: {}", e.getMessage());
+            return;
+        }
+        AtomicInteger threads = new AtomicInteger();
+        httpExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-http-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = new ScheduledThreadPoolExecutor(2, runnable -> {
+            Thread thread = new Thread(runnable, "cluster-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        client = new ClusterClient(objectMapper, signer, properties.getRequestTimeout(), httpExecutor);
+        ring = new HashRing(Collections.singletonList(self), properties.getVirtualNodes());
+        active = true;
+        scheduler.scheduleWithFixedDelay(this::check, 0, properties.getCheckInterval(), TimeUnit.MILLISECONDS);
+        logger.info("Cluster mode on as {}", self);
+    }
+
+    /**
+     * Tells the other nodes this one is leaving and hands them all local sessions, while
+     * the sessions are still connected here.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        if (!active) {
+            return;
+        }
+        leaving = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(properties.getRequestTimeout() * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long now = System.currentTimeMillis();
+        fanOut(liveNodes(now, false), "/ftp/cluster/leave", selfInfo(), client.type(String.class));
+        if (properties.getDirectory() != null) {
+            writeHeartbeat(Paths.get(properties.getDirectory()));
+        }
+        updateRing(now);
+        HashRing remaining = ring;
+        if (remaining.getNodes().isEmpty()) {
+            logger.warn("No other node to hand {} sessions over to, they stay in the local snapshot", sessionRegistry.size());
+        } else {
+            handOff(remaining);
+        }
+        if (properties.getDirectory() != null) {
+            try {
+                Files.deleteIfExists(heartbeatFile(Paths.get(properties.getDirectory())));
+            } catch (IOException e) {
+                logger.warn("Cannot remove heartbeat file. Error: {}", e.getMessage());
+            }
+        }
+        active = false;
+        httpExecutor.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Registers the targets with the nodes that own them and connects them in the
+     * background. The returned job only covers the local ones, the others are counted in
+     * {@link ConnectJobStatus#getForwarded()} and show up in {@link #list()}.
+     *
+     * @throws IllegalArgumentException If a target has no host or neither a command nor a valid script.
+     */
+    public ConnectJobStatus connect(SessionDto sessionDto) {
+        List<SessionTarget> targets = sessionDto.toTargets();
+        targets.forEach(FTPService::validate);
+        if (!active) {
+            return ftpService.connectSSH(targets);
+        }
+        Map<String, List<Integer>> owners = byOwner(targets);
+        List<SessionTarget> local = pick(targets, owners.remove(self));
+        Map<String, CompletableFuture<List<SchedulerInfo>>> sent = new LinkedHashMap<>();
+        owners.forEach((node, indexes) -> sent.put(node, forward(node, pick(targets, indexes), false)));
+        int forwarded = 0;
+        for (Map.Entry<String, CompletableFuture<List<SchedulerInfo>>> call : sent.entrySet()) {
+            List<SessionTarget> their = pick(targets, owners.get(call.getKey()));
+            try {
+                forwarded += call.getValue().join().size();
+            } catch (CompletionException e) {
+                if (unreachable(e)) {
+                    logger.warn("Node {} is unreachable, connecting its {} sessions here", call.getKey(), their.size());
+                    local.addAll(their);
+                } else {
+                    logger.error("Node {} failed to take {} sessions. Error: {}", call.getKey(), their.size(), message(e));
+                }
+            }
+        }
+        ConnectJobStatus status = ftpService.connectSSH(local);
+        status.setForwarded(forwarded);
+        return status;
+    }
+
+    /**
+     * Registers the targets with the nodes that own them and waits until each is
+     * connected or has failed.
+     *
+     * @return One response per target, in order.
+     * @throws IllegalArgumentException If a target has no host or neither a command nor a valid script.
+     */
+    public List<SshResponse> add(SessionDto sessionDto) {
+        List<SessionTarget> targets = sessionDto.toTargets();
+        targets.forEach(FTPService::validate);
+        if (!active) {
+            return ftpService.addSSH(targets);
+        }
+        Map<String, List<Integer>> owners = byOwner(targets);
+        List<Integer> local = owners.remove(self);
+        Map<String, CompletableFuture<List<SchedulerInfo>>> sent = new LinkedHashMap<>();
+        owners.forEach((node, indexes) -> sent.put(node, forward(node, pick(targets, indexes), true)));
+        SshResponse[] responses = new SshResponse[targets.size()];
+        addLocally(targets, local, responses);
+        for (Map.Entry<String, CompletableFuture<List<SchedulerInfo>>> call : sent.entrySet()) {
+            List<Integer> indexes = owners.get(call.getKey());
+            try {
+                List<SchedulerInfo> infos = call.getValue().join();
+                for (int i = 0; i < indexes.size(); i++) {
+                    SessionTarget target = targets.get(indexes.get(i));
+                    boolean connected = i < infos.size() && Boolean.TRUE.equals(infos.get(i).getConnectionStatus());
+                    responses[indexes.get(i)] = new SshResponse(target.getHost(), target.getTelnetPort(), connected);
+                }
+            } catch (CompletionException e) {
+                if (unreachable(e)) {
+                    logger.warn("Node {} is unreachable, connecting its {} sessions here", call.getKey(), indexes.size());
+                    addLocally(targets, indexes, responses);
+                    continue;
+                }
+                logger.error("Node {} failed to take {} sessions. Error: {}", call.getKey(), indexes.size(), message(e));
+                for (int index : indexes) {
+                    responses[index] = new SshResponse(targets.get(index).getHost(), targets.get(index).getTelnetPort(), false);
+                }
+            }
+        }
+        List<SshResponse> result = new ArrayList<>(responses.length);
+        Collections.addAll(result, responses);
+        return result;
+    }
+
+    /**
+     * Registers a single validated target with the node that owns it and connects it,
+     * like one entry of {@link #connect(SessionDto)}.
+     *
+     * @return The outcome of the connect.
+     */
+    public CompletableFuture<SessionState> connectTarget(SessionTarget target) {
+        String owner = owner(target);
+        if (owner == null || owner.equals(self)) {
+            return ftpService.connectTarget(target);
+        }
+        return forward(owner, Collections.singletonList(target), true)
+                .thenApply(infos -> infos.isEmpty() ? SessionState.FAILED : infos.get(0).getState())
+                .exceptionallyCompose(e -> {
+                    if (unreachable(e)) {
+                        logger.warn("Node {} is unreachable, connecting {} here", owner, target.getHost());
+                        return ftpService.connectTarget(target);
+                    }
+                    logger.error("Node {} failed to take {}. Error: {}", owner, target.getHost(), message(e));
+                    return CompletableFuture.completedFuture(SessionState.FAILED);
+                });
+    }
+
+    /**
+     * @return The sessions of every node that answered.
+     */
+    public List<SchedulerInfo> list() {
+        List<SchedulerInfo> infos = localSessions();
+        if (active) {
+            this.<List<SchedulerInfo>>fanOut(liveNodes(System.currentTimeMillis(), false), "/ftp/cluster/sessions", null,
+                    client.listOf(SchedulerInfo.class)).values().forEach(infos::addAll);
+        }
+        return infos;
+    }
+
+    public List<SchedulerInfo> localSessions() {
+        List<SchedulerInfo> infos = ftpService.listSchedulers();
+        if (active) {
+            infos.forEach(info -> info.setNode(self));
+        }
+        return infos;
+    }
+
+    /**
+     * Removes the sessions held here and asks the other nodes for the rest.
+     */
+    public String remove(SessionRemoveDto sessionDto) {
+        if (!active) {
+            return ftpService.removeScheduler(sessionDto);
+        }
+        List<String> local = new ArrayList<>();
+        List<String> elsewhere = new ArrayList<>();
+        for (String sessionId : sessionDto.getSessionId()) {
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(sessionId);
+            } catch (IllegalArgumentException e) {
+                local.add(sessionId);
+                continue;
+            }
+            (sessionRegistry.get(uuid) != null ? local : elsewhere).add(sessionId);
+        }
+        StringBuilder message = new StringBuilder(ftpService.removeScheduler(removeDto(local)));
+        if (!elsewhere.isEmpty()) {
+            this.<String>fanOut(liveNodes(System.currentTimeMillis(), false), "/ftp/cluster/remove", removeDto(elsewhere),
+                    client.type(String.class)).values().forEach(message::append);
+        }
+        return message.toString();
+    }
+
+    /**
+     * Starts the command on the matching sessions of every node. The job is local and
+     * collects the results of the other nodes as they come in; a node that cannot be
+     * reached adds a single FAILED result, one that stops answering adds one for each
+     * of its missing results.
+     *
+     * @throws IllegalArgumentException If the command is missing or the host pattern is invalid.
+     */
+    public ExecJob exec(ExecRequest request) {
+        ExecService.validate(request);
+        if (!active) {
+            return execService.submit(request);
+        }
+        Set<String> nodes = liveNodes(System.currentTimeMillis(), false);
+        Map<String, ExecJobStatus> remote = fanOut(nodes, "/ftp/cluster/exec", request, client.type(ExecJobStatus.class));
+        int expected = nodes.size() - remote.size();
+        for (ExecJobStatus status : remote.values()) {
+            expected += status.getTotal();
+        }
+        ExecJob job = execService.submit(request, expected);
+        for (String node : nodes) {
+            ExecJobStatus status = remote.get(node);
+            if (status == null) {
+                job.add(nodeFailure(node, "did not take the command"));
+            } else {
+                collect(node, status, job);
+            }
+        }
+        return job;
+    }
+
+    public String configureScheduler(SchedulerConfiguration schedulerConfiguration) {
+        String message = ftpService.configureScheduler(schedulerConfiguration);
+        shareGroups();
+        return message;
+    }
+
+    /**
+     * @return False if there is no such group.
+     */
+    public boolean pauseGroup(String group) {
+        if (!ftpService.pauseGroup(group)) {
+            return false;
+        }
+        shareGroups();
+        return true;
+    }
+
+    /**
+     * @return False if there is no such group.
+     */
+    public boolean resumeGroup(String group) {
+        if (!ftpService.resumeGroup(group)) {
+            return false;
+        }
+        shareGroups();
+        return true;
+    }
+
+    /**
+     * @return A message for the caller, or null if there is no such group.
+     */
+    public String resizeGroup(String group, SchedulerConfiguration schedulerConfiguration) {
+        String message = ftpService.resizeGroup(group, schedulerConfiguration);
+        if (message != null) {
+            shareGroups();
+        }
+        return message;
+    }
+
+    /**
+     * @return This node first, then every other node it knows of.
+     */
+    public List<NodeInfo> nodes() {
+        List<NodeInfo> nodes = new ArrayList<>();
+        nodes.add(selfInfo());
+        new TreeSet<>(members.keySet()).forEach(url -> {
+            NodeInfo info = members.get(url);
+            if (info != null) {
+                nodes.add(info);
+            }
+        });
+        return nodes;
+    }
+
+    /**
+     * Answers another node's ping, which also tells this node about the caller.
+     */
+    public NodeInfo ping(NodeInfo caller) {
+        seen(caller, System.currentTimeMillis());
+        return selfInfo();
+    }
+
+    /**
+     * Takes a node out of the ring right away, so it can hand its sessions over.
+     */
+    public void leave(NodeInfo node) {
+        if (node == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        node.setLeaving(true);
+        seen(node, now);
+        if (active) {
+            updateRing(now);
+        }
+    }
+
+    /**
+     * Registers and connects sessions sent by another node, under the UUIDs they came with.
+     *
+     * @param handoff Only takes the sessions this node owns, the sender keeps the others.
+     * @param wait    Returns once the new sessions are connected or have failed.
+     * @return The sessions taken, including ones that were already here.
+     * @throws IllegalStateException If cluster mode is off.
+     */
+    public List<SchedulerInfo> adopt(InventorySnapshot snapshot, boolean handoff, boolean wait) {
+        if (!active) {
+            throw new IllegalStateException("Cluster mode is off on " + self);
+        }
+        snapshot.getGroups().forEach(ftpService::applyGroup);
+        HashRing current = ring;
+        List<SessionEntry> entries = new ArrayList<>();
+        List<CompletableFuture<SessionState>> connects = new ArrayList<>();
+        for (SessionSnapshot sent : snapshot.getSessions()) {
+            SessionTarget target;
+            try {
+                target = cipher.open(sent);
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                logger.warn("Not adopting session {} for {}: {}", sent.getUuid(), sent.getTarget().getHost(), e.getMessage());
+                continue;
+            }
+            if (target == null) {
+                continue;
+            }
+            if (handoff && (leaving || !self.equals(current.owner(placementKey(target))))) {
+                continue;
+            }
+            SessionEntry entry = ftpService.restoreSession(sent.getUuid(), target);
+            if (entry != null) {
+                connects.add(ftpService.connectRestored(entry));
+            } else if ((entry = sessionRegistry.get(sent.getUuid())) == null) {
+                continue;
+            }
+            entries.add(entry);
+        }
+        if (wait && !connects.isEmpty()) {
+            CompletableFuture.allOf(connects.toArray(CompletableFuture[]::new))
+                    .completeOnTimeout(null, properties.getAdoptTimeout(), TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> null)
+                    .join();
+        }
+        List<SchedulerInfo> infos = new ArrayList<>(entries.size());
+        for (SessionEntry entry : entries) {
+            SchedulerInfo info = entry.toSchedulerInfo();
+            info.setNode(self);
+            infos.add(info);
+        }
+        return infos;
+    }
+
+    /**
+     * Applies the schedule groups another node sent after they changed there.
+     */
+    public void applyGroups(List<GroupSnapshot> groups) {
+        groups.forEach(ftpService::applyGroup);
+    }
+
+    private void check() {
+        try {
+            long now = System.currentTimeMillis();
+            pingPeers();
+            if (properties.getDirectory() != null) {
+                syncDirectory(Paths.get(properties.getDirectory()), now);
+            }
+            members.values().removeIf(info -> now - info.getLastSeen() > properties.getNodeTimeout() * FORGET_AFTER_TIMEOUTS);
+            updateRing(System.currentTimeMillis());
+            HashRing current = ring;
+            // Sessions only move once the other nodes had a check to see the same change
+            if (current != checkedRing) {
+                checkedRing = current;
+                return;
+            }
+            long version = sessionRegistry.version();
+            if (current == balancedRing && version == balancedVersion) {
+                return;
+            }
+            if (handOff(current)) {
+                balancedRing = current;
+                balancedVersion = version;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Cluster check failed. Error: {}", e.getMessage(), e);
+        }
+    }
+
+    private void pingPeers() {
+        Set<String> peers = new TreeSet<>(members.keySet());
+        properties.getPeers().forEach(peer -> peers.add(normalize(peer)));
+        peers.remove(self);
+        NodeInfo me = selfInfo();
+        List<CompletableFuture<Void>> pings = new ArrayList<>(peers.size());
+        for (String peer : peers) {
+            pings.add(client.<NodeInfo>call(peer, "/ftp/cluster/ping", me, client.type(NodeInfo.class))
+                    .thenAccept(info -> seen(info, System.currentTimeMillis()))
+                    .exceptionally(e -> {
+                        logger.debug("Node {} did not answer the ping: {}", peer, message(e));
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(pings.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void syncDirectory(Path directory, long now) {
+        writeHeartbeat(directory);
+        Path own = heartbeatFile(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                if (file.equals(own)) {
+                    continue;
+                }
+                try {
+                    NodeInfo info = objectMapper.readValue(file.toFile(), NodeInfo.class);
+                    if (now - info.getLastSeen() > properties.getNodeTimeout() * FORGET_AFTER_TIMEOUTS) {
+                        Files.deleteIfExists(file);
+                    } else {
+                        seen(info, info.getLastSeen());
+                    }
+                } catch (IOException e) {
+                    logger.debug("Skipping heartbeat file {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot read cluster directory {}. Error: {}", directory, e.getMessage());
+        }
+    }
+
+    // Replaced atomically, so other nodes never read half of it
+    private void writeHeartbeat(Path directory) {
+        Path file = heartbeatFile(directory);
+        try {
+            NodeInfo info = selfInfo();
+            AtomicFiles.write(file, out -> objectMapper.writeValue(out, info));
+        } catch (IOException e) {
+            logger.warn("Cannot write heartbeat file {}. Error: {}", file, e.getMessage());
+        }
+    }
+
+    private Path heartbeatFile(Path directory) {
+        return directory.resolve(self.replaceAll("[^A-Za-z0-9.-]", "_") + ".json");
+    }
+
+    // An older incarnation or an older sighting never overrides a newer one
+    private void seen(NodeInfo info, long lastSeen) {
+        if (info == null || info.getUrl() == null) {
+            return;
+        }
+        String url = normalize(info.getUrl());
+        if (url.equals(self)) {
+            return;
+        }
+        members.compute(url, (key, known) -> {
+            if (known != null && (known.getIncarnation() > info.getIncarnation()
+                    || known.getIncarnation() == info.getIncarnation() && known.getLastSeen() > lastSeen)) {
+                return known;
+            }
+            if (known == null || known.getIncarnation() != info.getIncarnation()) {
+                logger.info("Cluster node {} is up, started at {}", url, info.getIncarnation());
+            }
+            return new NodeInfo(url, info.getIncarnation(), info.getSessions(), info.isLeaving(), lastSeen);
+        });
+    }
+
+    private Set<String> liveNodes(long now, boolean withSelf) {
+        Set<String> nodes = new TreeSet<>();
+        for (NodeInfo info : members.values()) {
+            if (!info.isLeaving() && now - info.getLastSeen() <= properties.getNodeTimeout()) {
+                nodes.add(info.getUrl());
+            }
+        }
+        if (withSelf && !leaving) {
+            nodes.add(self);
+        }
+        return nodes;
+    }
+
+    private synchronized void updateRing(long now) {
+        List<String> nodes = new ArrayList<>(liveNodes(now, true));
+        if (nodes.equals(ring.getNodes())) {
+            return;
+        }
+        ring = new HashRing(nodes, properties.getVirtualNodes());
+        logger.info("Cluster ring is now {}", nodes);
+    }
+
+    /**
+     * Sends every local session the ring gives to another node over to that node.
+     *
+     * @return True if nothing is left to hand over.
+     */
+    private boolean handOff(HashRing target) {
+        Map<String, List<SessionEntry>> moves = new LinkedHashMap<>();
+        for (SessionEntry entry : sessionRegistry.snapshot()) {
+            if (entry.getState() == SessionState.CLOSED) {
+                continue;
+            }
+            String owner = target.owner(placementKey(entry.getTarget()));
+            if (owner != null && !owner.equals(self)) {
+                moves.computeIfAbsent(owner, node -> new ArrayList<>()).add(entry);
+            }
+        }
+        boolean complete = true;
+        int batch = Math.max(1, properties.getHandoffBatch());
+        for (Map.Entry<String, List<SessionEntry>> move : moves.entrySet()) {
+            List<SessionEntry> entries = move.getValue();
+            int moved = 0;
+            for (int i = 0; i < entries.size(); i += batch) {
+                List<SessionEntry> part = entries.subList(i, Math.min(entries.size(), i + batch));
+                try {
+                    int taken = handOff(move.getKey(), part);
+                    moved += taken;
+                    complete &= taken == part.size();
+                } catch (GeneralSecurityException | CompletionException e) {
+                    logger.warn("Cannot hand sessions over to {}. Error: {}", move.getKey(), message(e));
+                    complete = false;
+                    break;
+                }
+            }
+            logger.info("Handed {} of {} sessions over to {}", moved, entries.size(), move.getKey());
+        }
+        return complete;
+    }
+
+    // Sessions are only dropped here once the owner has them, one it refused stays until the next check
+    private int handOff(String node, List<SessionEntry> entries) throws GeneralSecurityException {
+        List<SessionSnapshot> sessions = new ArrayList<>(entries.size());
+        for (SessionEntry entry : entries) {
+            sessions.add(cipher.seal(entry.getUuid(), entry.getTarget()));
+        }
+        List<SchedulerInfo> taken = client.<List<SchedulerInfo>>call(node, "/ftp/cluster/adopt?handoff=true",
+                payload(sessions), client.listOf(SchedulerInfo.class)).join();
+        // Only what was sent can be dropped, whatever the answer claims
+        Set<UUID> sent = new HashSet<>();
+        entries.forEach(entry -> sent.add(entry.getUuid()));
+        List<String> sessionIds = new ArrayList<>(taken.size());
+        for (SchedulerInfo info : taken) {
+            if (info.getId() != null && sent.remove(info.getId())) {
+                sessionIds.add(info.getId().toString());
+            }
+        }
+        ftpService.removeScheduler(removeDto(sessionIds));
+        return sessionIds.size();
+    }
+
+    // New sessions get their UUID here, so they keep it wherever they end up
+    private CompletableFuture<List<SchedulerInfo>> forward(String node, List<SessionTarget> targets, boolean wait) {
+        List<SessionSnapshot> sessions = new ArrayList<>(targets.size());
+        try {
+            for (SessionTarget target : targets) {
+                sessions.add(cipher.seal(UUID.randomUUID(), target));
+            }
+        } catch (GeneralSecurityException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return client.call(node, "/ftp/cluster/adopt?wait=" + wait, payload(sessions), client.listOf(SchedulerInfo.class),
+                wait ? properties.getAdoptTimeout() : properties.getRequestTimeout());
+    }
+
+    // The groups go along, so the sessions start ticking on a node that has not seen them yet
+    private InventorySnapshot payload(List<SessionSnapshot> sessions) {
+        return new InventorySnapshot(VERSION, System.currentTimeMillis(), ftpService.snapshotGroups(), sessions);
+    }
+
+    private void addLocally(List<SessionTarget> targets, List<Integer> indexes, SshResponse[] responses) {
+        if (indexes == null || indexes.isEmpty()) {
+            return;
+        }
+        List<SshResponse> local = ftpService.addSSH(pick(targets, indexes));
+        for (int i = 0; i < indexes.size(); i++) {
+            responses[indexes.get(i)] = local.get(i);
+        }
+    }
+
+    private void collect(String node, ExecJobStatus status, ExecJob job) {
+        status.getResults().forEach(job::add);
+        if (status.getNext() >= status.getTotal()) {
+            return;
+        }
+        later(() -> poll(node, status, job, 0), status.getResults().isEmpty() ? properties.getExecPollInterval() : 0);
+    }
+
+    private void poll(String node, ExecJobStatus last, ExecJob job, int failures) {
+        client.<ExecJobStatus>call(node, "/ftp/cluster/exec/" + last.getJobId() + "?from=" + last.getNext(), null,
+                client.type(ExecJobStatus.class)).whenComplete((status, e) -> {
+            if (e == null) {
+                collect(node, status, job);
+            } else if (failures + 1 < MAX_POLL_FAILURES) {
+                later(() -> poll(node, last, job, failures + 1), properties.getExecPollInterval());
+            } else {
+                logger.warn("Lost exec job {} on node {} with {} results missing. Error: {}", last.getJobId(), node,
+                        last.getTotal() - last.getNext(), message(e));
+                for (int i = last.getNext(); i < last.getTotal(); i++) {
+                    job.add(nodeFailure(node, "stopped answering"));
+                }
+            }
+        });
+    }
+
+    private void later(Runnable task, long delayMillis) {
+        try {
+            scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not polling after shutdown");
+        }
+    }
+
+    private void shareGroups() {
+        if (active) {
+            fanOut(liveNodes(System.currentTimeMillis(), false), "/ftp/cluster/groups", ftpService.snapshotGroups(),
+                    client.type(String.class));
+        }
+    }
+
+    /**
+     * Sends the same request to every node at once.
+     *
+     * @return The answers of the nodes that answered.
+     */
+    private <T> Map<String, T> fanOut(Set<String> nodes, String path, Object body, JavaType type) {
+        Map<String, CompletableFuture<T>> calls = new LinkedHashMap<>();
+        for (String node : nodes) {
+            calls.put(node, client.call(node, path, body, type));
+        }
+        Map<String, T> answers = new LinkedHashMap<>();
+        calls.forEach((node, call) -> {
+            try {
+                answers.put(node, call.join());
+            } catch (CompletionException | CancellationException e) {
+                logger.warn("Node {} did not answer {}. Error: {}", node, path, message(e));
+            }
+        });
+        return answers;
+    }
+
+    private Map<String, List<Integer>> byOwner(List<SessionTarget> targets) {
+        Map<String, List<Integer>> owners = new LinkedHashMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            String owner = owner(targets.get(i));
+            owners.computeIfAbsent(owner == null ? self : owner, node -> new ArrayList<>()).add(i);
+        }
+        return owners;
+    }
+
+    private static List<SessionTarget> pick(List<SessionTarget> targets, List<Integer> indexes) {
+        List<SessionTarget> picked = new ArrayList<>();
+        if (indexes != null) {
+            indexes.forEach(index -> picked.add(targets.get(index)));
+        }
+        return picked;
+    }
+
+    private String owner(SessionTarget target) {
+        return active ? ring.owner(placementKey(target)) : null;
+    }
+
+    // Sessions of one SSH host share a pooled connection, so they are placed together
+    private static String placementKey(SessionTarget target) {
+        return target.getHost() + ":" + target.getPort();
+    }
+
+    private NodeInfo selfInfo() {
+        return new NodeInfo(self, incarnation, sessionRegistry.size(), leaving, System.currentTimeMillis());
+    }
+
+    private static ExecResult nodeFailure(String node, String reason) {
+        return new ExecResult(null, node, 0, ExecStatus.FAILED, System.currentTimeMillis(), 0, "Node " + node + " " + reason);
+    }
+
+    private static SessionRemoveDto removeDto(List<String> sessionIds) {
+        SessionRemoveDto dto = new SessionRemoveDto();
+        dto.setSessionId(sessionIds);
+        return dto;
+    }
+
+    // Nothing reached the node, so the sessions can safely be connected somewhere else
+    private static boolean unreachable(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+    }
+
+    private static String message(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+}
@@ -0,0 +1,122 @@
+package org.example.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.example.config.ClusterProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signs and checks the requests cluster nodes send each other.
+ * <p>
+ * The signature is an HMAC-SHA256 under the shared secret of the time, a random nonce,
+ * the method, path and query and a SHA-256 of the body, so a request is only accepted
+ * from a node that knows the secret, only as it was sent and only for a short while
+ * after it was made. Every accepted signature is remembered until it is too old anyway,
+ * so a captured request cannot be replayed to the same node.
+ */
+@Component
+public class ClusterSigner {
+
+    public static final String HEADER = "X-Cluster-Auth";
+    private static final long MAX_SKEW_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final int NONCE_BYTES = 16;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] secret;
+    private final SecureRandom random = new SecureRandom();
+    // Accepted header values by the time they were signed at
+    private final Map<String, Long> seen = new ConcurrentHashMap<>();
+    private volatile long lastPurge;
+
+    @Autowired
+    public ClusterSigner(ClusterProperties properties) {
+        this.secret = StringUtils.isBlank(properties.getSecret()) ? null : CredentialCipher.decodeKey(properties.getSecret());
+    }
+
+    public boolean isConfigured() {
+        return secret != null;
+    }
+
+    /**
+     * @param query The raw query without the '?', or null if there is none.
+     * @param body  The body as sent, or null if there is none.
+     * @return The value of the {@link #HEADER} header for the request.
+     */
+    public String sign(String method, String path, String query, byte[] body) {
+        return sign(System.currentTimeMillis(), method, path, query, body);
+    }
+
+    // Signs as of the given time, which lets tests make signatures outside the skew
+    String sign(long now, String method, String path, String query, byte[] body) {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        String encodedNonce = Base64.getUrlEncoder().withoutPadding().encodeToString(nonce);
+        return now + ":" + encodedNonce + ":" + mac(now, encodedNonce, method, path, query, body);
+    }
+
+    /**
+     * @return True if the header signs exactly this request and was not seen before.
+     */
+    public boolean verify(String header, String method, String path, String query, byte[] body) {
+        if (secret == null || header == null) {
+            return false;
+        }
+        String[] parts = header.split(":", 3);
+        if (parts.length != 3 || parts[1].isEmpty()) {
+            return false;
+        }
+        long time;
+        try {
+            time = Long.parseLong(parts[0]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (Math.abs(now - time) > MAX_SKEW_MILLIS) {
+            return false;
+        }
+        byte[] expected = mac(time, parts[1], method, path, query, body).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, parts[2].getBytes(StandardCharsets.US_ASCII))) {
+            return false;
+        }
+        purge(now);
+        return seen.putIfAbsent(header, time) == null;
+    }
+
+    // Signatures older than the skew are refused on their time alone, so they need not be remembered
+    private void purge(long now) {
+        if (now - lastPurge < PURGE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPurge = now;
+        seen.values().removeIf(time -> Math.abs(now - time) > MAX_SKEW_MILLIS);
+    }
+
+    private String mac(long time, String nonce, String method, String path, String query, byte[] body) {
+        if (secret == null) {
+            throw new IllegalStateException("cluster.secret is not set");
+        }
+        try {
+            String bodyHash = Base64.getEncoder().encodeToString(
+                    MessageDigest.getInstance("SHA-256").digest(body == null ? EMPTY : body));
+            String input = time + "\n" + nonce + "\n" + method + "\n" + path + "\n" + (query == null ? "" : query) + "\n" + bodyHash;
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return Base64.getEncoder().encodeToString(mac.doFinal(input.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
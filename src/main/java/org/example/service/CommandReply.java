@@ -0,0 +1,27 @@
+package org.example.service;
+
+/**
+ * What came back for one command: the captured output and whether the expected prompt
+ * showed up before the timeout.
+ */
+public class CommandReply {
+
+    private final String output;
+    private final boolean prompted;
+
+    public CommandReply(String output, boolean prompted) {
+        this.output = output;
+        this.prompted = prompted;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * @return False if the command timed out, failed or the channel closed first.
+     */
+    public boolean isPrompted() {
+        return prompted;
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.StreamProperties;
+import org.example.dto.CommandResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes command results to Server-Sent Events subscribers.
+ * <p>
+ * Publishing only enqueues into each subscriber's bounded queue, so the threads running
+ * commands never wait on a client. A small sender pool drains the queues; when a client
+ * falls behind its oldest results are dropped and it is told how many it missed. A
+ * client that stops reading altogether is dropped after the send timeout, see
+ * {@link EmitterSenders}.
+ */
+@Service
+public class CommandResultBroadcaster {
+
+    private static final Logger logger = LogManager.getLogger(CommandResultBroadcaster.class);
+
+    private final StreamProperties properties;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final EmitterSenders senders;
+
+    @Autowired
+    public CommandResultBroadcaster(StreamProperties properties) {
+        this.properties = properties;
+        this.senders = new EmitterSenders("stream-watchdog", properties.getSenderThreads(), properties.getSendTimeout());
+    }
+
+    /**
+     * @param sessionId Only stream results of this session, or all sessions if {@code null}.
+     */
+    public SseEmitter subscribe(UUID sessionId) {
+        SseEmitter emitter = new SseEmitter(properties.getEmitterTimeout());
+        Subscriber subscriber = new Subscriber(emitter, sessionId);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public void publish(CommandResult result) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sessionId == null || subscriber.sessionId.equals(result.getSessionId())) {
+                subscriber.offer(result);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        senders.shutdown();
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final UUID sessionId;
+        private final BlockingQueue<CommandResult> queue = new ArrayBlockingQueue<>(properties.getSubscriberBuffer());
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicLong dropped = new AtomicLong();
+        private final EmitterSenders.Stream stream;
+
+        private Subscriber(SseEmitter emitter, UUID sessionId) {
+            this.emitter = emitter;
+            this.sessionId = sessionId;
+            this.stream = senders.stream(emitter, () -> {
+                subscribers.remove(this);
+                queue.clear();
+            });
+        }
+
+        private void offer(CommandResult result) {
+            while (!queue.offer(result)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                CommandResult result;
+                while ((result = queue.poll()) != null) {
+                    long missed = dropped.getAndSet(0);
+                    if (missed > 0) {
+                        stream.send(SseEmitter.event().name("dropped").data(missed));
+                    }
+                    stream.send(SseEmitter.event().name("result").data(result));
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void close(Exception e) {
+            logger.debug("Closing stream subscriber. Error: {}", e.getMessage());
+            subscribers.remove(this);
+            queue.clear();
+            emitter.completeWithError(e);
+        }
+    }
+}
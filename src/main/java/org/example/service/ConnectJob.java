@@ -0,0 +1,57 @@
+package org.example.service;
+
+import org.example.dto.ConnectJobStatus;
+import org.example.dto.SchedulerInfo;
+import org.example.dto.SessionState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A batch of sessions submitted through one connect request.
+ */
+public class ConnectJob {
+
+    private final UUID jobId = UUID.randomUUID();
+    private final long createdAt = System.currentTimeMillis();
+    private final List<SessionEntry> entries;
+
+    public ConnectJob(List<SessionEntry> entries) {
+        this.entries = entries;
+    }
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public boolean isDone() {
+        return entries.stream().noneMatch(entry -> entry.getState() == SessionState.CONNECTING);
+    }
+
+    public ConnectJobStatus toStatus() {
+        int connecting = 0;
+        int connected = 0;
+        int failed = 0;
+        List<SchedulerInfo> sessions = new ArrayList<>(entries.size());
+        for (SessionEntry entry : entries) {
+            switch (entry.getState()) {
+                case CONNECTING:
+                    connecting++;
+                    break;
+                case CONNECTED:
+                    connected++;
+                    break;
+                default:
+                    failed++;
+                    break;
+            }
+            sessions.add(entry.toSchedulerInfo());
+        }
+        return new ConnectJobStatus(jobId, entries.size(), connecting, connected, failed, sessions, 0);
+    }
+}
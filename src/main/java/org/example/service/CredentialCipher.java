@@ -0,0 +1,168 @@
+package org.example.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.dto.SessionSnapshot;
+import org.example.dto.SessionTarget;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Encrypts session credentials with AES-GCM wherever a session leaves memory, in the
+ * inventory snapshot and when it is handed to another cluster node.
+ * <p>
+ * Every value gets a random IV and is bound to its session's UUID as associated data,
+ * so a ciphertext cannot be moved to another session in the file without failing to
+ * decrypt.
+ */
+public class CredentialCipher {
+
+    private static final Logger logger = LogManager.getLogger(CredentialCipher.class);
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int KEY_BYTES = 32;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final char SEPARATOR = '\0';
+
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+
+    public CredentialCipher(byte[] key) {
+        if (key.length != 16 && key.length != 24 && key.length != KEY_BYTES) {
+            throw new IllegalArgumentException("Snapshot key must be 16, 24 or 32 bytes, not " + key.length);
+        }
+        this.key = new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * Reads the base64 key from the file, or creates the file with a new random key
+     * readable only by its owner.
+     */
+    public static CredentialCipher fromKeyFile(Path keyFile) throws IOException {
+        if (!Files.exists(keyFile)) {
+            byte[] key = new byte[KEY_BYTES];
+            new SecureRandom().nextBytes(key);
+            if (keyFile.getParent() != null) {
+                Files.createDirectories(keyFile.getParent());
+            }
+            try {
+                Files.createFile(keyFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } catch (UnsupportedOperationException e) {
+                Files.createFile(keyFile);
+            } catch (FileAlreadyExistsException e) {
+                return fromKeyFile(keyFile);
+            }
+            Files.write(keyFile, Base64.getEncoder().encode(key));
+            logger.info("Created snapshot key {}", keyFile);
+            return new CredentialCipher(key);
+        }
+        return new CredentialCipher(decodeKey(new String(Files.readAllBytes(keyFile), StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * @throws IllegalArgumentException If the text is not valid base64.
+     */
+    public static byte[] decodeKey(String base64) {
+        return Base64.getDecoder().decode(base64.trim());
+    }
+
+    /**
+     * @return Base64 of IV and ciphertext, or null if there are no credentials.
+     */
+    public String encrypt(UUID uuid, String userName, String password) throws GeneralSecurityException {
+        if (userName == null && password == null) {
+            return null;
+        }
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(associatedData(uuid));
+        String plain = (userName == null ? "" : userName) + SEPARATOR + (password == null ? "" : password);
+        byte[] encrypted = cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(IV_BYTES + encrypted.length).put(iv).put(encrypted).array());
+    }
+
+    /**
+     * @return The user name and the password, empty ones as null.
+     * @throws GeneralSecurityException If the value was not encrypted with this key for this session.
+     */
+    public String[] decrypt(UUID uuid, String credentials) throws GeneralSecurityException {
+        byte[] data = Base64.getDecoder().decode(credentials);
+        if (data.length < IV_BYTES) {
+            throw new GeneralSecurityException("Credentials too short");
+        }
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_BYTES));
+        cipher.updateAAD(associatedData(uuid));
+        String plain = new String(cipher.doFinal(data, IV_BYTES, data.length - IV_BYTES), StandardCharsets.UTF_8);
+        int separator = plain.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new GeneralSecurityException("Credentials malformed");
+        }
+        String userName = plain.substring(0, separator);
+        String password = plain.substring(separator + 1);
+        return new String[]{userName.isEmpty() ? null : userName, password.isEmpty() ? null : password};
+    }
+
+    /**
+     * @return A copy of the mapper that leaves credentials out of every {@link SessionTarget},
+     * for use with {@link #seal(UUID, SessionTarget)}.
+     */
+    public static ObjectMapper withoutCredentials(ObjectMapper objectMapper) {
+        return objectMapper.copy().addMixIn(SessionTarget.class, WithoutCredentials.class);
+    }
+
+    /**
+     * @return The session with its credentials encrypted beside the target.
+     */
+    public SessionSnapshot seal(UUID uuid, SessionTarget target) throws GeneralSecurityException {
+        return new SessionSnapshot(uuid, target, encrypt(uuid, target.getUserName(), target.getPassword()));
+    }
+
+    /**
+     * Puts the decrypted credentials back into the target of a sealed session and checks it.
+     *
+     * @return The target, or null if the session has no UUID or target.
+     * @throws GeneralSecurityException If the credentials were not sealed with this key for this session.
+     * @throws IllegalArgumentException If the target does not pass {@link FTPService#validate(SessionTarget)}.
+     */
+    public SessionTarget open(SessionSnapshot sealed) throws GeneralSecurityException {
+        SessionTarget target = sealed.getTarget();
+        if (sealed.getUuid() == null || target == null) {
+            return null;
+        }
+        if (sealed.getCredentials() != null) {
+            String[] credentials = decrypt(sealed.getUuid(), sealed.getCredentials());
+            target.setUserName(credentials[0]);
+            target.setPassword(credentials[1]);
+        }
+        FTPService.validate(target);
+        return target;
+    }
+
+    private static byte[] associatedData(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    @JsonIgnoreProperties({"userName", "password"})
+    private abstract static class WithoutCredentials {
+    }
+}
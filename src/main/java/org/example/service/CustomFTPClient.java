@@ -1,16 +1,24 @@
 package org.example.service;
 
 import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.ChannelDirectTCPIP;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.config.TelnetProperties;
+import org.example.dto.ConnectionMode;
 import org.example.dto.TelnetStream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -20,17 +28,29 @@ public class CustomFTPClient {
 
     // Constants
     private static final int CONNECTION_TIMEOUT = 3000;
-    private static final int COMMAND_SLEEP_INTERVAL = 35;
-    private static final int TELNET_SLEEP_INTERVAL = 20;
-    private static final int MAX_EMPTY_COUNT = 100;
-    private static final int BUFFER_SIZE = 2000;
+    static final long COMMAND_TIMEOUT = 3500;
+    private static final long TELNET_TIMEOUT = 2000;
 
     private static final String STRICT_HOST_KEY_CHECKING = "StrictHostKeyChecking";
     private static final String CHANNEL_TYPE_SHELL = "shell";
+    private static final String CHANNEL_TYPE_DIRECT_TCPIP = "direct-tcpip";
+    // Reason the SSH server gives when it could not open the TCP connection of a direct channel
+    private static final int SSH_OPEN_CONNECT_FAILED = 2;
     private static final String CONNECTION_REFUSED = "Connection refused";
     private static final String ESCAPE_CHARACTER = "Escape character is ";
     private static final String NES_SIP_PROMPT = "NES-SIP>";
 
+    private final TelnetProperties telnetProperties;
+    private final MetricsRegistry metricsRegistry;
+    private final Charset charset;
+
+    @Autowired
+    public CustomFTPClient(TelnetProperties telnetProperties, MetricsRegistry metricsRegistry) {
+        this.telnetProperties = telnetProperties;
+        this.metricsRegistry = metricsRegistry;
+        this.charset = Charset.forName(telnetProperties.getCharset());
+    }
+
     /**
      * Establishes an SSH session.
      *
@@ -47,10 +67,13 @@ public class CustomFTPClient {
             session.setConfig(STRICT_HOST_KEY_CHECKING, "no");
             session.setPassword(password);
             session.setTimeout(CONNECTION_TIMEOUT);
+            final long start = System.nanoTime();
             session.connect();
+            metricsRegistry.forHost(host).recordSshConnect(System.nanoTime() - start);
             logger.info("Connection established. Host: {} Port: {}", host, port);
             return Optional.of(session);
         } catch (JSchException e) {
+            metricsRegistry.forHost(host).recordFailedConnect();
             logger.error("Failed to establish connection to {}:{}. Error: {}", host, port, e.getMessage(), e);
             return Optional.empty();
         }
@@ -67,79 +90,212 @@ public class CustomFTPClient {
      */
     public TelnetStream connectionTelnet(final Session session, final String ip, final int port) throws JSchException, IOException {
         final Channel channel = session.openChannel(CHANNEL_TYPE_SHELL);
+        final ChannelReader reader = new ChannelReader(telnetProperties.getReadBufferSize());
+        channel.setOutputStream(reader);
         channel.connect(CONNECTION_TIMEOUT);
 
         final DataOutputStream outputStream = new DataOutputStream(channel.getOutputStream());
-        final DataInputStream inputStream = new DataInputStream(channel.getInputStream());
-        channel.setInputStream(inputStream, true);
 
-        TelnetStream telnetStream = new TelnetStream(outputStream, inputStream, channel, true);
+        TelnetStream telnetStream = new TelnetStream(outputStream, reader, newCapture(), channel, true, metricsRegistry.forHost(ip));
         boolean isConnect = connectTelnetWithoutUserAndPass(telnetStream, ip, port);
         telnetStream.setIsConnect(isConnect);
         return telnetStream;
     }
 
+    private OutputCapture newCapture() {
+        return new OutputCapture(telnetProperties.getOutputCap(), telnetProperties.getOverflowPolicy(), telnetProperties.getSpillDirectory(),
+                telnetProperties.getSpillRetention());
+    }
+
+    /**
+     * Establishes a Telnet connection using the requested mode.
+     *
+     * @param session The established SSH session.
+     * @param ip      The Telnet server IP.
+     * @param port    The Telnet server port.
+     * @param mode    How the telnet port is reached, {@code null} means {@link ConnectionMode#SHELL}.
+     * @return The TelnetStream for communication.
+     * @throws JSchException, IOException If the connection fails.
+     */
+    public TelnetStream connectionTelnet(final Session session, final String ip, final int port, final ConnectionMode mode) throws JSchException, IOException {
+        final HostMetrics metrics = metricsRegistry.forHost(ip);
+        final long start = System.nanoTime();
+        try {
+            TelnetStream telnetStream = mode == ConnectionMode.DIRECT
+                    ? connectionTelnetDirect(session, ip, port)
+                    : connectionTelnet(session, ip, port);
+            if (Boolean.TRUE.equals(telnetStream.getIsConnect())) {
+                metrics.recordTelnetHandshake(System.nanoTime() - start);
+            } else {
+                metrics.recordFailedConnect();
+            }
+            return telnetStream;
+        } catch (JSchException | IOException e) {
+            metrics.recordFailedConnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Establishes a Telnet connection over a direct-tcpip channel, so no remote shell
+     * or telnet process is needed. Option negotiation is handled by {@link TelnetNegotiator}.
+     * A device that refuses the connection gives a stream that is not connected, as it
+     * does through the shell.
+     *
+     * @param session The established SSH session.
+     * @param ip      The Telnet server IP, as seen from the SSH server.
+     * @param port    The Telnet server port.
+     * @return The TelnetStream for communication.
+     * @throws JSchException If the SSH server cannot open the channel for another reason, e.g. forwarding is disabled.
+     */
+    public TelnetStream connectionTelnetDirect(final Session session, final String ip, final int port) throws JSchException, IOException {
+        final ChannelDirectTCPIP channel = (ChannelDirectTCPIP) session.openChannel(CHANNEL_TYPE_DIRECT_TCPIP);
+        channel.setHost(ip);
+        channel.setPort(port);
+        final ChannelReader reader = new ChannelReader(telnetProperties.getReadBufferSize());
+        final TelnetOutputStream telnetOutput = new TelnetOutputStream(channel.getOutputStream());
+        final DataOutputStream outputStream = new DataOutputStream(telnetOutput);
+        channel.setOutputStream(new TelnetNegotiator(reader, telnetOutput));
+        try {
+            channel.connect(CONNECTION_TIMEOUT);
+        } catch (JSchException e) {
+            if (channel.getExitStatus() != SSH_OPEN_CONNECT_FAILED) {
+                throw e;
+            }
+            logger.warn("Telnet server at {}:{} refused the connection", ip, port);
+            return new TelnetStream(outputStream, reader, newCapture(), channel, false, metricsRegistry.forHost(ip));
+        }
+
+        TelnetStream telnetStream = new TelnetStream(outputStream, reader, newCapture(), channel, true, metricsRegistry.forHost(ip));
+        try {
+            // The channel is only opened once the TCP connect succeeded, the prompt just clears the banner
+            OutputCapture output = telnetStream.getCapture();
+            output.reset();
+            reader.readUntil(new PromptMatcher(NES_SIP_PROMPT), output, TELNET_TIMEOUT);
+            logger.debug("Telnet connection output: {}", output.toString(charset));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            telnetStream.setIsConnect(false);
+        }
+        return telnetStream;
+    }
+
+    /**
+     * Executes a command with the default timeout.
+     *
+     * @see #runCommand(TelnetStream, String, String, long)
+     */
+    public String runCommand(TelnetStream telnetStream, String cmd, String waitFor) {
+        return runCommand(telnetStream, cmd, waitFor, COMMAND_TIMEOUT);
+    }
+
     /**
      * Executes a command on the remote server and waits for a specific output.
      *
-     * @param outputStream The output stream to send the command.
-     * @param inputStream  The input stream to read the response.
-     * @param cmd          The command to execute.
-     * @param waitFor      The expected response string to wait for.
+     * @param telnetStream  The stream to send the command on and read the response from.
+     * @param cmd           The command to execute.
+     * @param waitFor       The expected response string to wait for.
+     * @param timeoutMillis How long to wait for {@code waitFor} before giving up.
      * @return The command output.
      */
-    public String runCommand(OutputStream outputStream, InputStream inputStream, String cmd, String waitFor) {
+    public String runCommand(TelnetStream telnetStream, String cmd, String waitFor, long timeoutMillis) {
+        return execute(telnetStream, cmd, waitFor, timeoutMillis).getOutput();
+    }
+
+    /**
+     * Executes a command like {@link #runCommand(TelnetStream, String, String, long)} and
+     * also tells whether the expected output showed up or the command timed out.
+     *
+     * @return The command output and whether {@code waitFor} was seen.
+     */
+    public CommandReply execute(TelnetStream telnetStream, String cmd, String waitFor, long timeoutMillis) {
         if (StringUtils.isBlank(cmd)) {
-            return StringUtils.EMPTY;
+            return new CommandReply(StringUtils.EMPTY, false);
         }
-        if (StringUtils.isEmpty(waitFor)) {
-            waitFor = CONNECTION_REFUSED;
-        }
-        StringBuilder builder = new StringBuilder();
+        return executePipelined(telnetStream, Collections.singletonList(cmd), Collections.singletonList(waitFor),
+                new long[]{timeoutMillis}).get(0);
+    }
+
+    /**
+     * Writes several commands in one flush and splits the responses back out by their
+     * prompts, so a batch costs one round trip instead of one per command. The device
+     * has to read commands line by line and answer them in order.
+     * <p>
+     * Once a prompt does not show up in time the remaining output can no longer be told
+     * apart, so reading stops there and the replies of the later commands are missing.
+     *
+     * @param telnetStream  The stream to send the commands on and read the responses from.
+     * @param cmds          The commands, in the order the device should run them.
+     * @param waitFors      The expected response per command.
+     * @param timeoutMillis How long to wait for each prompt, counted from the previous one.
+     * @return One reply per command up to and including the first one that failed.
+     */
+    public List<CommandReply> executePipelined(TelnetStream telnetStream, List<String> cmds, List<String> waitFors, long[] timeoutMillis) {
+        List<CommandReply> replies = new ArrayList<>(cmds.size());
+        OutputCapture output = telnetStream.getCapture();
+        output.reset();
         try {
-            outputStream.write((cmd + "\r\n").getBytes());
+            int stale = telnetStream.getReader().discard();
+            if (stale > 0) {
+                logger.debug("Dropped {} unread bytes before command '{}'", stale, cmds.get(0));
+            }
+            StringBuilder batch = new StringBuilder();
+            cmds.forEach(cmd -> batch.append(cmd).append("\r\n"));
+            OutputStream outputStream = telnetStream.getOutputStream();
+            outputStream.write(batch.toString().getBytes(charset));
             outputStream.flush();
-            int emptyCount = 0;
-            while (true) {
-                String read = read(inputStream);
-                Thread.sleep(COMMAND_SLEEP_INTERVAL);
-                if (read != null && !read.isEmpty()) {
-                    builder.append(read);
-                    if (read.contains(waitFor)) {
-                        break;
-                    }
-                    continue;
+            for (int i = 0; i < cmds.size(); i++) {
+                String cmd = cmds.get(i);
+                String waitFor = StringUtils.isEmpty(waitFors.get(i)) ? CONNECTION_REFUSED : waitFors.get(i);
+                long timeout = timeoutMillis[i] > 0 ? timeoutMillis[i] : COMMAND_TIMEOUT;
+                output.reset();
+                long start = System.nanoTime();
+                int matched = telnetStream.getReader().readUntil(new PromptMatcher(waitFor), output, timeout);
+                if (telnetStream.getMetrics() != null) {
+                    telnetStream.getMetrics().recordCommand(System.nanoTime() - start, output.totalBytes(), matched == PromptMatcher.NO_MATCH);
                 }
-                if (emptyCount++ > MAX_EMPTY_COUNT) {
+                logger.debug("Command '{}' returned {} bytes", cmd, output.totalBytes());
+                replies.add(new CommandReply(output.toString(charset), matched != PromptMatcher.NO_MATCH));
+                if (matched == PromptMatcher.NO_MATCH) {
+                    logger.warn("No '{}' received for command '{}' within {} ms", waitFor, cmd, timeout);
                     break;
                 }
             }
-            logger.info("Command output: {}", builder.toString().trim());
-        } catch (IOException | InterruptedException e) {
-            logger.error("Failed to execute command '{}'. Error: {}", cmd, e.getMessage(), e);
+        } catch (IOException e) {
+            logger.error("Failed to execute command '{}'. Error: {}", cmds.get(replies.size()), e.getMessage(), e);
+            replies.add(new CommandReply(output.toString(charset), false));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while executing command '{}'", cmds.get(replies.size()));
+            replies.add(new CommandReply(output.toString(charset), false));
         }
-        return builder.toString();
+        return replies;
     }
 
     /**
-     * Reads the input stream and returns the output as a string.
+     * Checks that the device still answers by sending an empty line and waiting for its prompt.
      *
-     * @param inputStream The input stream to read from.
-     * @return The string read from the input stream.
+     * @param telnetStream  The stream of an idle session, nothing else may use it meanwhile.
+     * @param prompt        The prompt the device prints after every line.
+     * @param timeoutMillis How long to wait for the prompt.
+     * @return True if the prompt came back in time.
      */
-    public String read(InputStream inputStream) {
-        final StringBuilder commandOutput = new StringBuilder();
-        byte[] buffer = new byte[BUFFER_SIZE];
+    public boolean probe(TelnetStream telnetStream, String prompt, long timeoutMillis) {
+        OutputCapture output = telnetStream.getCapture();
+        output.reset();
         try {
-            int availableBytes = inputStream.available();
-            int bytesRead = (availableBytes > 0) ? inputStream.read(buffer, 0, Math.min(availableBytes, BUFFER_SIZE)) : 0;
-            if (bytesRead > 0) {
-                commandOutput.append(new String(buffer, 0, bytesRead));
-            }
+            telnetStream.getReader().discard();
+            OutputStream outputStream = telnetStream.getOutputStream();
+            outputStream.write("\r\n".getBytes(charset));
+            outputStream.flush();
+            return telnetStream.getReader().readUntil(new PromptMatcher(prompt), output, timeoutMillis) != PromptMatcher.NO_MATCH;
         } catch (IOException e) {
-            logger.error("Error reading from input stream. Error: {}", e.getMessage(), e);
+            logger.debug("Probe failed: {}", e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-        return commandOutput.toString();
     }
 
     /**
@@ -151,40 +307,26 @@ public class CustomFTPClient {
      * @return True if connected, otherwise false.
      */
     public boolean connectTelnetWithoutUserAndPass(final TelnetStream telnetStream, final String ip, int port) {
-        try (OutputStream stdin = telnetStream.getOutputStream()) {
+        try {
+            final OutputStream stdin = telnetStream.getOutputStream();
             final String cmd = "telnet " + ip + " " + port;
 
-            stdin.write((cmd + "\r\n").getBytes());
+            stdin.write((cmd + "\r\n").getBytes(charset));
             stdin.flush();
-            int emptyCount = 0;
-            StringBuilder builder = new StringBuilder();
-            boolean result = true;
-            while (true) {
-                String read = read(telnetStream.getInputStream());
-                Thread.sleep(TELNET_SLEEP_INTERVAL);
-                if (read != null && !read.isEmpty()) {
-                    builder.append(read);
-                    if (read.contains(CONNECTION_REFUSED)) {
-                        result = false;
-                        break;
-                    }
-                    if (read.contains(ESCAPE_CHARACTER) || read.contains(NES_SIP_PROMPT)) {
-                        break;
-                    }
-                    continue;
-                }
-                if (emptyCount++ > MAX_EMPTY_COUNT) {
-                    break;
-                }
-            }
-            logger.info("Telnet connection output: {}", builder.toString());
-            return result;
-        } catch (IOException | InterruptedException e) {
+            OutputCapture output = telnetStream.getCapture();
+            output.reset();
+            PromptMatcher matcher = new PromptMatcher(CONNECTION_REFUSED, ESCAPE_CHARACTER, NES_SIP_PROMPT);
+            int matched = telnetStream.getReader().readUntil(matcher, output, TELNET_TIMEOUT);
+            logger.debug("Telnet connection output: {}", output.toString(charset));
+            // A silent device is still treated as connected, the scheduled command will tell.
+            return matched != 0;
+        } catch (IOException e) {
             logger.error("Failed to connect to Telnet server at {}:{}. Error: {}", ip, port, e.getMessage(), e);
             return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while connecting to Telnet server at {}:{}", ip, port);
+            return false;
         }
     }
 }
-
-
-
@@ -0,0 +1,144 @@
+package org.example.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small pool of threads that write Server-Sent Events to clients.
+ * <p>
+ * A send blocks while the client does not read. A watchdog gives up on every stream
+ * whose send has not finished within the send timeout: the owner stops feeding it, its
+ * sender is interrupted and the pool gets an extra thread until the stalled write
+ * returns, so a few stalled clients never hold up the others. The sender completes the
+ * emitter once its write gave up, the emitter is locked until then.
+ */
+public class EmitterSenders {
+
+    private final ThreadPoolExecutor pool;
+    private final long sendTimeoutMillis;
+    private final Set<Stream> sending = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService watchdog;
+
+    /**
+     * @param name              Name of the watchdog thread.
+     * @param threads           Senders for all streams together.
+     * @param sendTimeoutMillis How long one send may take, 0 waits forever.
+     */
+    public EmitterSenders(String name, int threads, long sendTimeoutMillis) {
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sendTimeoutMillis > 0) {
+            long period = Math.max(sendTimeoutMillis / 4, 10);
+            watchdog.scheduleWithFixedDelay(this::expireStalled, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @param onExpired Called by the watchdog when a send of this stream took too long,
+     *                  should stop anything more from being queued for it.
+     */
+    public Stream stream(SseEmitter emitter, Runnable onExpired) {
+        return new Stream(emitter, onExpired);
+    }
+
+    public void execute(Runnable drain) {
+        pool.execute(drain);
+    }
+
+    public void shutdown() {
+        watchdog.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private void expireStalled() {
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        for (Stream stream : sending) {
+            stream.expireIfStalled(now, timeout);
+        }
+    }
+
+    // Stands in for a sender held by a stalled write, or gives it back once the write returned
+    private synchronized void resize(int delta) {
+        int size = pool.getMaximumPoolSize() + delta;
+        if (delta > 0) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
+    }
+
+    public final class Stream {
+        private final SseEmitter emitter;
+        private final Runnable onExpired;
+        // When the send in progress started, 0 while not sending; guarded by this
+        private long sendStarted;
+        private Thread sender;
+        private boolean expired;
+
+        private Stream(SseEmitter emitter, Runnable onExpired) {
+            this.emitter = emitter;
+            this.onExpired = onExpired;
+        }
+
+        /**
+         * @throws IllegalStateException If the watchdog gave up on this stream, before or during the send.
+         */
+        public void send(SseEmitter.SseEventBuilder event) throws IOException {
+            synchronized (this) {
+                checkNotExpired();
+                sendStarted = System.nanoTime();
+                sender = Thread.currentThread();
+            }
+            sending.add(this);
+            try {
+                emitter.send(event);
+            } finally {
+                sending.remove(this);
+                synchronized (this) {
+                    sendStarted = 0;
+                    sender = null;
+                    // An interrupt from the watchdog is only meant for this send, not the next task of the thread
+                    Thread.interrupted();
+                    if (expired) {
+                        resize(-1);
+                    }
+                }
+            }
+            synchronized (this) {
+                checkNotExpired();
+            }
+        }
+
+        private void checkNotExpired() {
+            if (expired) {
+                throw new IllegalStateException("Client did not take an event within " + sendTimeoutMillis + " ms");
+            }
+        }
+
+        private synchronized void expireIfStalled(long now, long timeout) {
+            if (expired || sendStarted == 0 || now - sendStarted < timeout) {
+                return;
+            }
+            expired = true;
+            onExpired.run();
+            sender.interrupt();
+            resize(1);
+        }
+    }
+}
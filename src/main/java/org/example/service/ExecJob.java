@@ -0,0 +1,98 @@
+package org.example.service;
+
+import org.example.dto.ExecJobStatus;
+import org.example.dto.ExecResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One ad-hoc command sent to a set of sessions. Results are kept in the order they
+ * complete, so a client can page through them or stream them while slower hosts are
+ * still running.
+ */
+public class ExecJob {
+
+    private final UUID jobId = UUID.randomUUID();
+    private final long createdAt = System.currentTimeMillis();
+    private final String command;
+    private final int total;
+    private final CountDownLatch remaining;
+    private final List<ExecResult> results;
+    // Told about every new result, see ExecService#stream
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public ExecJob(String command, int total) {
+        this.command = command;
+        this.total = total;
+        this.remaining = new CountDownLatch(total);
+        this.results = new ArrayList<>(total);
+    }
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void add(ExecResult result) {
+        synchronized (results) {
+            results.add(result);
+        }
+        remaining.countDown();
+        listeners.forEach(Runnable::run);
+    }
+
+    public boolean isDone() {
+        return remaining.getCount() == 0;
+    }
+
+    /**
+     * @return True if every session answered within {@code timeoutMillis}.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public boolean await(long timeoutMillis) throws InterruptedException {
+        return remaining.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param from  The index of the first result, in completion order.
+     * @param limit The most results to return.
+     */
+    public List<ExecResult> results(int from, int limit) {
+        synchronized (results) {
+            int start = Math.min(Math.max(from, 0), results.size());
+            int end = (int) Math.min(results.size(), (long) start + Math.max(limit, 0));
+            return new ArrayList<>(results.subList(start, end));
+        }
+    }
+
+    public ExecJobStatus toStatus(int from, int limit) {
+        List<ExecResult> page;
+        int completed;
+        synchronized (results) {
+            page = results(from, limit);
+            completed = results.size();
+        }
+        int next = Math.min(Math.max(from, 0), completed) + page.size();
+        return new ExecJobStatus(jobId, command, total, completed, completed == total, page, next);
+    }
+}
@@ -0,0 +1,304 @@
+package org.example.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.ExecProperties;
+import org.example.dto.ExecJobStatus;
+import org.example.dto.ExecRequest;
+import org.example.dto.ExecResult;
+import org.example.dto.ExecStatus;
+import org.example.dto.SessionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Runs ad-hoc commands on many sessions at once.
+ * <p>
+ * Every selected session gets its own task on a dedicated pool, so a fleet-wide query
+ * takes about as long as the slowest device instead of the sum of all of them. A
+ * command waits for the session's exchange lock, so it never interleaves with a
+ * scheduled tick or probe on the same channel; the wait counts against the command's
+ * timeout.
+ */
+@Service
+public class ExecService {
+
+    private static final Logger logger = LogManager.getLogger(ExecService.class);
+
+    private final SessionRegistry sessionRegistry;
+    private final CustomFTPClient customFTPClient;
+    private final SessionSupervisor sessionSupervisor;
+    private final ExecProperties properties;
+    private final Map<UUID, ExecJob> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+    private final EmitterSenders senders;
+
+    @Autowired
+    public ExecService(SessionRegistry sessionRegistry, CustomFTPClient customFTPClient, SessionSupervisor sessionSupervisor,
+                       ExecProperties properties) {
+        this.sessionRegistry = sessionRegistry;
+        this.customFTPClient = customFTPClient;
+        this.sessionSupervisor = sessionSupervisor;
+        this.properties = properties;
+        AtomicInteger threads = new AtomicInteger();
+        // Threads only exist while commands are running, an idle service holds none
+        this.workers = new ThreadPoolExecutor(properties.getPoolSize(), properties.getPoolSize(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "exec-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
+        this.senders = new EmitterSenders("exec-stream-watchdog", properties.getSenderThreads(), properties.getSendTimeout());
+    }
+
+    /**
+     * Starts the command on every session matching the request's filters.
+     *
+     * @throws IllegalArgumentException If the command is missing or the host pattern is invalid.
+     */
+    public ExecJob submit(ExecRequest request) {
+        return submit(request, 0);
+    }
+
+    /**
+     * Starts the command on every local session matching the request's filters, in a job
+     * that also expects {@code remoteResults} results added by the caller, see
+     * {@link ClusterService#exec(ExecRequest)}.
+     *
+     * @throws IllegalArgumentException If the command is missing or the host pattern is invalid.
+     */
+    public ExecJob submit(ExecRequest request, int remoteResults) {
+        validate(request);
+        List<SessionEntry> entries = select(request);
+        long timeout = request.getTimeout() > 0 ? Math.min(request.getTimeout(), properties.getMaxTimeout()) : CustomFTPClient.COMMAND_TIMEOUT;
+        ExecJob job = new ExecJob(request.getCommand(), entries.size() + remoteResults);
+        long expired = System.currentTimeMillis() - properties.getJobRetention();
+        jobs.values().removeIf(old -> old.getCreatedAt() < expired && old.isDone());
+        jobs.put(job.getJobId(), job);
+        logger.info("Running '{}' on {} sessions as job {}", request.getCommand(), entries.size(), job.getJobId());
+        for (SessionEntry entry : entries) {
+            workers.execute(() -> job.add(run(entry, request, timeout)));
+        }
+        return job;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the command is missing or the host pattern is invalid.
+     */
+    public static void validate(ExecRequest request) {
+        if (StringUtils.isBlank(request.getCommand())) {
+            throw new IllegalArgumentException("command is required");
+        }
+        hostPattern(request);
+    }
+
+    /**
+     * @return The first page of results, after waiting up to {@code waitMillis} for the job to finish.
+     */
+    public ExecJobStatus await(ExecJob job, long waitMillis) {
+        if (waitMillis > 0) {
+            try {
+                job.await(Math.min(waitMillis, properties.getMaxTimeout()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return job.toStatus(0, properties.getPageSize());
+    }
+
+    /**
+     * @param from Offset of the first result to return, in completion order.
+     * @return A page of results, or null if there is no such job.
+     */
+    public ExecJobStatus status(UUID jobId, int from) {
+        ExecJob job = jobs.get(jobId);
+        return job == null ? null : job.toStatus(from, properties.getPageSize());
+    }
+
+    /**
+     * Streams the results of a job as Server-Sent Events, starting with the ones that are
+     * already in. A {@code result} event is sent per session and a final {@code done}
+     * event once all of them answered.
+     *
+     * @return The emitter, or null if there is no such job.
+     */
+    public SseEmitter stream(UUID jobId) {
+        ExecJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(properties.getEmitterTimeout());
+        ResultStream stream = new ResultStream(job, emitter);
+        emitter.onCompletion(() -> job.removeListener(stream));
+        emitter.onTimeout(() -> job.removeListener(stream));
+        emitter.onError(e -> job.removeListener(stream));
+        job.addListener(stream);
+        stream.run();
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        senders.shutdown();
+    }
+
+    private static Pattern hostPattern(ExecRequest request) {
+        if (StringUtils.isBlank(request.getHostPattern())) {
+            return null;
+        }
+        try {
+            return Pattern.compile(request.getHostPattern());
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid host pattern: " + e.getDescription());
+        }
+    }
+
+    private List<SessionEntry> select(ExecRequest request) {
+        Pattern hostPattern = hostPattern(request);
+        Set<UUID> sessionIds = request.getSessionIds() == null || request.getSessionIds().isEmpty() ? null : new HashSet<>(request.getSessionIds());
+        List<String> tags = request.getTags() == null || request.getTags().isEmpty() ? null : request.getTags();
+        List<SessionEntry> entries = new ArrayList<>();
+        for (SessionEntry entry : sessionRegistry.snapshot()) {
+            if (sessionIds != null && !sessionIds.contains(entry.getUuid())) {
+                continue;
+            }
+            if (hostPattern != null && !hostPattern.matcher(entry.getHost()).matches()) {
+                continue;
+            }
+            List<String> entryTags = entry.getTarget().getTags();
+            if (tags != null && (entryTags == null || entryTags.stream().noneMatch(tags::contains))) {
+                continue;
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private ExecResult run(SessionEntry entry, ExecRequest request, long timeout) {
+        long timestamp = System.currentTimeMillis();
+        long start = System.nanoTime();
+        ExecStatus status;
+        String output = StringUtils.EMPTY;
+        try {
+            SessionInfo sessionInfo = entry.getSessionInfo();
+            if (!entry.isConnected()) {
+                status = ExecStatus.DISCONNECTED;
+            } else if (!sessionInfo.getSession().isConnected() || sessionInfo.getTelnetStream().getChannel().isClosed()) {
+                sessionSupervisor.markDead(entry, "connection not open at exec");
+                status = ExecStatus.DISCONNECTED;
+            } else {
+                ReentrantLock lock = entry.getExchangeLock();
+                if (!lock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+                    status = ExecStatus.BUSY;
+                } else {
+                    CommandReply reply;
+                    try {
+                        long remaining = Math.max(1, timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        String waitFor = StringUtils.isEmpty(request.getWaitFor()) ? sessionInfo.getWaitFor() : request.getWaitFor();
+                        reply = customFTPClient.execute(sessionInfo.getTelnetStream(), request.getCommand(), waitFor, remaining);
+                    } finally {
+                        lock.unlock();
+                    }
+                    output = reply.getOutput();
+                    if (!output.isEmpty()) {
+                        entry.touch();
+                    }
+                    status = reply.isPrompted() ? ExecStatus.OK : ExecStatus.TIMEOUT;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = ExecStatus.FAILED;
+            output = "interrupted";
+        } catch (Exception e) {
+            logger.error("Ad-hoc command '{}' failed for session {}", request.getCommand(), entry.getUuid(), e);
+            status = ExecStatus.FAILED;
+            output = String.valueOf(e.getMessage());
+        }
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new ExecResult(entry.getUuid(), entry.getHost(), entry.getTelnetPort(), status, timestamp, latency, output);
+    }
+
+    /**
+     * Sends the results of one job to one client. Results stay in the job, so a slow
+     * client only delays its own stream and never misses anything. A client that stops
+     * reading altogether is dropped after the send timeout, see {@link EmitterSenders}.
+     */
+    private final class ResultStream implements Runnable {
+        private final ExecJob job;
+        private final SseEmitter emitter;
+        private final EmitterSenders.Stream stream;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Only touched by the thread that holds draining
+        private int sent;
+        private boolean finished;
+
+        private ResultStream(ExecJob job, SseEmitter emitter) {
+            this.job = job;
+            this.emitter = emitter;
+            this.stream = senders.stream(emitter, () -> job.removeListener(this));
+        }
+
+        // Called for every new result
+        @Override
+        public void run() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                if (finished) {
+                    return;
+                }
+                List<ExecResult> results;
+                while (!(results = job.results(sent, properties.getPageSize())).isEmpty()) {
+                    for (ExecResult result : results) {
+                        stream.send(SseEmitter.event().name("result").data(result));
+                    }
+                    sent += results.size();
+                }
+                if (sent == job.getTotal()) {
+                    finished = true;
+                    job.removeListener(this);
+                    stream.send(SseEmitter.event().name("done").data(job.toStatus(sent, 0)));
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Closing exec stream of job {}. Error: {}", job.getJobId(), e.getMessage());
+                finished = true;
+                job.removeListener(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!finished && job.results(sent, 1).size() > 0) {
+                run();
+            }
+        }
+    }
+}
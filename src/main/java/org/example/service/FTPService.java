@@ -1,224 +1,497 @@
 package org.example.service;
 
-import com.jcraft.jsch.Session;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.config.ConnectProperties;
 import org.example.config.SchedulerConfiguration;
+import org.example.config.SchedulerProperties;
+import org.example.config.ShutdownProperties;
 import org.example.dto.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
-public class FTPService {
+public class FTPService implements SmartLifecycle {
     private static final Logger logger = LogManager.getLogger(FTPService.class);
+    // Lower than the web server's phases, so requests stop before sessions are torn down
+    private static final int SHUTDOWN_PHASE = SmartLifecycle.DEFAULT_PHASE - 2048;
 
-    private ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(10);
-    private Runnable runnable;
-    private List<Callable<SessionInfo>> callableList = new ArrayList<>();
-    private List<Future<SessionInfo>> futures = new ArrayList<>();
+    private volatile GroupScheduler groupScheduler;
+    private final Map<UUID, ConnectJob> connectJobs = new ConcurrentHashMap<>();
 
     private final CustomFTPClient customFTPClient;
+    private final SessionConnector sessionConnector;
+    private final SessionSupervisor sessionSupervisor;
+    private final SessionRegistry sessionRegistry;
+    private final CommandResultBroadcaster commandResultBroadcaster;
+    private final ResultSinks resultSinks;
+    private final SchedulerProperties schedulerProperties;
+    private final ConnectProperties connectProperties;
+    private final ScriptRunner scriptRunner;
+    private final SessionTeardown sessionTeardown;
+    private final OutputChangeDetector outputChangeDetector;
+    private final SeriesStore seriesStore;
+    private final ShutdownProperties shutdownProperties;
+    private volatile boolean running;
 
     @Autowired
-    public FTPService(CustomFTPClient customFTPClient) {
+    public FTPService(CustomFTPClient customFTPClient, SessionConnector sessionConnector, SessionSupervisor sessionSupervisor,
+                      SessionRegistry sessionRegistry, CommandResultBroadcaster commandResultBroadcaster, ResultSinks resultSinks,
+                      SchedulerProperties schedulerProperties, ConnectProperties connectProperties,
+                      SessionTeardown sessionTeardown, ShutdownProperties shutdownProperties,
+                      OutputChangeDetector outputChangeDetector, SeriesStore seriesStore) {
         this.customFTPClient = customFTPClient;
+        this.sessionConnector = sessionConnector;
+        this.sessionSupervisor = sessionSupervisor;
+        this.sessionRegistry = sessionRegistry;
+        this.commandResultBroadcaster = commandResultBroadcaster;
+        this.resultSinks = resultSinks;
+        this.schedulerProperties = schedulerProperties;
+        this.connectProperties = connectProperties;
+        this.sessionTeardown = sessionTeardown;
+        this.shutdownProperties = shutdownProperties;
+        this.outputChangeDetector = outputChangeDetector;
+        this.seriesStore = seriesStore;
+        this.groupScheduler = new GroupScheduler(schedulerProperties, this::runTick);
+        this.scriptRunner = new ScriptRunner(customFTPClient, schedulerProperties.getPipelineDepth());
     }
 
-    public List<SshResponse> connectSSH(SessionDto sessionDto) throws InterruptedException, ExecutionException {
-        addCallableList(sessionDto);
-        futures = scheduledExecutorService.invokeAll(callableList);
-        initializeTelnet();
-        return addSshResponseList();
+    /**
+     * Registers the sessions and connects them in the background.
+     *
+     * @return The job to poll with {@link #connectStatus(UUID)}.
+     * @throws IllegalArgumentException If a session has neither a command nor a valid script.
+     */
+    public ConnectJobStatus connectSSH(SessionDto sessionDto) {
+        return connectSSH(sessionDto.toTargets());
     }
 
-    public List<SshResponse> addSSH(SessionDto sessionDto) throws InterruptedException, ExecutionException {
-        addCallableList(sessionDto);
+    /**
+     * Registers the targets and connects them in the background, like {@link #connectSSH(SessionDto)}.
+     *
+     * @throws IllegalArgumentException If a target has no host or neither a command nor a valid script.
+     */
+    public ConnectJobStatus connectSSH(List<SessionTarget> targets) {
+        ConnectJob job = new ConnectJob(new ArrayList<>(connectSessions(targets).keySet()));
+        long expired = System.currentTimeMillis() - connectProperties.getJobRetention();
+        connectJobs.values().removeIf(old -> old.getCreatedAt() < expired && old.isDone());
+        connectJobs.put(job.getJobId(), job);
+        return job.toStatus();
+    }
+
+    public ConnectJobStatus connectStatus(UUID jobId) {
+        ConnectJob job = connectJobs.get(jobId);
+        return job == null ? null : job.toStatus();
+    }
+
+    public List<SshResponse> addSSH(SessionDto sessionDto) {
+        return addSSH(sessionDto.toTargets());
+    }
+
+    /**
+     * Registers the targets and waits until each is connected or has failed.
+     *
+     * @return One response per target, in order.
+     */
+    public List<SshResponse> addSSH(List<SessionTarget> targets) {
+        Map<SessionEntry, CompletableFuture<SessionState>> results = connectSessions(targets);
+        CompletableFuture.allOf(results.values().toArray(CompletableFuture[]::new)).join();
         List<SshResponse> sshResponse = new ArrayList<>();
-        int size = callableList.size();
-        for (int i = 0; i < sessionDto.getUserName().size(); i++) {
-            Future<SessionInfo> submit = scheduledExecutorService.submit(callableList.get(size - i - 1));
-            sshResponse.add(new SshResponse(submit.get().getSession().getHost(),
-                    submit.get().getTelnetPort(),
-                    submit.get().getIsConnect()));
-            futures.add(submit);
-        }
-        initializeTelnet();
+        results.keySet().forEach(entry -> sshResponse.add(new SshResponse(entry.getHost(), entry.getTelnetPort(), entry.isConnected())));
         return sshResponse;
     }
 
-    private void initializeTelnet() {
-        if (futures.isEmpty()) return;
-        runnable = () -> {
-            for (Future<SessionInfo> obj : futures) {
-                try {
-                    TelnetStream telnetStream = obj.get().getTelnetStream();
-                    DataOutputStream outputStream = telnetStream.getOutputStream();
-                    InputStream inputStream = telnetStream.getInputStream();
-                    if (!obj.get().getSession().isConnected() || !obj.get().getIsConnect()) {
-                        System.out.println("connection not open");
-                        futures.remove(obj);
-                        return;
-                    }
-                    final String command = obj.get().getCommand();
-                    String waitFor = obj.get().getWaitFor();
-
-                    String outString = customFTPClient.runCommand(outputStream, inputStream, command, waitFor);
-                    logger.info("Executed command '{}' on remote session. Response: {}", command, outString);
-
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
+    private Map<SessionEntry, CompletableFuture<SessionState>> connectSessions(List<SessionTarget> targets) {
+        targets.forEach(FTPService::validate);
+        ensureScheduler();
+        Map<SessionEntry, CompletableFuture<SessionState>> results = new LinkedHashMap<>();
+        for (SessionTarget target : targets) {
+            SessionEntry entry = new SessionEntry(UUID.randomUUID(), target);
+            sessionRegistry.register(entry);
+            results.put(entry, connectSession(entry));
+        }
+        return results;
+    }
+
+    /**
+     * Registers a single target and connects it in the background, like one entry of
+     * {@link #connectSSH(SessionDto)}. The target must have passed {@link #validate(SessionTarget)}.
+     *
+     * @return The outcome of the connect.
+     */
+    public CompletableFuture<SessionState> connectTarget(SessionTarget target) {
+        ensureScheduler();
+        SessionEntry entry = new SessionEntry(UUID.randomUUID(), target);
+        sessionRegistry.register(entry);
+        return connectSession(entry);
+    }
+
+    /**
+     * Checks a target before it is registered.
+     *
+     * @throws IllegalArgumentException If the host is missing or the target has neither a command nor a valid script.
+     */
+    public static void validate(SessionTarget target) {
+        if (StringUtils.isBlank(target.getHost())) {
+            throw new IllegalArgumentException("host is required");
+        }
+        if (target.getSteps() != null && !target.getSteps().isEmpty()) {
+            ScriptRunner.validate(target.getSteps());
+        } else if (StringUtils.isBlank(target.getCommand())) {
+            throw new IllegalArgumentException("Session " + target.getHost() + ":" + target.getTelnetPort() + " has neither a command nor a script");
+        }
+    }
+
+    /**
+     * Registers a session from a snapshot under its old UUID without connecting it.
+     *
+     * @return The entry to pass to {@link #connectRestored(SessionEntry)}, or null if the UUID is taken.
+     */
+    public SessionEntry restoreSession(UUID uuid, SessionTarget target) {
+        ensureScheduler();
+        SessionEntry entry = new SessionEntry(uuid, target);
+        return sessionRegistry.registerIfAbsent(entry) ? entry : null;
+    }
+
+    /**
+     * Connects a restored session, unless it was removed while waiting for its turn.
+     */
+    public CompletableFuture<SessionState> connectRestored(SessionEntry entry) {
+        if (sessionRegistry.get(entry.getUuid()) != entry || entry.getState() != SessionState.CONNECTING) {
+            return CompletableFuture.completedFuture(entry.getState());
+        }
+        return connectSession(entry);
+    }
+
+    /**
+     * Configures a schedule group from a snapshot, pausing or resuming it to match.
+     */
+    public void applyGroup(GroupSnapshot group) {
+        ensureScheduler();
+        boolean paused = groupScheduler.list().stream()
+                .anyMatch(info -> info.getName().equals(group.getName()) && info.isPaused());
+        groupScheduler.configure(group.getName(), group.getInitialDelay(), group.getInterval(), group.getJitter());
+        if (group.isPaused() && !paused) {
+            groupScheduler.pause(group.getName());
+        } else if (!group.isPaused() && paused) {
+            groupScheduler.resume(group.getName());
+        }
+    }
+
+    /**
+     * @return The configured schedule groups, sorted by name.
+     */
+    public List<GroupSnapshot> snapshotGroups() {
+        List<GroupSnapshot> groups = new ArrayList<>();
+        for (ScheduleGroupInfo info : groupScheduler.list()) {
+            if (info.isConfigured()) {
+                groups.add(new GroupSnapshot(info.getName(), info.getInitialDelay(), info.getInterval(), info.getJitter(), info.isPaused()));
+            }
+        }
+        groups.sort(Comparator.comparing(GroupSnapshot::getName));
+        return groups;
+    }
+
+    private void ensureScheduler() {
+        if (groupScheduler.isShutdown()) {
+            synchronized (this) {
+                if (groupScheduler.isShutdown()) {
+                    groupScheduler = new GroupScheduler(schedulerProperties, this::runTick);
                 }
             }
-        };
+        }
+    }
+
+    // Failed sessions are scheduled too, their ticks start once the supervisor reconnects them
+    private CompletableFuture<SessionState> connectSession(SessionEntry entry) {
+        return sessionConnector.connect(entry).whenComplete((state, e) -> {
+            if (state != SessionState.CLOSED) {
+                scheduleSession(entry.getUuid());
+            }
+        });
+    }
+
+    /**
+     * Runs one tick of a single session without a deadline.
+     * Package-private so the benchmarks can drive it without a scheduler.
+     */
+    void runTick(UUID uuid) {
+        runTick(uuid, 0);
+    }
+
+    /**
+     * Runs one tick of a single session. A slow or dead host only holds up its own
+     * task, and a failing tick is logged instead of cancelling the schedule. Sessions
+     * that are down stay scheduled and skip their ticks until they are reconnected.
+     *
+     * @param budgetMillis Time left until the tick's deadline, caps the command timeout. 0 means none.
+     */
+    void runTick(UUID uuid, long budgetMillis) {
+        try {
+            SessionEntry entry = sessionRegistry.get(uuid);
+            if (entry == null || entry.getState() == SessionState.CLOSED) {
+                unscheduleSession(uuid);
+                return;
+            }
+            if (!entry.isConnected()) {
+                return;
+            }
+            SessionInfo sessionInfo = entry.getSessionInfo();
+            if (!sessionInfo.getSession().isConnected() || sessionInfo.getTelnetStream().getChannel().isClosed()) {
+                sessionSupervisor.markDead(entry, "connection not open at tick");
+                return;
+            }
+            final String command = sessionInfo.getCommand();
+            String waitFor = sessionInfo.getWaitFor();
+
+            long timeout = sessionInfo.getTimeout() > 0 ? sessionInfo.getTimeout() : CustomFTPClient.COMMAND_TIMEOUT;
+            if (budgetMillis > 0) {
+                timeout = Math.min(timeout, budgetMillis);
+            }
+            ReentrantLock lock = entry.getExchangeLock();
+            long waitStart = System.nanoTime();
+            // Probes and ad-hoc commands hold it, for at most their own timeout
+            if (!lock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+                logger.warn("Session {} is busy, skipping this tick", uuid);
+                return;
+            }
+            // The wait counts against the tick, so it still ends by its deadline
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+            List<CommandStep> steps = entry.getTarget().getSteps();
+            if (steps != null && !steps.isEmpty()) {
+                long remaining = budgetMillis > 0 ? Math.max(1, budgetMillis - waited) : 0;
+                runScript(entry, sessionInfo, steps, timeout, remaining);
+                return;
+            }
+            long timestamp = System.currentTimeMillis();
+            long start = System.nanoTime();
+            String outString;
+            try {
+                outString = customFTPClient.runCommand(sessionInfo.getTelnetStream(), command, waitFor, Math.max(1, timeout - waited));
+            } finally {
+                lock.unlock();
+            }
+            if (!outString.isEmpty()) {
+                entry.touch();
+            }
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            emit(sessionInfo, uuid, command, command, timestamp, latency, outString);
+        } catch (Exception e) {
+            logger.error("Scheduled command failed for session {}", uuid, e);
+        }
+    }
+
+    // Called with the exchange lock held, releases it once the script is done
+    private void runScript(SessionEntry entry, SessionInfo sessionInfo, List<CommandStep> steps, long timeout, long budgetMillis) {
+        List<ScriptRunner.StepResult> stepResults;
+        try {
+            stepResults = scriptRunner.run(sessionInfo.getTelnetStream(), steps, entry.getTarget().isPipelined(),
+                    sessionInfo.getWaitFor(), timeout, budgetMillis);
+        } finally {
+            entry.getExchangeLock().unlock();
+        }
+        for (ScriptRunner.StepResult step : stepResults) {
+            String outString = step.getReply().getOutput();
+            if (!outString.isEmpty()) {
+                entry.touch();
+            }
+            // Keyed by position, the command itself may change with captured variables
+            emit(sessionInfo, entry.getUuid(), "step " + step.getIndex(), step.getCommand(), step.getTimestamp(),
+                    step.getLatency(), outString);
+        }
+        if (stepResults.size() < steps.size()) {
+            logger.debug("Script of session {} ran {} of {} steps", entry.getUuid(), stepResults.size(), steps.size());
+        }
+    }
+
+    /**
+     * Extracts the metrics of a result, then streams it and hands it to the result
+     * sinks unless its output is the same as last time.
+     *
+     * @param key Identifies the command within the session for change detection.
+     */
+    private void emit(SessionInfo sessionInfo, UUID uuid, String key, String command, long timestamp, long latency, String outString) {
+        seriesStore.record(uuid, command, timestamp, outString);
+        OutputChangeDetector.Change change = outputChangeDetector.detect(uuid, key, outString, sessionInfo.getTelnetStream().getMetrics());
+        if (change.isUnchanged()) {
+            logger.debug("Output of '{}' on session {} unchanged", command, uuid);
+            return;
+        }
+        CommandResult result = new CommandResult(uuid, sessionInfo.getIp(), sessionInfo.getTelnetPort(), command, timestamp,
+                latency, change.getOutput(), change.getKind() == OutputChangeDetector.Kind.DIFF);
+        commandResultBroadcaster.publish(result);
+        resultSinks.publish(result);
+    }
+
+    // Sessions wait in their group until it is configured, then tick at its interval
+    private void scheduleSession(UUID uuid) {
+        SessionEntry entry = sessionRegistry.get(uuid);
+        if (entry == null || groupScheduler.isShutdown()) return;
+        groupScheduler.schedule(uuid, entry.getGroup(), entry.getTarget().getPriority());
+    }
+
+    private void unscheduleSession(UUID uuid) {
+        groupScheduler.unschedule(uuid);
     }
 
     public String configureScheduler(SchedulerConfiguration schedulerConfiguration) {
         if (schedulerConfiguration.getDelay() < 20) {
             return "delay cannot be less than 20 seconds";
         }
-        scheduledExecutorService.scheduleWithFixedDelay(runnable, schedulerConfiguration.getInitialDelay(), schedulerConfiguration.getDelay(), schedulerConfiguration.getTimeUnit());
+        String group = StringUtils.isBlank(schedulerConfiguration.getGroup()) ? GroupScheduler.DEFAULT_GROUP : schedulerConfiguration.getGroup();
+        TimeUnit timeUnit = schedulerConfiguration.getTimeUnit() == null ? TimeUnit.SECONDS : schedulerConfiguration.getTimeUnit();
+        // Reconfiguring a group changes its timing instead of stacking another loop
+        groupScheduler.configure(group, timeUnit.toMillis(schedulerConfiguration.getInitialDelay()),
+                timeUnit.toMillis(schedulerConfiguration.getDelay()), timeUnit.toMillis(schedulerConfiguration.getJitter()));
         return "Scheduler is up and running...";
     }
 
+    public List<ScheduleGroupInfo> listGroups() {
+        return groupScheduler.list();
+    }
+
+    /**
+     * @return False if there is no such group.
+     */
+    public boolean pauseGroup(String group) {
+        return groupScheduler.pause(group);
+    }
+
+    /**
+     * @return False if there is no such group.
+     */
+    public boolean resumeGroup(String group) {
+        return groupScheduler.resume(group);
+    }
+
+    /**
+     * Changes how often the sessions of a group tick, using the delay, jitter and time unit of the configuration.
+     *
+     * @return A message for the caller, or null if there is no such group.
+     */
+    public String resizeGroup(String group, SchedulerConfiguration schedulerConfiguration) {
+        if (schedulerConfiguration.getDelay() < 20) {
+            return "delay cannot be less than 20 seconds";
+        }
+        TimeUnit timeUnit = schedulerConfiguration.getTimeUnit() == null ? TimeUnit.SECONDS : schedulerConfiguration.getTimeUnit();
+        boolean resized = groupScheduler.resize(group, timeUnit.toMillis(schedulerConfiguration.getDelay()), timeUnit.toMillis(schedulerConfiguration.getJitter()));
+        return resized ? "Group " + group + " resized" : null;
+    }
+
     public List<SchedulerInfo> listSchedulers() {
         List<SchedulerInfo> schedulerInfoList = new ArrayList<>();
-        futures.forEach(sessionInfoFuture -> {
-            try {
-                int telnetPort = sessionInfoFuture.get().getTelnetPort();
-                String host = sessionInfoFuture.get().getIp();
-                schedulerInfoList.add(new SchedulerInfo(host, telnetPort, sessionInfoFuture.get().getUuid(), sessionInfoFuture.get().getSession().isConnected()));
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        sessionRegistry.snapshot().forEach(entry -> schedulerInfoList.add(entry.toSchedulerInfo()));
         return schedulerInfoList;
     }
 
     public String removeScheduler(SessionRemoveDto sessionDto) {
         StringBuilder message = new StringBuilder();
-        for (Future<SessionInfo> sessionInfoFuture : futures) {
+        List<SessionEntry> connected = new ArrayList<>();
+        for (String sessionId : sessionDto.getSessionId()) {
+            UUID uuid;
             try {
-                UUID uuid = sessionInfoFuture.get().getUuid();
-                for (String sessionId : sessionDto.getSessionId()) {
-                    if (uuid.toString().equals(sessionId)) {
-                        message.append("removed : ")
-                                .append(sessionInfoFuture.get().getIp())
-                                .append(" : ")
-                                .append(sessionInfoFuture.get().getTelnetPort())
-                                .append("\n");
-
-                        disconnectSession(sessionInfoFuture);
-                        futures.remove(sessionInfoFuture);
-                        logger.info("Removed session with IP {} and Telnet port {}", sessionInfoFuture.get().getIp(), sessionInfoFuture.get().getTelnetPort());
-                        break;
-                    }
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+                uuid = UUID.fromString(sessionId);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring invalid session id {}", sessionId);
+                continue;
             }
-            if (futures.isEmpty()) {
-                break;
+            SessionEntry entry = sessionRegistry.remove(uuid);
+            if (entry == null) {
+                continue;
             }
+            unscheduleSession(uuid);
+            outputChangeDetector.forget(uuid);
+            seriesStore.forget(uuid);
+            if (entry.close() == SessionState.CONNECTED) {
+                connected.add(entry);
+            }
+            message.append("removed : ")
+                    .append(entry.getHost())
+                    .append(" : ")
+                    .append(entry.getTelnetPort())
+                    .append("\n");
+            logger.info("Removed session with IP {} and Telnet port {}", entry.getHost(), entry.getTelnetPort());
         }
-        initializeTelnet();
+        sessionTeardown.disconnect(connected, shutdownProperties.getTimeout());
         return message.toString();
     }
 
     public String stopScheduler() {
-        for (Future<SessionInfo> obj : futures) {
-            try {
-                disconnectSession(obj);
-            } catch (Exception e) {
-                logger.error("Error while disconnecting", e);
-                return e.getMessage();
-            }
-        }
-        if (!scheduledExecutorService.isShutdown()) {
-            scheduledExecutorService.shutdown();
-        }
+        shutdown(shutdownProperties.getTimeout());
         clearSchedulers();
         return "Scheduler stopped \nConnection closed by foreign host.";
     }
 
     public String clearSchedulers() {
-        if (!scheduledExecutorService.isShutdown()) {
+        if (!groupScheduler.isShutdown()) {
             return "This cannot be done while the schedule is running.";
         }
-        runnable = null;
-        callableList = new ArrayList<>();
-        futures = new ArrayList<>();
+        sessionRegistry.clear();
+        outputChangeDetector.clear();
+        seriesStore.clear();
         return "OK";
     }
 
-    private List<SshResponse> addSshResponseList() {
-        List<SshResponse> sshResponse = new ArrayList<>();
-        futures.forEach(sessionFuture -> {
-            try {
-                sshResponse.add(new SshResponse(sessionFuture.get().getSession().getHost(), sessionFuture.get().getTelnetPort(), sessionFuture.get().getIsConnect()));
-            } catch (Exception e) {
-                logger.error("Error while adding ssh response", e);
-                throw new RuntimeException(e);
+    /**
+     * Stops scheduling, gives running ticks part of the timeout to finish and then
+     * disconnects every session in parallel within what is left of it.
+     */
+    private void shutdown(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        GroupScheduler scheduler = groupScheduler;
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(Math.min(shutdownProperties.getDrainTimeout(), timeoutMillis))) {
+                logger.warn("Ticks still running after {} ms, tearing down sessions anyway", shutdownProperties.getDrainTimeout());
             }
-        });
-        return sshResponse;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<SessionEntry> connected = new ArrayList<>();
+        for (SessionEntry entry : sessionRegistry.snapshot()) {
+            if (entry.close() == SessionState.CONNECTED) {
+                connected.add(entry);
+            }
+        }
+        long remaining = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        int forced = sessionTeardown.disconnect(connected, remaining);
+        logger.info("Disconnected {} sessions, {} of them forcibly", connected.size(), forced);
     }
 
-    private void addCallableList(SessionDto sessionDto) {
-        for (int i = 0; i < sessionDto.getUserName().size(); i++) {
-            int finalI = i;
-            callableList.add(() -> {
-                // SSH
-                String userName = sessionDto.getUserName().get(finalI);
-                String password = sessionDto.getPassword().get(finalI);
-                String host = sessionDto.getHost().get(finalI);
-                String command = sessionDto.getCommands().get(finalI);
-                String waitFor = sessionDto.getWaitFors().get(finalI);
-
-                int port = 22;
-                if (sessionDto.getPort() != null) {
-                    port = sessionDto.getPort().get(finalI);
-                }
-                Optional<Session> session = customFTPClient.connectionSession(userName, password, host, port);
+    @Override
+    public void start() {
+        running = true;
+    }
 
-                if (session.isEmpty()) {
-                    throw new RuntimeException("Failed to establish SSH session for user: " + userName + " on host: " + host);
-                }
+    /**
+     * Called when the application context closes, after the web server stopped taking
+     * requests and before the beans the teardown needs are destroyed.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        logger.info("Shutting down, draining running ticks and disconnecting sessions");
+        shutdown(shutdownProperties.getTimeout());
+    }
 
-                // Telnet
-                int telnetPort = sessionDto.getTelnetPort().get(finalI);
-                TelnetStream telnetStream = customFTPClient.connectionTelnet(session.get(), host, telnetPort);
-                boolean connect = telnetStream.getIsConnect();
-                return new SessionInfo(session.get(), host, telnetPort, telnetStream, UUID.randomUUID(), connect, command, waitFor);
-            });
-        }
-        if (scheduledExecutorService.isShutdown()) {
-            scheduledExecutorService = Executors.newScheduledThreadPool(10);
-        }
+    @Override
+    public boolean isRunning() {
+        return running;
     }
 
-    private void disconnectSession(Future<SessionInfo> obj) throws InterruptedException, ExecutionException, IOException {
-        TelnetStream telnetStream = obj.get().getTelnetStream();
-        DataOutputStream outputStream = telnetStream.getOutputStream();
-        InputStream inputStream = telnetStream.getInputStream();
-        Session session = obj.get().getSession();
-        if (!session.isConnected()) return;
-        customFTPClient.runCommand(outputStream, inputStream, "q", "closed by foreign host.");
-        telnetStream.getOutputStream().close();
-        telnetStream.getInputStream().close();
-        telnetStream.getChannel().disconnect();
-        if (session.isConnected()) {
-            session.disconnect();
-        }
+    @Override
+    public int getPhase() {
+        return SHUTDOWN_PHASE;
     }
 }
-
-
@@ -0,0 +1,335 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.SchedulerProperties;
+import org.example.dto.ScheduleGroupInfo;
+import org.example.dto.SessionPriority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs sessions periodically in named groups, each with its own interval, jitter and
+ * initial delay.
+ * <p>
+ * Every session has at most one pending timer on a shared {@link TimingWheel}. When it
+ * expires the tick runs on the worker pool and the next timer is armed once the tick
+ * finishes, so ticks of one session never overlap. The task state carries a generation
+ * that every arm advances, so a timer that was cancelled after the wheel already handed
+ * it to a worker is recognised as stale and does nothing.
+ * <p>
+ * Ticks are due at a fixed rate: the next one is due one interval after the previous
+ * was due, not after it finished, so slow runs do not make the schedule drift. Slots
+ * that passed while a run was still going are skipped rather than run back to back.
+ * Each run must be done by the time the next one is due; a run that could not even
+ * start before then is dropped, and low priority sessions are shed while the workers
+ * are behind by more than {@code scheduler.shed-lag}.
+ */
+public class GroupScheduler {
+
+    private static final Logger logger = LogManager.getLogger(GroupScheduler.class);
+
+    public static final String DEFAULT_GROUP = "default";
+
+    // Low two bits of a task's state, the rest is the generation
+    private static final long IDLE = 0;
+    private static final long ARMED = 1;
+    private static final long RUNNING = 2;
+    private static final long PHASE_MASK = 3;
+    private static final long GENERATION = 4;
+
+    /**
+     * One tick of a session.
+     */
+    public interface Tick {
+        /**
+         * @param uuid         The session to run.
+         * @param budgetMillis Time left until the run's deadline.
+         */
+        void run(UUID uuid, long budgetMillis);
+    }
+
+    private final Tick tick;
+    private final long shedLagNanos;
+    private final ExecutorService workers;
+    private final TimingWheel wheel;
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+    private final Map<UUID, Task> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * @param properties Pool size, wheel resolution and shedding threshold.
+     * @param tick       Runs one tick of the given session.
+     */
+    public GroupScheduler(SchedulerProperties properties, Tick tick) {
+        this.tick = tick;
+        this.shedLagNanos = TimeUnit.MILLISECONDS.toNanos(properties.getShedLag());
+        this.workers = Executors.newFixedThreadPool(properties.getPoolSize());
+        this.wheel = new TimingWheel(properties.getTickDuration(), properties.getWheelSize(), workers, "scheduler-wheel");
+    }
+
+    /**
+     * Creates or updates a group and starts every session assigned to it. Pending ticks
+     * are re-armed with the new timing, running ones use it for their next tick.
+     */
+    public void configure(String name, long initialDelayMillis, long intervalMillis, long jitterMillis) {
+        Group group = groups.computeIfAbsent(name, Group::new);
+        group.initialDelay = initialDelayMillis;
+        group.interval = intervalMillis;
+        group.jitter = jitterMillis;
+        group.configured = true;
+        long base = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelayMillis);
+        group.members.forEach(uuid -> {
+            Task task = tasks.get(uuid);
+            disarm(task);
+            arm(task, base);
+        });
+    }
+
+    /**
+     * Assigns a session to a group, moving it out of its previous one.
+     */
+    public void schedule(UUID uuid, String groupName, SessionPriority priority) {
+        Group group = groups.computeIfAbsent(groupName, Group::new);
+        SessionPriority effective = priority == null ? SessionPriority.NORMAL : priority;
+        Task task = tasks.compute(uuid, (key, existing) -> {
+            if (existing != null && (existing.group != group || existing.priority != effective)) {
+                cancel(existing);
+                existing = null;
+            }
+            return existing == null ? new Task(uuid, group, effective) : existing;
+        });
+        group.members.add(uuid);
+        if (group.configured) {
+            arm(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(group.initialDelay));
+        }
+    }
+
+    public void unschedule(UUID uuid) {
+        Task task = tasks.remove(uuid);
+        if (task != null) {
+            cancel(task);
+        }
+    }
+
+    /**
+     * @return False if there is no such group.
+     */
+    public boolean pause(String name) {
+        Group group = groups.get(name);
+        if (group == null) {
+            return false;
+        }
+        group.paused = true;
+        group.members.forEach(uuid -> disarm(tasks.get(uuid)));
+        logger.info("Paused schedule group {}", name);
+        return true;
+    }
+
+    /**
+     * @return False if there is no such group.
+     */
+    public boolean resume(String name) {
+        Group group = groups.get(name);
+        if (group == null) {
+            return false;
+        }
+        group.paused = false;
+        long base = System.nanoTime();
+        group.members.forEach(uuid -> arm(tasks.get(uuid), base));
+        logger.info("Resumed schedule group {}", name);
+        return true;
+    }
+
+    /**
+     * Changes the interval and jitter of a group. Pending ticks are re-armed with the
+     * new interval, running ones use it for their next tick.
+     *
+     * @return False if there is no such group.
+     */
+    public boolean resize(String name, long intervalMillis, long jitterMillis) {
+        Group group = groups.get(name);
+        if (group == null) {
+            return false;
+        }
+        group.interval = intervalMillis;
+        group.jitter = jitterMillis;
+        long base = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        group.members.forEach(uuid -> {
+            Task task = tasks.get(uuid);
+            if (disarm(task)) {
+                arm(task, base);
+            }
+        });
+        logger.info("Schedule group {} now runs every {} ms with {} ms jitter", name, intervalMillis, jitterMillis);
+        return true;
+    }
+
+    public List<ScheduleGroupInfo> list() {
+        List<ScheduleGroupInfo> infos = new ArrayList<>();
+        groups.values().forEach(group -> infos.add(new ScheduleGroupInfo(group.name, group.initialDelay, group.interval,
+                group.jitter, group.configured, group.paused, group.members.size(), group.runs.sum(), group.skipped.sum(),
+                group.expired.sum(), group.shed.sum(), group.failed.sum(), group.lag.toSummary())));
+        return infos;
+    }
+
+    public boolean isShutdown() {
+        return workers.isShutdown();
+    }
+
+    /**
+     * Stops the wheel and the workers. Ticks already running are allowed to finish.
+     */
+    public void shutdown() {
+        wheel.stop();
+        workers.shutdown();
+        tasks.values().forEach(this::cancel);
+        tasks.clear();
+        groups.clear();
+    }
+
+    /**
+     * Waits for ticks that were still running when {@link #shutdown()} was called.
+     *
+     * @return True if they all finished in time.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        return workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param base When the tick is due before jitter, in {@link System#nanoTime()} terms.
+     */
+    private void arm(Task task, long base) {
+        if (task == null || task.cancelled || !task.group.configured || task.group.paused) {
+            return;
+        }
+        long current = task.state.get();
+        if ((current & PHASE_MASK) != IDLE) {
+            return;
+        }
+        long armed = (current & ~PHASE_MASK) + GENERATION | ARMED;
+        if (!task.state.compareAndSet(current, armed)) {
+            return;
+        }
+        long jitter = task.group.jitter;
+        task.base = base;
+        task.due = jitter > 0 ? base + TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(jitter + 1)) : base;
+        long delay = TimeUnit.NANOSECONDS.toMillis(task.due - System.nanoTime());
+        task.timeout = wheel.schedule(() -> task.fire(armed), delay);
+    }
+
+    private boolean disarm(Task task) {
+        if (task == null) {
+            return false;
+        }
+        long current = task.state.get();
+        if ((current & PHASE_MASK) != ARMED || !task.state.compareAndSet(current, current & ~PHASE_MASK | IDLE)) {
+            return false;
+        }
+        TimingWheel.Timeout timeout = task.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        return true;
+    }
+
+    private void cancel(Task task) {
+        task.cancelled = true;
+        task.group.members.remove(task.uuid);
+        disarm(task);
+    }
+
+    private final class Task {
+        private final UUID uuid;
+        private final Group group;
+        private final SessionPriority priority;
+        private final AtomicLong state = new AtomicLong(IDLE);
+        private volatile TimingWheel.Timeout timeout;
+        private volatile boolean cancelled;
+        // Written by arm before the timer is scheduled, read by the worker that fires it
+        private volatile long base;
+        private volatile long due;
+
+        private Task(UUID uuid, Group group, SessionPriority priority) {
+            this.uuid = uuid;
+            this.group = group;
+            this.priority = priority;
+        }
+
+        private void fire(long armed) {
+            if (!state.compareAndSet(armed, armed & ~PHASE_MASK | RUNNING)) {
+                return;
+            }
+            long intervalNanos = TimeUnit.MILLISECONDS.toNanos(group.interval);
+            long slot = base;
+            long deadline = slot + intervalNanos;
+            try {
+                if (cancelled || group.paused) {
+                    return;
+                }
+                long start = System.nanoTime();
+                long lag = start - due;
+                group.lag.record(TimeUnit.NANOSECONDS.toMicros(lag));
+                if (start >= deadline) {
+                    group.expired.increment();
+                } else if (priority == SessionPriority.LOW && shedLagNanos > 0 && lag > shedLagNanos) {
+                    group.shed.increment();
+                } else {
+                    group.runs.increment();
+                    tick.run(uuid, Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - start)));
+                }
+            } catch (Throwable e) {
+                group.failed.increment();
+                logger.error("Tick of session {} failed, it stays scheduled", uuid, e);
+            } finally {
+                state.set(armed & ~PHASE_MASK | IDLE);
+                // Read again, the group may have been resized while this tick ran
+                long nextIntervalNanos = TimeUnit.MILLISECONDS.toNanos(group.interval);
+                arm(this, nextBase(slot + nextIntervalNanos, nextIntervalNanos));
+            }
+        }
+
+        private long nextBase(long next, long intervalNanos) {
+            long now = System.nanoTime();
+            if (next > now || intervalNanos <= 0) {
+                return next;
+            }
+            // The run overran one or more slots, coalesce them into the next one ahead
+            long missed = (now - next) / intervalNanos + 1;
+            group.skipped.add(missed);
+            return next + missed * intervalNanos;
+        }
+    }
+
+    private static final class Group {
+        private final String name;
+        private final Set<UUID> members = ConcurrentHashMap.newKeySet();
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder expired = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LatencyHistogram lag = new LatencyHistogram();
+        private volatile long initialDelay;
+        private volatile long interval;
+        private volatile long jitter;
+        private volatile boolean configured;
+        private volatile boolean paused;
+
+        private Group(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Consistent hash ring that maps keys to cluster nodes.
+ * <p>
+ * Every node is placed on the ring at a number of virtual points and a key belongs to
+ * the first point at or after its hash. When a node joins it only takes over the keys
+ * between its points and their predecessors, and when it leaves only its own keys move,
+ * so about 1/n of the sessions change owner. The ring is immutable; a membership change
+ * builds a new one.
+ */
+public class HashRing {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<String> nodes;
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * @param nodes         Node names, duplicates are ignored.
+     * @param virtualNodes  Points per node.
+     */
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = new ArrayList<>(new TreeSet<>(nodes));
+        int perNode = Math.max(1, virtualNodes);
+        long[] hashes = new long[this.nodes.size() * perNode];
+        int[] nodeIndexes = new int[hashes.length];
+        Integer[] order = new Integer[hashes.length];
+        for (int node = 0; node < this.nodes.size(); node++) {
+            for (int i = 0; i < perNode; i++) {
+                int slot = node * perNode + i;
+                hashes[slot] = hash(this.nodes.get(node) + "#" + i);
+                nodeIndexes[slot] = node;
+                order[slot] = slot;
+            }
+        }
+        // Ties are broken by node name, so every node builds the same ring
+        Arrays.sort(order, (a, b) -> hashes[a] != hashes[b] ? Long.compare(hashes[a], hashes[b])
+                : this.nodes.get(nodeIndexes[a]).compareTo(this.nodes.get(nodeIndexes[b])));
+        this.points = new long[hashes.length];
+        this.owners = new int[hashes.length];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = nodeIndexes[order[i]];
+        }
+    }
+
+    /**
+     * @return The node that owns the key, or null if the ring has no nodes.
+     */
+    public String owner(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // Several points may share the hash, the first of them owns it
+            while (index > 0 && points[index - 1] == points[index]) {
+                index--;
+            }
+        }
+        return nodes.get(owners[index == points.length ? 0 : index]);
+    }
+
+    /**
+     * @return The nodes on the ring, sorted.
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    // FNV-1a with a final mix, plain FNV clusters similar strings such as "node#1" and "node#2"
+    static long hash(String key) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.SupervisorProperties;
+import org.example.dto.BreakerState;
+import org.example.dto.CircuitBreakerInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link CircuitBreaker} per host, so a flapping host stops using up connect
+ * threads while the rest of the fleet keeps connecting.
+ */
+@Component
+public class HostCircuitBreakers {
+
+    private static final Logger logger = LogManager.getLogger(HostCircuitBreakers.class);
+
+    private final SupervisorProperties properties;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HostCircuitBreakers(SupervisorProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean tryAcquire(String host) {
+        return breakerFor(host).tryAcquire(System.currentTimeMillis());
+    }
+
+    public void onSuccess(String host) {
+        CircuitBreaker breaker = breakerFor(host);
+        if (breaker.getState() != BreakerState.CLOSED) {
+            logger.info("Circuit breaker for {} closed", host);
+        }
+        breaker.onSuccess();
+    }
+
+    public void onFailure(String host) {
+        CircuitBreaker breaker = breakerFor(host);
+        breaker.onFailure(System.currentTimeMillis());
+        if (breaker.getState() == BreakerState.OPEN) {
+            logger.warn("Circuit breaker for {} is open, connects are rejected for now", host);
+        }
+    }
+
+    public List<CircuitBreakerInfo> snapshot() {
+        List<CircuitBreakerInfo> infos = new ArrayList<>();
+        breakers.values().forEach(breaker -> infos.add(breaker.toInfo()));
+        return infos;
+    }
+
+    private CircuitBreaker breakerFor(String host) {
+        return breakers.computeIfAbsent(host, key -> new CircuitBreaker(key, properties.getBreakerFailureThreshold(),
+                properties.getBreakerOpenDuration(), properties.getBreakerMaxOpenDuration()));
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and counters of one host. Every sample is also recorded in the
+ * parent, which holds the totals over all hosts.
+ */
+public class HostMetrics {
+
+    private final String host;
+    private final HostMetrics parent;
+    private final LatencyHistogram sshConnect = new LatencyHistogram();
+    private final LatencyHistogram telnetHandshake = new LatencyHistogram();
+    private final LatencyHistogram commandRoundTrip = new LatencyHistogram();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failedConnects = new LongAdder();
+    private final LongAdder resultsEmitted = new LongAdder();
+    private final LongAdder resultsDiffed = new LongAdder();
+    private final LongAdder resultsSuppressed = new LongAdder();
+
+    public HostMetrics(String host, HostMetrics parent) {
+        this.host = host;
+        this.parent = parent;
+    }
+
+    public void recordSshConnect(long nanos) {
+        sshConnect.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (parent != null) parent.recordSshConnect(nanos);
+    }
+
+    public void recordTelnetHandshake(long nanos) {
+        telnetHandshake.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (parent != null) parent.recordTelnetHandshake(nanos);
+    }
+
+    /**
+     * @param nanos    Time from sending the command to the prompt, or to the deadline.
+     * @param bytes    Bytes of output read.
+     * @param timedOut True if the prompt never arrived.
+     */
+    public void recordCommand(long nanos, long bytes, boolean timedOut) {
+        commandRoundTrip.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        bytesRead.add(bytes);
+        if (timedOut) timeouts.increment();
+        if (parent != null) parent.recordCommand(nanos, bytes, timedOut);
+    }
+
+    public void recordFailedConnect() {
+        failedConnects.increment();
+        if (parent != null) parent.recordFailedConnect();
+    }
+
+    /**
+     * Counts a command result by what was emitted for it, see {@link OutputChangeDetector}.
+     */
+    public void recordResult(OutputChangeDetector.Kind kind) {
+        switch (kind) {
+            case FULL:
+                resultsEmitted.increment();
+                break;
+            case DIFF:
+                resultsEmitted.increment();
+                resultsDiffed.increment();
+                break;
+            default:
+                resultsSuppressed.increment();
+                break;
+        }
+        if (parent != null) parent.recordResult(kind);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public LatencyHistogram getSshConnect() {
+        return sshConnect;
+    }
+
+    public LatencyHistogram getTelnetHandshake() {
+        return telnetHandshake;
+    }
+
+    public LatencyHistogram getCommandRoundTrip() {
+        return commandRoundTrip;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getFailedConnects() {
+        return failedConnects.sum();
+    }
+
+    public long getResultsEmitted() {
+        return resultsEmitted.sum();
+    }
+
+    public long getResultsDiffed() {
+        return resultsDiffed.sum();
+    }
+
+    public long getResultsSuppressed() {
+        return resultsSuppressed.sum();
+    }
+}
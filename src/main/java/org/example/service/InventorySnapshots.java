@@ -0,0 +1,236 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.SnapshotProperties;
+import org.example.dto.GroupSnapshot;
+import org.example.dto.InventorySnapshot;
+import org.example.dto.SessionSnapshot;
+import org.example.dto.SessionState;
+import org.example.dto.SessionTarget;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the session inventory and schedule groups in a local file, so a restart
+ * resumes polling without the sessions being posted again.
+ * <p>
+ * The registry is checked for changes every {@code snapshot.interval} and written
+ * once more on shutdown, before the sessions are torn down. Credentials are encrypted
+ * with a key kept in a separate file.
+ * <p>
+ * On startup every saved session is registered right away under its old UUID, then
+ * connected in the background in priority order, at most
+ * {@code snapshot.restore-parallelism} at a time, so a large inventory does not storm
+ * the devices or starve new connects.
+ */
+@Service
+public class InventorySnapshots implements SmartLifecycle {
+
+    private static final Logger logger = LogManager.getLogger(InventorySnapshots.class);
+    private static final int VERSION = 1;
+    // Starts right after FTPService and stops right before it, while the sessions are still registered
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 2047;
+
+    private final FTPService ftpService;
+    private final SessionRegistry sessionRegistry;
+    private final SnapshotProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private ScheduledExecutorService executor;
+    private CredentialCipher cipher;
+    // Only touched by the snapshot thread, and by stop() once it is done
+    private long savedVersion = -1;
+    private List<GroupSnapshot> savedGroups;
+    private volatile boolean running;
+
+    @Autowired
+    public InventorySnapshots(FTPService ftpService, SessionRegistry sessionRegistry, SnapshotProperties properties,
+                              ObjectMapper objectMapper) {
+        this.ftpService = ftpService;
+        this.sessionRegistry = sessionRegistry;
+        this.properties = properties;
+        // Credentials only go into the file encrypted
+        this.objectMapper = CredentialCipher.withoutCredentials(objectMapper);
+        this.file = Paths.get(properties.getFile());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            cipher = StringUtils.isNotBlank(properties.getKey())
+                    ? new CredentialCipher(CredentialCipher.decodeKey(properties.getKey()))
+                    : CredentialCipher.fromKeyFile(Paths.get(properties.getKeyFile()));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Inventory snapshots disabled, no usable key. Error: {}", e.getMessage(), e);
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::restore);
+        executor.scheduleWithFixedDelay(this::saveIfChanged, properties.getInterval(), properties.getInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor == null) {
+            return;
+        }
+        // A write in progress finishes, the final one below then sees any later change
+        executor.shutdown();
+        try {
+            executor.awaitTermination(properties.getInterval(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveIfChanged();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void saveIfChanged() {
+        try {
+            long version = sessionRegistry.version();
+            List<GroupSnapshot> groups = ftpService.snapshotGroups();
+            if (version == savedVersion && groups.equals(savedGroups)) {
+                return;
+            }
+            InventorySnapshot snapshot = new InventorySnapshot(VERSION, System.currentTimeMillis(), groups, sessions());
+            write(snapshot);
+            savedVersion = version;
+            savedGroups = groups;
+            logger.debug("Saved {} sessions and {} groups to {}", snapshot.getSessions().size(), groups.size(), file);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            logger.error("Failed to save inventory snapshot to {}. Error: {}", file, e.getMessage(), e);
+        }
+    }
+
+    private List<SessionSnapshot> sessions() throws GeneralSecurityException {
+        List<SessionSnapshot> sessions = new ArrayList<>();
+        for (SessionEntry entry : sessionRegistry.snapshot()) {
+            if (entry.getState() == SessionState.CLOSED) {
+                continue;
+            }
+            sessions.add(cipher.seal(entry.getUuid(), entry.getTarget()));
+        }
+        return sessions;
+    }
+
+    // Replaced atomically, so a crash never leaves half a snapshot
+    private void write(InventorySnapshot snapshot) throws IOException {
+        AtomicFiles.write(file, out -> {
+            try (OutputStream gzip = new GZIPOutputStream(out, 65536)) {
+                objectMapper.writeValue(gzip, snapshot);
+            }
+        });
+    }
+
+    private void restore() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        InventorySnapshot snapshot;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file), 65536)) {
+            snapshot = objectMapper.readValue(in, InventorySnapshot.class);
+        } catch (IOException e) {
+            logger.error("Cannot read inventory snapshot {}, starting empty. Error: {}", file, e.getMessage(), e);
+            return;
+        }
+        snapshot.getGroups().forEach(ftpService::applyGroup);
+        List<SessionEntry> entries = new ArrayList<>();
+        for (SessionSnapshot saved : snapshot.getSessions()) {
+            SessionTarget target;
+            try {
+                target = cipher.open(saved);
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                logger.warn("Not restoring session {} for {}: {}", saved.getUuid(), saved.getTarget().getHost(), e.getMessage());
+                continue;
+            }
+            if (target == null) {
+                continue;
+            }
+            SessionEntry entry = ftpService.restoreSession(saved.getUuid(), target);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        // Nothing changed that the file does not already hold
+        savedVersion = sessionRegistry.version();
+        savedGroups = ftpService.snapshotGroups();
+        logger.info("Restored {} sessions and {} groups from {}, saved {} ms ago", entries.size(), snapshot.getGroups().size(),
+                file, System.currentTimeMillis() - snapshot.getSavedAt());
+        if (!entries.isEmpty()) {
+            Thread thread = new Thread(() -> reconnect(entries), "inventory-restore");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void reconnect(List<SessionEntry> entries) {
+        // HIGH first, the sort is stable so the saved order holds within a priority
+        entries.sort(Comparator.comparing((SessionEntry entry) -> entry.getTarget().getPriority(),
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        int parallelism = Math.max(1, properties.getRestoreParallelism());
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicInteger connected = new AtomicInteger();
+        long start = System.nanoTime();
+        try {
+            for (SessionEntry entry : entries) {
+                if (!running) {
+                    return;
+                }
+                permits.acquire();
+                ftpService.connectRestored(entry).whenComplete((state, e) -> {
+                    if (state == SessionState.CONNECTED) {
+                        connected.incrementAndGet();
+                    }
+                    permits.release();
+                });
+            }
+            permits.acquire(parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        logger.info("Reconnected {} of {} restored sessions in {} ms", connected.get(), entries.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.dto.CommandResult;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Logs every result at info, from the sink's writer thread instead of the tick.
+ */
+@Component
+public class LogSink implements ResultSink {
+
+    private static final Logger logger = LogManager.getLogger(LogSink.class);
+
+    @Override
+    public String getName() {
+        return "log";
+    }
+
+    @Override
+    public void write(List<CommandResult> batch) {
+        for (CommandResult result : batch) {
+            logger.info("Executed command '{}' on session {} ({}:{}). {}: {}", result.getCommand(),
+                    result.getSessionId(), result.getHost(), result.getTelnetPort(), result.isDiff() ? "Changes" : "Response",
+                    result.getOutput());
+        }
+    }
+}
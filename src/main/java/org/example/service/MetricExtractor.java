@@ -0,0 +1,169 @@
+package org.example.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.example.config.ExtractProperties;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * One extractor definition with its patterns compiled, turning command output into
+ * named numeric samples.
+ * <p>
+ * Keys taken from the output are lower-cased and everything but letters, digits and
+ * dots becomes {@code _}, so {@code "CPU Load"} ends up in the series {@code name.cpu_load}.
+ */
+public class MetricExtractor {
+
+    private static final Pattern NUMBER = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String name;
+    private final ExtractProperties.Type type;
+    private final Pattern command;
+    private final Pattern pattern;
+    private final Pattern separator;
+    private final Set<String> keys = new HashSet<>();
+    private final boolean valueGroup;
+    private final boolean keyGroup;
+    private final int keyColumn;
+    private final int valueColumn;
+
+    /**
+     * Receives the samples of one output.
+     */
+    public interface Sink {
+        void sample(String name, double value);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the definition is incomplete or a pattern does not compile.
+     */
+    public MetricExtractor(ExtractProperties.Extractor definition) {
+        if (StringUtils.isBlank(definition.getName())) {
+            throw new IllegalArgumentException("Extractor has no name");
+        }
+        this.name = definition.getName().trim();
+        this.type = definition.getType() == null ? ExtractProperties.Type.REGEX : definition.getType();
+        if (type == ExtractProperties.Type.REGEX && StringUtils.isEmpty(definition.getPattern())) {
+            throw new IllegalArgumentException("Extractor " + name + " has no pattern");
+        }
+        if (type == ExtractProperties.Type.COLUMN && definition.getValueColumn() < 0) {
+            throw new IllegalArgumentException("Extractor " + name + " has no value column");
+        }
+        try {
+            this.command = StringUtils.isEmpty(definition.getCommand()) ? null : Pattern.compile(definition.getCommand());
+            this.pattern = StringUtils.isEmpty(definition.getPattern()) ? null : Pattern.compile(definition.getPattern());
+            this.separator = Pattern.compile(StringUtils.defaultIfEmpty(definition.getSeparator(), "\\s*[:=]\\s*"));
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Extractor " + name + " has an invalid pattern: " + e.getDescription());
+        }
+        if (definition.getKeys() != null) {
+            definition.getKeys().forEach(key -> keys.add(normalize(key)));
+        }
+        String regex = StringUtils.defaultString(definition.getPattern());
+        this.valueGroup = regex.contains("(?<value>");
+        this.keyGroup = regex.contains("(?<key>");
+        this.keyColumn = definition.getKeyColumn();
+        this.valueColumn = definition.getValueColumn();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean appliesTo(String commandText) {
+        return command == null || command.matcher(commandText).find();
+    }
+
+    public void extract(String output, Sink sink) {
+        if (type == ExtractProperties.Type.REGEX) {
+            extractRegex(output, sink);
+            return;
+        }
+        int start = 0;
+        int length = output.length();
+        while (start < length) {
+            int end = output.indexOf('\n', start);
+            if (end < 0) {
+                end = length;
+            }
+            String line = output.substring(start, end).trim();
+            start = end + 1;
+            if (line.isEmpty() || pattern != null && !pattern.matcher(line).find()) {
+                continue;
+            }
+            if (type == ExtractProperties.Type.KEY_VALUE) {
+                extractKeyValue(line, sink);
+            } else {
+                extractColumn(line, sink);
+            }
+        }
+    }
+
+    private void extractRegex(String output, Sink sink) {
+        Matcher matcher = pattern.matcher(output);
+        while (matcher.find()) {
+            String value = valueGroup ? matcher.group("value") : matcher.groupCount() > 0 ? matcher.group(1) : matcher.group();
+            double number = parse(value);
+            if (Double.isNaN(number)) {
+                continue;
+            }
+            String key = keyGroup ? matcher.group("key") : null;
+            sink.sample(key == null ? name : name + "." + normalize(key), number);
+        }
+    }
+
+    private void extractKeyValue(String line, Sink sink) {
+        Matcher matcher = separator.matcher(line);
+        if (!matcher.find() || matcher.start() == 0) {
+            return;
+        }
+        String key = normalize(line.substring(0, matcher.start()));
+        if (!keys.isEmpty() && !keys.contains(key)) {
+            return;
+        }
+        double number = parse(line.substring(matcher.end()));
+        if (!Double.isNaN(number)) {
+            sink.sample(name + "." + key, number);
+        }
+    }
+
+    private void extractColumn(String line, Sink sink) {
+        String[] columns = WHITESPACE.split(line);
+        if (valueColumn >= columns.length || keyColumn >= columns.length) {
+            return;
+        }
+        double number = parse(columns[valueColumn]);
+        if (Double.isNaN(number)) {
+            return;
+        }
+        sink.sample(keyColumn < 0 ? name : name + "." + normalize(columns[keyColumn]), number);
+    }
+
+    // The number at the start of the text, units after it are ignored; NaN if there is none
+    private static double parse(String text) {
+        if (text == null) {
+            return Double.NaN;
+        }
+        Matcher matcher = NUMBER.matcher(text.trim());
+        if (!matcher.lookingAt()) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(matcher.group());
+    }
+
+    private static String normalize(String key) {
+        StringBuilder normalized = new StringBuilder(key.length());
+        String trimmed = key.trim().toLowerCase(Locale.ROOT);
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            normalized.append(Character.isLetterOrDigit(c) || c == '.' ? c : '_');
+        }
+        return normalized.toString();
+    }
+}
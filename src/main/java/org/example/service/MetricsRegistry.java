@@ -0,0 +1,105 @@
+package org.example.service;
+
+import org.example.dto.HostMetricsSnapshot;
+import org.example.dto.LatencySummary;
+import org.example.dto.MetricsSnapshot;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Holds the {@link HostMetrics} of every host and renders them as JSON snapshots or in
+ * the Prometheus text format, where the totals over all hosts carry {@code host="all"}.
+ */
+@Component
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final HostMetrics overall = new HostMetrics("all", null);
+    private final Map<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Looked up once per connection; callers keep the instance to record samples.
+     */
+    public HostMetrics forHost(String host) {
+        HostMetrics metrics = hosts.get(host);
+        return metrics != null ? metrics : hosts.computeIfAbsent(host, key -> new HostMetrics(key, overall));
+    }
+
+    public MetricsSnapshot snapshot() {
+        List<HostMetricsSnapshot> hostSnapshots = new ArrayList<>();
+        hosts.values().forEach(metrics -> hostSnapshots.add(snapshot(metrics)));
+        return new MetricsSnapshot(snapshot(overall), hostSnapshots);
+    }
+
+    public String prometheus() {
+        StringBuilder builder = new StringBuilder();
+        summary(builder, "telnet_ssh_connect_seconds", "SSH connect and authentication time", HostMetrics::getSshConnect);
+        summary(builder, "telnet_handshake_seconds", "Time to open the telnet connection", HostMetrics::getTelnetHandshake);
+        summary(builder, "telnet_command_seconds", "Time from sending a command to its prompt", HostMetrics::getCommandRoundTrip);
+        counter(builder, "telnet_bytes_read_total", "Bytes of command output read", HostMetrics::getBytesRead);
+        counter(builder, "telnet_command_timeouts_total", "Commands whose prompt did not arrive in time", HostMetrics::getTimeouts);
+        counter(builder, "telnet_failed_connects_total", "Failed SSH or telnet connects", HostMetrics::getFailedConnects);
+        counter(builder, "telnet_results_emitted_total", "Command results emitted in full or as a diff", HostMetrics::getResultsEmitted);
+        counter(builder, "telnet_results_diffed_total", "Command results emitted as a diff", HostMetrics::getResultsDiffed);
+        counter(builder, "telnet_results_suppressed_total", "Command results dropped as unchanged", HostMetrics::getResultsSuppressed);
+        return builder.toString();
+    }
+
+    private HostMetricsSnapshot snapshot(HostMetrics metrics) {
+        return new HostMetricsSnapshot(metrics.getHost(), summary(metrics.getSshConnect()), summary(metrics.getTelnetHandshake()),
+                summary(metrics.getCommandRoundTrip()), metrics.getBytesRead(), metrics.getTimeouts(), metrics.getFailedConnects(),
+                metrics.getResultsEmitted(), metrics.getResultsDiffed(), metrics.getResultsSuppressed());
+    }
+
+    private static LatencySummary summary(LatencyHistogram histogram) {
+        return histogram.toSummary();
+    }
+
+    private void summary(StringBuilder builder, String name, String help, Function<HostMetrics, LatencyHistogram> histogram) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(" summary\n");
+        for (HostMetrics metrics : exported()) {
+            LatencyHistogram values = histogram.apply(metrics);
+            String host = escape(metrics.getHost());
+            for (double quantile : QUANTILES) {
+                builder.append(name).append("{host=\"").append(host).append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(values.percentileMicros(quantile))).append('\n');
+            }
+            builder.append(name).append("_sum{host=\"").append(host).append("\"} ").append(seconds(values.sumMicros())).append('\n');
+            builder.append(name).append("_count{host=\"").append(host).append("\"} ").append(values.count()).append('\n');
+        }
+    }
+
+    private void counter(StringBuilder builder, String name, String help, ToLongFunction<HostMetrics> value) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(" counter\n");
+        for (HostMetrics metrics : exported()) {
+            builder.append(name).append("{host=\"").append(escape(metrics.getHost())).append("\"} ")
+                    .append(value.applyAsLong(metrics)).append('\n');
+        }
+    }
+
+    // The totals first, then every host
+    private List<HostMetrics> exported() {
+        List<HostMetrics> exported = new ArrayList<>(hosts.size() + 1);
+        exported.add(overall);
+        exported.addAll(hosts.values());
+        return exported;
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
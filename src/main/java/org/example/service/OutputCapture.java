@@ -0,0 +1,225 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.TelnetProperties.OverflowPolicy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Collects the output of one command at a time for a session. The buffer is reused
+ * between commands and never grows beyond the configured cap; what does not fit is
+ * either dropped or, with {@link OverflowPolicy#SPILL}, written to a file together
+ * with the part kept in memory.
+ * <p>
+ * Every command that spills gets its own file, named after the session and a hash of
+ * the output, so a later command never changes a file an earlier result points to and
+ * the same output always points to the same file. A file is kept for the spill
+ * retention after the last command that produced it and deleted when the session closes.
+ */
+public class OutputCapture {
+
+    private static final Logger logger = LogManager.getLogger(OutputCapture.class);
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int NAME_HASH_BYTES = 16;
+
+    private final int cap;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillDirectory;
+    private final long spillRetentionMillis;
+    private final String spillPrefix = "command-output-" + UUID.randomUUID() + "-";
+    // Spill files of earlier commands by when they were last written, oldest first
+    private final Map<Path, Long> spillFiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    private byte[] buffer;
+    private int count;
+    private long total;
+    // The spill of the running command, written to a temporary name until it is done
+    private Path spillTemporary;
+    private DigestOutputStream spill;
+    private Path spillFile;
+
+    public OutputCapture(int cap, OverflowPolicy overflowPolicy, String spillDirectory, long spillRetentionMillis) {
+        this.cap = cap;
+        this.overflowPolicy = overflowPolicy;
+        this.spillDirectory = Paths.get(spillDirectory);
+        this.spillRetentionMillis = spillRetentionMillis;
+        this.buffer = new byte[Math.min(cap, INITIAL_CAPACITY)];
+    }
+
+    public void write(byte[] bytes, int offset, int length) {
+        total += length;
+        int kept = Math.min(length, cap - count);
+        if (kept > 0) {
+            if (count + kept > buffer.length) {
+                byte[] grown = new byte[Math.min(cap, Math.max(buffer.length * 2, count + kept))];
+                System.arraycopy(buffer, 0, grown, 0, count);
+                buffer = grown;
+            }
+            System.arraycopy(bytes, offset, buffer, count, kept);
+            count += kept;
+        }
+        if (kept < length && overflowPolicy == OverflowPolicy.SPILL) {
+            spill(bytes, offset + kept, length - kept);
+        }
+    }
+
+    private void spill(byte[] bytes, int offset, int length) {
+        try {
+            if (spill == null) {
+                if (spillTemporary != null) {
+                    // Writing failed earlier in this command, the file would miss a part
+                    return;
+                }
+                spillTemporary = Files.createTempFile(spillDirectory, spillPrefix, ".tmp");
+                spill = new DigestOutputStream(Files.newOutputStream(spillTemporary), MessageDigest.getInstance("SHA-256"));
+                spill.write(buffer, 0, count);
+            }
+            spill.write(bytes, offset, length);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            logger.error("Failed to spill command output to {}. Error: {}", spillTemporary, e.getMessage(), e);
+            closeSpill();
+        }
+    }
+
+    /**
+     * Prepares the capture for the next command. Spill files of earlier commands stay on
+     * disk for the spill retention.
+     */
+    public synchronized void reset() {
+        if (spill != null) {
+            // The previous command was never read out, its spill is of no use
+            closeSpill();
+        }
+        deleteTemporary();
+        count = 0;
+        total = 0;
+        spillFile = null;
+    }
+
+    /**
+     * Deletes all spill files, for when the session is closed.
+     */
+    public synchronized void close() {
+        closeSpill();
+        deleteTemporary();
+        spillFiles.keySet().forEach(OutputCapture::delete);
+        spillFiles.clear();
+        spillFile = null;
+    }
+
+    // Gives the finished spill its final name and drops files past the retention
+    private void completeSpill() {
+        if (spill == null) {
+            return;
+        }
+        byte[] hash = spill.getMessageDigest().digest();
+        closeSpill();
+        Path file = spillDirectory.resolve(spillPrefix + HexFormat.of().formatHex(hash, 0, NAME_HASH_BYTES) + ".log");
+        try {
+            try {
+                Files.move(spillTemporary, file);
+            } catch (FileAlreadyExistsException e) {
+                // Same output as an earlier command, which already points to this file
+                Files.delete(spillTemporary);
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+            spillTemporary = null;
+            spillFile = file;
+            spillFiles.put(file, System.currentTimeMillis());
+        } catch (IOException e) {
+            logger.error("Failed to keep spill file {}. Error: {}", file, e.getMessage(), e);
+            deleteTemporary();
+        }
+        expireSpillFiles();
+    }
+
+    private void expireSpillFiles() {
+        long oldest = System.currentTimeMillis() - spillRetentionMillis;
+        Iterator<Map.Entry<Path, Long>> files = spillFiles.entrySet().iterator();
+        while (files.hasNext()) {
+            Map.Entry<Path, Long> file = files.next();
+            if (file.getValue() >= oldest || file.getKey().equals(spillFile)) {
+                break;
+            }
+            delete(file.getKey());
+            files.remove();
+        }
+    }
+
+    private void closeSpill() {
+        if (spill == null) {
+            return;
+        }
+        try {
+            spill.close();
+        } catch (IOException e) {
+            logger.error("Failed to close spill file {}. Error: {}", spillTemporary, e.getMessage(), e);
+        }
+        spill = null;
+    }
+
+    private void deleteTemporary() {
+        if (spillTemporary != null) {
+            delete(spillTemporary);
+            spillTemporary = null;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.error("Failed to delete spill file {}. Error: {}", file, e.getMessage(), e);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long totalBytes() {
+        return total;
+    }
+
+    public boolean isTruncated() {
+        return total > count;
+    }
+
+    /**
+     * @return The spill file of the latest command once it is done, or null if it did not spill.
+     */
+    public synchronized Path getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Decodes the captured bytes once the command is done and notes what did not fit.
+     */
+    public synchronized String toString(Charset charset) {
+        completeSpill();
+        String output = new String(buffer, 0, count, charset);
+        if (!isTruncated()) {
+            return output;
+        }
+        if (spillFile != null) {
+            return output + "\n[output truncated, " + total + " bytes written to " + spillFile + "]";
+        }
+        return output + "\n[output truncated, " + (total - count) + " bytes dropped]";
+    }
+}
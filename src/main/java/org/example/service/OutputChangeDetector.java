@@ -0,0 +1,206 @@
+package org.example.service;
+
+import org.example.config.DedupProperties;
+import org.example.config.DedupProperties.Mode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Tells whether a command's output changed since the last tick, so unchanged results
+ * do not have to be logged, stored or streamed again.
+ * <p>
+ * Outputs are compared by a 64-bit fingerprint taken after the configured masks
+ * replaced the volatile parts, so a clock or an uptime counter does not count as a
+ * change. Only the fingerprint is kept per session and command, plus the previous
+ * output in {@link Mode#DIFF}.
+ * <p>
+ * A diff lists the changed lines of the region between the first and the last line
+ * that differ, in unified diff notation without context:
+ * <pre>
+ * &#64;&#64; -3,1 +3,1 &#64;&#64;
+ * -port 2  state UP
+ * +port 2  state DOWN
+ * </pre>
+ * That is linear in the output size and exact for the common case of one changed
+ * region; scattered changes produce a larger region. A diff is only sent when it is
+ * shorter than the output itself, and results mark which one they hold.
+ * <p>
+ * Once the heartbeat has passed since the last full output, the next result is full
+ * whether it changed or not, so consumers that only see part of the stream can always
+ * rebuild the output from a recent snapshot.
+ */
+@Component
+public class OutputChangeDetector {
+
+    private static final String MASK = "#";
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final Pattern LINE_BREAK = Pattern.compile("\r?\n");
+
+    private final Mode mode;
+    private final long heartbeat;
+    private final List<Pattern> masks = new ArrayList<>();
+    private final Map<UUID, Map<String, State>> sessions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OutputChangeDetector(DedupProperties properties) {
+        this.mode = properties.getMode() == null ? Mode.OFF : properties.getMode();
+        this.heartbeat = properties.getHeartbeat();
+        properties.getMasks().forEach(mask -> masks.add(Pattern.compile(mask)));
+    }
+
+    /**
+     * Compares an output with the previous one of the same session and command and
+     * records the outcome in the host's counters.
+     *
+     * @param metrics The host's metrics, may be null.
+     * @return What to emit for this result.
+     */
+    public Change detect(UUID session, String command, String output, HostMetrics metrics) {
+        Change change = compare(session, command, output);
+        if (metrics != null) {
+            metrics.recordResult(change.kind);
+        }
+        return change;
+    }
+
+    /**
+     * Drops what is remembered about a session that was removed.
+     */
+    public void forget(UUID session) {
+        sessions.remove(session);
+    }
+
+    public void clear() {
+        sessions.clear();
+    }
+
+    private Change compare(UUID session, String command, String output) {
+        if (mode == Mode.OFF) {
+            return new Change(Kind.FULL, output);
+        }
+        long fingerprint = fingerprint(mask(output));
+        State state = sessions.computeIfAbsent(session, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(command, key -> new State());
+        long now = System.currentTimeMillis();
+        synchronized (state) {
+            boolean changed = !state.seen || state.fingerprint != fingerprint;
+            boolean due = heartbeat > 0 && now - state.fullAt >= heartbeat;
+            if (!changed && !due) {
+                return new Change(Kind.UNCHANGED, null);
+            }
+            String previous = state.previous;
+            state.seen = true;
+            state.fingerprint = fingerprint;
+            if (mode == Mode.DIFF) {
+                state.previous = output;
+                if (changed && !due && previous != null) {
+                    String diff = diff(previous, output);
+                    if (diff.length() < output.length()) {
+                        return new Change(Kind.DIFF, diff);
+                    }
+                }
+            }
+            state.fullAt = now;
+            return new Change(Kind.FULL, output);
+        }
+    }
+
+    private String mask(String output) {
+        String masked = output;
+        for (Pattern mask : masks) {
+            masked = mask.matcher(masked).replaceAll(MASK);
+        }
+        return masked;
+    }
+
+    // FNV-1a over the UTF-16 units, the bytes of the output never exist on their own
+    private static long fingerprint(String value) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private String diff(String previous, String current) {
+        String[] oldLines = LINE_BREAK.split(previous, -1);
+        String[] newLines = LINE_BREAK.split(current, -1);
+        int prefix = 0;
+        int max = Math.min(oldLines.length, newLines.length);
+        while (prefix < max && same(oldLines[prefix], newLines[prefix])) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix && same(oldLines[oldLines.length - 1 - suffix], newLines[newLines.length - 1 - suffix])) {
+            suffix++;
+        }
+        int oldCount = oldLines.length - prefix - suffix;
+        int newCount = newLines.length - prefix - suffix;
+        StringBuilder diff = new StringBuilder();
+        diff.append("@@ -").append(prefix + 1).append(',').append(oldCount)
+                .append(" +").append(prefix + 1).append(',').append(newCount).append(" @@\n");
+        for (int i = prefix; i < prefix + oldCount; i++) {
+            diff.append('-').append(oldLines[i]).append('\n');
+        }
+        for (int i = prefix; i < prefix + newCount; i++) {
+            diff.append('+').append(newLines[i]).append('\n');
+        }
+        return diff.toString();
+    }
+
+    // Lines that only differ in masked parts are the same
+    private boolean same(String a, String b) {
+        return a.equals(b) || !masks.isEmpty() && mask(a).equals(mask(b));
+    }
+
+    public enum Kind {
+        FULL,
+        DIFF,
+        UNCHANGED
+    }
+
+    /**
+     * The outcome for one result.
+     */
+    public static final class Change {
+        private final Kind kind;
+        private final String output;
+
+        private Change(Kind kind, String output) {
+            this.kind = kind;
+            this.output = output;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public boolean isUnchanged() {
+            return kind == Kind.UNCHANGED;
+        }
+
+        /**
+         * @return The full output or the diff to emit, null if unchanged.
+         */
+        public String getOutput() {
+            return output;
+        }
+    }
+
+    private static final class State {
+        private boolean seen;
+        private long fingerprint;
+        private long fullAt;
+        private String previous;
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming matcher that looks for several prompts at once in a byte stream.
+ * <p>
+ * Each pattern keeps its own KMP state, so a prompt that is split across two
+ * reads from the channel is still recognised. Instances are not thread-safe and
+ * are meant to be used for a single command exchange.
+ */
+public class PromptMatcher {
+
+    public static final int NO_MATCH = -1;
+
+    private final byte[][] patterns;
+    private final int[][] failures;
+    private final int[] states;
+    private int matched = NO_MATCH;
+
+    /**
+     * @param patterns The prompts to look for, in priority order.
+     */
+    public PromptMatcher(final String... patterns) {
+        this.patterns = new byte[patterns.length][];
+        this.failures = new int[patterns.length][];
+        this.states = new int[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            this.patterns[i] = patterns[i].getBytes(StandardCharsets.UTF_8);
+            this.failures[i] = failureTable(this.patterns[i]);
+        }
+    }
+
+    /**
+     * Feeds bytes into the matcher.
+     *
+     * @param buffer The bytes read from the channel.
+     * @param offset The first byte to inspect.
+     * @param length The number of bytes to inspect.
+     * @return The number of bytes consumed up to and including the end of the first
+     * completed pattern, or {@code length} if no pattern completed.
+     */
+    public int feed(final byte[] buffer, final int offset, final int length) {
+        for (int i = 0; i < length; i++) {
+            final byte b = buffer[offset + i];
+            for (int p = 0; p < patterns.length; p++) {
+                if (advance(p, b)) {
+                    matched = p;
+                    return i + 1;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return The index of the pattern that completed, or {@link #NO_MATCH}.
+     */
+    public int matched() {
+        return matched;
+    }
+
+    public boolean isMatched() {
+        return matched != NO_MATCH;
+    }
+
+    /**
+     * Clears all partial matches so the instance can be reused for the next command.
+     */
+    public void reset() {
+        matched = NO_MATCH;
+        Arrays.fill(states, 0);
+    }
+
+    private boolean advance(final int p, final byte b) {
+        final byte[] pattern = patterns[p];
+        if (pattern.length == 0) {
+            return false;
+        }
+        int state = states[p];
+        while (state > 0 && pattern[state] != b) {
+            state = failures[p][state - 1];
+        }
+        if (pattern[state] == b) {
+            state++;
+        }
+        if (state == pattern.length) {
+            states[p] = failures[p][state - 1];
+            return true;
+        }
+        states[p] = state;
+        return false;
+    }
+
+    private static int[] failureTable(final byte[] pattern) {
+        final int[] failure = new int[pattern.length];
+        int k = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (k > 0 && pattern[i] != pattern[k]) {
+                k = failure[k - 1];
+            }
+            if (pattern[i] == pattern[k]) {
+                k++;
+            }
+            failure[i] = k;
+        }
+        return failure;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.service;
+
+import org.example.dto.CommandResult;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination for command results.
+ * <p>
+ * Every bean implementing this interface gets its own bounded queue and writer thread
+ * in {@link ResultSinks}, configured under {@code sink.pipelines.<name>}. The methods
+ * are only called from that writer thread, so a sink does not need to synchronize its
+ * own state against itself, and a slow sink only delays its own queue.
+ */
+public interface ResultSink {
+
+    /**
+     * @return The name the sink's settings are looked up by.
+     */
+    String getName();
+
+    /**
+     * @param batch Results in publishing order. The list is reused once the call returns.
+     * @throws IOException If the results could not be written; they are counted as failed.
+     */
+    void write(List<CommandResult> batch) throws IOException;
+
+    /**
+     * Called after a write that emptied the queue.
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * Called on shutdown after the last write.
+     */
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.SinkProperties;
+import org.example.dto.CommandResult;
+import org.example.dto.SinkInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands every command result to the enabled {@link ResultSink}s.
+ * <p>
+ * Publishing only queues the result per sink; logging, files and the result store are
+ * written by the sinks' own threads, so a tick never waits on output I/O. On shutdown
+ * the writers get {@code sink.shutdown-timeout} to write what is still queued.
+ */
+@Service
+public class ResultSinks {
+
+    private static final Logger logger = LogManager.getLogger(ResultSinks.class);
+
+    private final SinkProperties properties;
+    private final List<SinkPipeline> pipelines = new ArrayList<>();
+
+    @Autowired
+    public ResultSinks(List<ResultSink> sinks, SinkProperties properties) {
+        this.properties = properties;
+        for (ResultSink sink : sinks) {
+            SinkProperties.Pipeline settings = properties.getPipelines().getOrDefault(sink.getName(), new SinkProperties.Pipeline());
+            if (!settings.isEnabled()) {
+                logger.info("Result sink {} is disabled", sink.getName());
+                continue;
+            }
+            SinkPipeline pipeline = new SinkPipeline(sink, settings);
+            pipeline.start();
+            pipelines.add(pipeline);
+        }
+    }
+
+    public void publish(CommandResult result) {
+        for (SinkPipeline pipeline : pipelines) {
+            pipeline.publish(result);
+        }
+    }
+
+    public List<SinkInfo> snapshot() {
+        List<SinkInfo> infos = new ArrayList<>(pipelines.size());
+        for (SinkPipeline pipeline : pipelines) {
+            infos.add(pipeline.toInfo());
+        }
+        return infos;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pipelines.forEach(SinkPipeline::stop);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getShutdownTimeout());
+        for (SinkPipeline pipeline : pipelines) {
+            pipeline.awaitTermination(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        }
+    }
+}
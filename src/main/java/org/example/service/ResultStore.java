@@ -0,0 +1,390 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.StoreProperties;
+import org.example.dto.CommandResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only store of command results in memory-mapped segment files.
+ * <p>
+ * Records are appended to the active segment until it is full, then a new segment is
+ * started. Each session keeps a compact index of (timestamp, segment, offset) in
+ * primitive arrays, so a time range is found with a binary search and only the
+ * matching records are decoded. Segments older than the retention are deleted
+ * together with their index entries. The index is rebuilt from the files on startup.
+ * <p>
+ * Record layout: length, timestamp, latency, session UUID, telnet port with the top bit
+ * set if the output is a diff, then host, command and output as length-prefixed UTF-8.
+ * <p>
+ * Results arrive as the {@code store} sink, so they are appended off the tick threads.
+ */
+@Service
+public class ResultStore implements ResultSink {
+
+    private static final Logger logger = LogManager.getLogger(ResultStore.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final int FIXED_RECORD_SIZE = 4 + 8 + 8 + 16 + 4 + 4 + 4 + 4;
+    private static final int DIFF_FLAG = 1 << 31;
+
+    private final StoreProperties properties;
+    private final Path directory;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<UUID, SessionIndex> indexes = new HashMap<>();
+    private final ScheduledExecutorService retentionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "result-store-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Segment active;
+    private boolean enabled;
+
+    @Autowired
+    public ResultStore(StoreProperties properties) {
+        this.properties = properties;
+        this.directory = Paths.get(properties.getDirectory());
+        this.enabled = properties.isEnabled();
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            load();
+            active = openSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        } catch (IOException e) {
+            logger.error("Result store disabled, cannot use {}. Error: {}", directory, e.getMessage(), e);
+            enabled = false;
+            return;
+        }
+        retentionExecutor.scheduleWithFixedDelay(this::applyRetention, properties.getRetentionCheckInterval(),
+                properties.getRetentionCheckInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String getName() {
+        return "store";
+    }
+
+    @Override
+    public void write(List<CommandResult> batch) {
+        for (CommandResult result : batch) {
+            append(result);
+        }
+    }
+
+    public void append(CommandResult result) {
+        if (!enabled) {
+            return;
+        }
+        byte[] host = bytes(result.getHost());
+        byte[] command = bytes(result.getCommand());
+        byte[] output = bytes(result.getOutput());
+        int length = FIXED_RECORD_SIZE + host.length + command.length + output.length;
+        if (length > properties.getSegmentSize()) {
+            logger.warn("Result of '{}' on {} is {} bytes, larger than a segment, not stored", result.getCommand(), result.getHost(), length);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (active.buffer.remaining() < length) {
+                rollover();
+            }
+            MappedByteBuffer buffer = active.buffer;
+            int offset = buffer.position();
+            buffer.putInt(length - 4)
+                    .putLong(result.getTimestamp())
+                    .putLong(result.getLatency())
+                    .putLong(result.getSessionId().getMostSignificantBits())
+                    .putLong(result.getSessionId().getLeastSignificantBits())
+                    .putInt(result.isDiff() ? result.getTelnetPort() | DIFF_FLAG : result.getTelnetPort());
+            buffer.putInt(host.length).put(host);
+            buffer.putInt(command.length).put(command);
+            buffer.putInt(output.length).put(output);
+            index(result.getSessionId(), result.getTimestamp(), active, offset);
+        } catch (IOException e) {
+            logger.error("Failed to store result of '{}' on {}. Error: {}", result.getCommand(), result.getHost(), e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param sessionId Only results of this session, or of all sessions if {@code null}.
+     * @param from      Inclusive lower bound in epoch millis.
+     * @param to        Exclusive upper bound in epoch millis.
+     * @param limit     Maximum number of results, the oldest in the range come first.
+     */
+    public List<CommandResult> query(UUID sessionId, long from, long to, int limit) {
+        List<CommandResult> results = new ArrayList<>();
+        if (!enabled) {
+            return results;
+        }
+        lock.readLock().lock();
+        try {
+            if (sessionId != null) {
+                SessionIndex index = indexes.get(sessionId);
+                if (index != null) {
+                    index.collect(from, to, limit, results);
+                }
+                return results;
+            }
+            for (SessionIndex index : indexes.values()) {
+                index.collect(from, to, limit, results);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        results.sort(Comparator.comparingLong(CommandResult::getTimestamp));
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    private void index(UUID sessionId, long timestamp, Segment segment, int offset) {
+        indexes.computeIfAbsent(sessionId, id -> new SessionIndex()).add(timestamp, location(segment.id, offset));
+        segment.newestTimestamp = Math.max(segment.newestTimestamp, timestamp);
+    }
+
+    private void rollover() throws IOException {
+        active.seal();
+        active = openSegment(active.id + 1);
+        logger.info("Started result segment {}", active.id);
+    }
+
+    private void applyRetention() {
+        long expired = System.currentTimeMillis() - properties.getRetention();
+        lock.writeLock().lock();
+        try {
+            Integer oldestKept = null;
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                if (segment == active || segment.newestTimestamp >= expired) {
+                    oldestKept = segment.id;
+                    break;
+                }
+                segments.remove(segment.id);
+                Files.deleteIfExists(segment.path);
+                logger.info("Deleted result segment {}", segment.path);
+            }
+            int firstSegment = oldestKept == null ? active.id : oldestKept;
+            indexes.values().removeIf(index -> index.dropBefore(firstSegment));
+        } catch (IOException e) {
+            logger.error("Failed to apply result retention. Error: {}", e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = new Segment(id, file, map(file, FileChannel.MapMode.READ_ONLY, Files.size(file)));
+            segments.put(id, segment);
+        }
+        // Rebuild the index in segment order, so every session's entries stay sorted
+        for (Segment segment : segments.values()) {
+            MappedByteBuffer buffer = segment.buffer;
+            int offset = 0;
+            while (offset + 4 <= buffer.limit()) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || offset + 4 + length > buffer.limit()) {
+                    break;
+                }
+                UUID sessionId = new UUID(buffer.getLong(offset + 20), buffer.getLong(offset + 28));
+                index(sessionId, buffer.getLong(offset + 4), segment, offset);
+                offset += 4 + length;
+            }
+        }
+        logger.info("Loaded {} result segments from {}", segments.size(), directory);
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = new Segment(id, path, map(path, FileChannel.MapMode.READ_WRITE, properties.getSegmentSize()));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode, long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+             FileChannel channel = file.getChannel()) {
+            return channel.map(mode, 0, size);
+        }
+    }
+
+    private CommandResult read(long location) {
+        Segment segment = segments.get(segmentOf(location));
+        if (segment == null) {
+            return null;
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = offsetOf(location);
+        int position = offset + 4;
+        long timestamp = buffer.getLong(position);
+        long latency = buffer.getLong(position + 8);
+        UUID sessionId = new UUID(buffer.getLong(position + 16), buffer.getLong(position + 24));
+        int portAndFlags = buffer.getInt(position + 32);
+        position += 36;
+        String host = string(buffer, position);
+        position += 4 + buffer.getInt(position);
+        String command = string(buffer, position);
+        position += 4 + buffer.getInt(position);
+        String output = string(buffer, position);
+        return new CommandResult(sessionId, host, portAndFlags & ~DIFF_FLAG, command, timestamp, latency, output,
+                (portAndFlags & DIFF_FLAG) != 0);
+    }
+
+    private static String string(MappedByteBuffer buffer, int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retentionExecutor.shutdownNow();
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            active.seal();
+        } catch (IOException e) {
+            logger.error("Failed to seal result segment {}. Error: {}", active.path, e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private MappedByteBuffer buffer;
+        private long newestTimestamp = Long.MIN_VALUE;
+
+        private Segment(int id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Flushes the segment and trims the file to the bytes written.
+         */
+        private void seal() throws IOException {
+            int written = buffer.position();
+            buffer.force();
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                file.setLength(written);
+            }
+            buffer = map(path, FileChannel.MapMode.READ_ONLY, written);
+        }
+    }
+
+    /**
+     * Time-ordered (timestamp, location) pairs of one session in two parallel arrays.
+     */
+    private final class SessionIndex {
+        private long[] timestamps = new long[16];
+        private long[] locations = new long[16];
+        private int start;
+        private int end;
+
+        private void add(long timestamp, long location) {
+            if (end == timestamps.length) {
+                int size = end - start;
+                int capacity = size * 2 > timestamps.length ? timestamps.length * 2 : timestamps.length;
+                timestamps = Arrays.copyOfRange(timestamps, start, start + capacity);
+                locations = Arrays.copyOfRange(locations, start, start + capacity);
+                start = 0;
+                end = size;
+            }
+            // Results arrive almost in order, so this rarely moves more than one slot
+            int i = end;
+            while (i > start && timestamps[i - 1] > timestamp) {
+                timestamps[i] = timestamps[i - 1];
+                locations[i] = locations[i - 1];
+                i--;
+            }
+            timestamps[i] = timestamp;
+            locations[i] = location;
+            end++;
+        }
+
+        /**
+         * @return True if the index is empty afterwards.
+         */
+        private boolean dropBefore(int segmentId) {
+            while (start < end && segmentOf(locations[start]) < segmentId) {
+                start++;
+            }
+            return start == end;
+        }
+
+        private void collect(long from, long to, int limit, List<CommandResult> results) {
+            int low = start;
+            int high = end;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[mid] < from) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low, added = 0; i < end && timestamps[i] < to && added < limit; i++) {
+                CommandResult result = read(locations[i]);
+                if (result != null) {
+                    results.add(result);
+                    added++;
+                }
+            }
+        }
+    }
+}
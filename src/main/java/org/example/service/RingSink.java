@@ -0,0 +1,54 @@
+package org.example.service;
+
+import org.example.config.SinkProperties;
+import org.example.dto.CommandResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps the most recent results in memory, overwriting the oldest.
+ */
+@Component
+public class RingSink implements ResultSink {
+
+    private final CommandResult[] ring;
+    private long count;
+
+    @Autowired
+    public RingSink(SinkProperties properties) {
+        this.ring = new CommandResult[Math.max(1, properties.getRingCapacity())];
+    }
+
+    @Override
+    public String getName() {
+        return "ring";
+    }
+
+    @Override
+    public synchronized void write(List<CommandResult> batch) {
+        for (CommandResult result : batch) {
+            ring[(int) (count++ % ring.length)] = result;
+        }
+    }
+
+    /**
+     * @param sessionId Only results of this session, or of all sessions if null.
+     * @return Up to {@code limit} of the newest results, oldest first.
+     */
+    public synchronized List<CommandResult> recent(UUID sessionId, int limit) {
+        List<CommandResult> results = new ArrayList<>(Math.min(Math.max(0, limit), ring.length));
+        for (long i = count - 1; i >= 0 && i >= count - ring.length && results.size() < limit; i--) {
+            CommandResult result = ring[(int) (i % ring.length)];
+            if (sessionId == null || sessionId.equals(result.getSessionId())) {
+                results.add(result);
+            }
+        }
+        Collections.reverse(results);
+        return results;
+    }
+}
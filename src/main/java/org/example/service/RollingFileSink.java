@@ -0,0 +1,109 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.SinkProperties;
+import org.example.dto.CommandResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends results as JSON lines to {@code results.ndjson} in the configured directory.
+ * <p>
+ * Once the file reaches {@code max-file-size} it is renamed to {@code results.1.ndjson},
+ * older files move up by one and the one beyond {@code max-files} is deleted.
+ */
+@Component
+public class RollingFileSink implements ResultSink {
+
+    private static final Logger logger = LogManager.getLogger(RollingFileSink.class);
+    private static final String PREFIX = "results";
+    private static final String SUFFIX = ".ndjson";
+
+    private final SinkProperties.File properties;
+    private final ObjectWriter writer;
+    private final Path directory;
+    private OutputStream out;
+    private long fileSize;
+
+    @Autowired
+    public RollingFileSink(SinkProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties.getFile();
+        this.writer = objectMapper.writerFor(CommandResult.class);
+        this.directory = Paths.get(this.properties.getDirectory());
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public void write(List<CommandResult> batch) throws IOException {
+        if (out == null) {
+            open();
+        }
+        for (CommandResult result : batch) {
+            byte[] line = writer.writeValueAsBytes(result);
+            if (fileSize > 0 && fileSize + line.length + 1 > properties.getMaxFileSize()) {
+                roll();
+            }
+            out.write(line);
+            out.write('\n');
+            fileSize += line.length + 1;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        Path current = file(0);
+        fileSize = Files.exists(current) ? Files.size(current) : 0;
+        out = new BufferedOutputStream(Files.newOutputStream(current, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 65536);
+    }
+
+    private void roll() throws IOException {
+        close();
+        int maxFiles = Math.max(0, properties.getMaxFiles());
+        Files.deleteIfExists(file(maxFiles));
+        for (int i = maxFiles - 1; i >= 0; i--) {
+            Path source = file(i);
+            if (Files.exists(source)) {
+                Files.move(source, file(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        logger.debug("Rolled over result file in {}", directory);
+        open();
+    }
+
+    // 0 is the current file
+    private Path file(int index) {
+        return directory.resolve(index == 0 ? PREFIX + SUFFIX : PREFIX + "." + index + SUFFIX);
+    }
+}
@@ -0,0 +1,249 @@
+package org.example.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.example.dto.CommandStep;
+import org.example.dto.TelnetStream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Runs the command script of a session as one exchange.
+ * <p>
+ * Steps run in order. A step with a {@code when} condition only runs if its regex is
+ * found in the previous step's output or in a captured variable, and {@code capture}
+ * stores parts of a step's output as variables that later commands use as
+ * {@code ${name}}. A captured value ends at its first line break, so output can never
+ * smuggle an extra command into a later step. On a pipelined device consecutive steps are written in one flush
+ * as long as they do not depend on each other, i.e. they have no condition and do not
+ * use a variable captured within the same batch.
+ * <p>
+ * The script stops at the first step whose prompt does not show up, since the output
+ * after it can no longer be matched to the commands that were sent.
+ */
+public class ScriptRunner {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{([^}]+)}");
+
+    private final CustomFTPClient customFTPClient;
+    private final int pipelineDepth;
+    // Scripts are fixed per session, so their patterns are compiled once
+    private final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+    /**
+     * @param pipelineDepth The most steps written in one flush.
+     */
+    public ScriptRunner(CustomFTPClient customFTPClient, int pipelineDepth) {
+        this.customFTPClient = customFTPClient;
+        this.pipelineDepth = Math.max(1, pipelineDepth);
+    }
+
+    /**
+     * Checks a script before it is accepted.
+     *
+     * @throws IllegalArgumentException If a step has no command or a pattern does not compile.
+     */
+    public static void validate(List<CommandStep> steps) {
+        for (int i = 0; i < steps.size(); i++) {
+            CommandStep step = steps.get(i);
+            if (step == null || StringUtils.isBlank(step.getCommand())) {
+                throw new IllegalArgumentException("Step " + (i + 1) + " has no command");
+            }
+            try {
+                if (StringUtils.isNotEmpty(step.getWhen())) {
+                    Pattern.compile(step.getWhen());
+                }
+                if (step.getCapture() != null) {
+                    step.getCapture().values().forEach(Pattern::compile);
+                }
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Step " + (i + 1) + " has an invalid pattern: " + e.getDescription());
+            }
+        }
+    }
+
+    /**
+     * @param telnetStream   The stream of the session, the caller holds its exchange lock.
+     * @param steps          The script.
+     * @param pipelined      Whether independent steps may be written together.
+     * @param defaultWaitFor The prompt for steps without their own.
+     * @param defaultTimeout The timeout for steps without their own.
+     * @param budgetMillis   Time the whole script may take, 0 means no limit.
+     * @return The steps that ran, in order.
+     */
+    public List<StepResult> run(TelnetStream telnetStream, List<CommandStep> steps, boolean pipelined, String defaultWaitFor,
+                                long defaultTimeout, long budgetMillis) {
+        long deadline = budgetMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis) : 0;
+        Map<String, String> variables = new HashMap<>();
+        List<StepResult> results = new ArrayList<>();
+        String previousOutput = null;
+        int next = 0;
+        while (next < steps.size()) {
+            int first = next;
+            CommandStep step = steps.get(next++);
+            if (!shouldRun(step, variables, previousOutput)) {
+                continue;
+            }
+            List<CommandStep> batch = new ArrayList<>();
+            batch.add(step);
+            if (pipelined) {
+                while (next < steps.size() && batch.size() < pipelineDepth && independent(steps.get(next), batch)) {
+                    batch.add(steps.get(next++));
+                }
+            }
+            List<String> commands = new ArrayList<>(batch.size());
+            List<String> waitFors = new ArrayList<>(batch.size());
+            long[] timeouts = new long[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                CommandStep batched = batch.get(i);
+                commands.add(substitute(batched.getCommand(), variables));
+                waitFors.add(StringUtils.isEmpty(batched.getWaitFor()) ? defaultWaitFor : batched.getWaitFor());
+                timeouts[i] = batched.getTimeout() > 0 ? batched.getTimeout() : defaultTimeout;
+                if (deadline != 0) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        return results;
+                    }
+                    timeouts[i] = Math.min(timeouts[i], remaining);
+                }
+            }
+            long timestamp = System.currentTimeMillis();
+            long start = System.nanoTime();
+            List<CommandReply> replies = customFTPClient.executePipelined(telnetStream, commands, waitFors, timeouts);
+            for (int i = 0; i < replies.size(); i++) {
+                CommandReply reply = replies.get(i);
+                long now = System.nanoTime();
+                results.add(new StepResult(first + i, commands.get(i), timestamp, TimeUnit.NANOSECONDS.toMillis(now - start), reply));
+                start = now;
+                capture(batch.get(i), reply.getOutput(), variables);
+                previousOutput = reply.getOutput();
+                if (!reply.isPrompted()) {
+                    return results;
+                }
+            }
+        }
+        return results;
+    }
+
+    private boolean shouldRun(CommandStep step, Map<String, String> variables, String previousOutput) {
+        if (StringUtils.isEmpty(step.getWhen())) {
+            return true;
+        }
+        String subject = StringUtils.isEmpty(step.getWhenVariable()) ? previousOutput : variables.get(step.getWhenVariable());
+        return subject != null && pattern(step.getWhen()).matcher(subject).find();
+    }
+
+    // A step may join a batch unless it needs the output of a step in it
+    private boolean independent(CommandStep step, List<CommandStep> batch) {
+        if (StringUtils.isNotEmpty(step.getWhen())) {
+            return false;
+        }
+        Matcher matcher = VARIABLE.matcher(step.getCommand());
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            for (CommandStep batched : batch) {
+                Map<String, String> capture = batched.getCapture();
+                if (capture != null && capture.containsKey(name)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Unknown variables are left as they are
+    private String substitute(String command, Map<String, String> variables) {
+        if (variables.isEmpty() || command.indexOf('$') < 0) {
+            return command;
+        }
+        Matcher matcher = VARIABLE.matcher(command);
+        StringBuffer result = new StringBuffer();
+        while (matcher.find()) {
+            String value = variables.get(matcher.group(1));
+            matcher.appendReplacement(result, Matcher.quoteReplacement(value == null ? matcher.group() : value));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private void capture(CommandStep step, String output, Map<String, String> variables) {
+        Map<String, String> capture = step.getCapture();
+        if (capture == null) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : capture.entrySet()) {
+            Matcher matcher = pattern(entry.getValue()).matcher(output);
+            if (matcher.find()) {
+                variables.put(entry.getKey(), firstLine(matcher.groupCount() > 0 ? matcher.group(1) : matcher.group()));
+            }
+        }
+    }
+
+    // A line break in a value would end the command it is substituted into and send the rest as another
+    private static String firstLine(String value) {
+        if (value == null) {
+            return null;
+        }
+        int end = StringUtils.indexOfAny(value, '\r', '\n');
+        return end < 0 ? value : value.substring(0, end);
+    }
+
+    private Pattern pattern(String regex) {
+        return patterns.computeIfAbsent(regex, Pattern::compile);
+    }
+
+    /**
+     * One step that ran.
+     */
+    public static class StepResult {
+        private final int index;
+        private final String command;
+        private final long timestamp;
+        private final long latency;
+        private final CommandReply reply;
+
+        private StepResult(int index, String command, long timestamp, long latency, CommandReply reply) {
+            this.index = index;
+            this.command = command;
+            this.timestamp = timestamp;
+            this.latency = latency;
+            this.reply = reply;
+        }
+
+        /**
+         * @return The position of the step in the script, from 0.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return The command as sent, with variables substituted.
+         */
+        public String getCommand() {
+            return command;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return Milliseconds from the previous prompt, or from sending, until this step's prompt.
+         */
+        public long getLatency() {
+            return latency;
+        }
+
+        public CommandReply getReply() {
+            return reply;
+        }
+    }
+}
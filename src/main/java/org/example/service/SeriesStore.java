@@ -0,0 +1,115 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.ExtractProperties;
+import org.example.dto.SeriesData;
+import org.example.dto.SeriesResolution;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Numeric samples extracted from command results, kept in memory per session and
+ * metric.
+ * <p>
+ * Extraction runs on every result, also on the ones change detection suppresses, so a
+ * series has a point per tick even while the output stays the same.
+ */
+@Component
+public class SeriesStore {
+
+    private static final Logger logger = LogManager.getLogger(SeriesStore.class);
+
+    private final ExtractProperties properties;
+    private final List<MetricExtractor> extractors = new ArrayList<>();
+    private final Map<UUID, Map<String, TimeSeries>> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * @throws IllegalArgumentException If an extractor definition is invalid.
+     */
+    @Autowired
+    public SeriesStore(ExtractProperties properties) {
+        this.properties = properties;
+        for (ExtractProperties.Extractor definition : properties.getExtractors()) {
+            extractors.add(new MetricExtractor(definition));
+        }
+        if (!extractors.isEmpty()) {
+            logger.info("Extracting metrics with {} extractors", extractors.size());
+        }
+    }
+
+    /**
+     * Runs the extractors of the command on its output and stores the samples.
+     */
+    public void record(UUID uuid, String command, long timestamp, String output) {
+        if (extractors.isEmpty() || output.isEmpty()) {
+            return;
+        }
+        Map<String, TimeSeries> series = null;
+        for (MetricExtractor extractor : extractors) {
+            if (!extractor.appliesTo(command)) {
+                continue;
+            }
+            if (series == null) {
+                series = sessions.computeIfAbsent(uuid, key -> new ConcurrentHashMap<>());
+            }
+            Map<String, TimeSeries> sessionSeries = series;
+            extractor.extract(output, (name, value) -> {
+                TimeSeries timeSeries = sessionSeries.get(name);
+                if (timeSeries == null) {
+                    if (sessionSeries.size() >= properties.getMaxSeriesPerSession()) {
+                        logger.debug("Session {} has {} series, dropping {}", uuid, sessionSeries.size(), name);
+                        return;
+                    }
+                    timeSeries = sessionSeries.computeIfAbsent(name, key -> new TimeSeries(properties.getRawCapacity(),
+                            properties.getMinuteCapacity(), properties.getHourCapacity()));
+                }
+                timeSeries.add(timestamp, value);
+            });
+        }
+    }
+
+    /**
+     * @return The series names of the session, sorted, or null if it has none.
+     */
+    public List<String> names(UUID uuid) {
+        Map<String, TimeSeries> series = sessions.get(uuid);
+        if (series == null) {
+            return null;
+        }
+        List<String> names = new ArrayList<>(series.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * @param resolution Null picks the finest resolution that covers {@code from}.
+     * @return The points in [from, to), or null if there is no such series.
+     */
+    public SeriesData query(UUID uuid, String name, long from, long to, SeriesResolution resolution) {
+        Map<String, TimeSeries> series = sessions.get(uuid);
+        TimeSeries timeSeries = series == null ? null : series.get(name);
+        if (timeSeries == null) {
+            return null;
+        }
+        SeriesData data = timeSeries.query(resolution == null ? timeSeries.resolutionFor(from) : resolution, from, to);
+        data.setSessionId(uuid);
+        data.setName(name);
+        return data;
+    }
+
+    public void forget(UUID uuid) {
+        sessions.remove(uuid);
+    }
+
+    public void clear() {
+        sessions.clear();
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.service;
+
+import com.jcraft.jsch.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.ConnectProperties;
+import org.example.dto.SessionInfo;
+import org.example.dto.SessionState;
+import org.example.dto.SessionTarget;
+import org.example.dto.TelnetStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects registered sessions on a pool of its own, so onboarding a large batch does
+ * not compete with the scheduled commands. Transient failures (SSH connect, channel
+ * open) are retried with jittered exponential backoff; a telnet refusal is final, whether
+ * the telnet client in the shell reports it or the SSH server refuses a direct channel.
+ * Attempts against a host whose circuit breaker is open fail without connecting.
+ */
+@Service
+public class SessionConnector {
+
+    private static final Logger logger = LogManager.getLogger(SessionConnector.class);
+
+    private final CustomFTPClient customFTPClient;
+    private final SshSessionPool sshSessionPool;
+    private final ConnectProperties properties;
+    private final HostCircuitBreakers circuitBreakers;
+    private final ScheduledExecutorService connectExecutor;
+
+    @Autowired
+    public SessionConnector(CustomFTPClient customFTPClient, SshSessionPool sshSessionPool, ConnectProperties properties,
+                            HostCircuitBreakers circuitBreakers) {
+        this.customFTPClient = customFTPClient;
+        this.sshSessionPool = sshSessionPool;
+        this.properties = properties;
+        this.circuitBreakers = circuitBreakers;
+        this.connectExecutor = Executors.newScheduledThreadPool(properties.getPoolSize());
+    }
+
+    /**
+     * Starts connecting the entry in the background.
+     *
+     * @return Completes with the final state once the entry connected, failed for good or was closed.
+     */
+    public CompletableFuture<SessionState> connect(SessionEntry entry) {
+        CompletableFuture<SessionState> result = new CompletableFuture<>();
+        connectExecutor.execute(() -> attempt(entry, 1, result));
+        return result;
+    }
+
+    private void attempt(SessionEntry entry, int attempt, CompletableFuture<SessionState> result) {
+        if (entry.getState() == SessionState.CONNECTING && !connectOnce(entry)) {
+            if (attempt < properties.getMaxAttempts() && entry.getState() == SessionState.CONNECTING) {
+                long delay = backoff(attempt);
+                logger.warn("Connect attempt {} for {}:{} failed, retrying in {} ms", attempt, entry.getHost(), entry.getTelnetPort(), delay);
+                connectExecutor.schedule(() -> attempt(entry, attempt + 1, result), delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+            entry.fail();
+        }
+        result.complete(entry.getState());
+    }
+
+    /**
+     * @return False if the attempt failed in a way that is worth retrying.
+     */
+    private boolean connectOnce(SessionEntry entry) {
+        SessionTarget target = entry.getTarget();
+        if (!circuitBreakers.tryAcquire(target.getHost())) {
+            logger.debug("Circuit breaker for {} is open, not connecting session {}", target.getHost(), entry.getUuid());
+            return false;
+        }
+        try {
+            // SSH
+            Optional<Session> session = sshSessionPool.acquire(target.getUserName(), target.getPassword(), target.getHost(), target.getPort());
+            if (session.isEmpty()) {
+                logger.error("Failed to establish SSH session for user: {} on host: {}", target.getUserName(), target.getHost());
+                circuitBreakers.onFailure(target.getHost());
+                return false;
+            }
+
+            // Telnet
+            TelnetStream telnetStream;
+            try {
+                telnetStream = customFTPClient.connectionTelnet(session.get(), target.getHost(), target.getTelnetPort(), target.getConnectionMode());
+            } catch (Exception e) {
+                sshSessionPool.release(session.get());
+                throw e;
+            }
+            SessionInfo sessionInfo = new SessionInfo(session.get(), target.getHost(), target.getTelnetPort(), telnetStream,
+                    entry.getUuid(), telnetStream.getIsConnect(), target.getCommand(), target.getWaitFor(), target.getTimeout());
+            if (!entry.complete(sessionInfo) || !entry.isConnected()) {
+                // Removed while connecting, or the telnet side refused
+                closeChannel(sessionInfo);
+            }
+            // A refusal still means the host is up, only connect errors count against it
+            circuitBreakers.onSuccess(target.getHost());
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to connect session {} to {}:{}", entry.getUuid(), entry.getHost(), entry.getTelnetPort(), e);
+            circuitBreakers.onFailure(target.getHost());
+            return false;
+        }
+    }
+
+    private long backoff(int attempt) {
+        long delay = Math.min(properties.getMaxBackoff(), properties.getInitialBackoff() << Math.min(attempt - 1, 20));
+        // Equal jitter, so a batch that failed together does not retry together
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Closes the telnet channel of a session, deletes its spill file and returns its SSH
+     * lease to the pool.
+     */
+    public void closeChannel(SessionInfo sessionInfo) {
+        TelnetStream telnetStream = sessionInfo.getTelnetStream();
+        telnetStream.getReader().close();
+        telnetStream.getChannel().disconnect();
+        telnetStream.getCapture().close();
+        // The SSH session is shared with other targets, the pool closes it once idle
+        sshSessionPool.release(sessionInfo.getSession());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectExecutor.shutdownNow();
+    }
+}
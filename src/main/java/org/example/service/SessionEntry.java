@@ -0,0 +1,164 @@
+package org.example.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.example.dto.SchedulerInfo;
+import org.example.dto.SessionInfo;
+import org.example.dto.SessionState;
+import org.example.dto.SessionTarget;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A session known to the {@link SessionRegistry}. It exists as soon as the connect is
+ * submitted, so it can be listed and removed while the connection is still pending.
+ * The entry outlives its connections: a reconnect replaces the {@link SessionInfo} but
+ * keeps the UUID, so clients and schedules do not notice.
+ */
+public class SessionEntry {
+
+    private final UUID uuid;
+    private final SessionTarget target;
+    private final AtomicReference<SessionState> state = new AtomicReference<>(SessionState.CONNECTING);
+    private volatile SessionInfo sessionInfo;
+    // Held while a command or probe talks to the device, only one may at a time
+    private final ReentrantLock exchangeLock = new ReentrantLock();
+    private volatile long lastActivity = System.nanoTime();
+    // Only touched by the supervisor
+    private volatile int probeFailures;
+    private volatile int reconnectAttempts;
+    private volatile long nextReconnectAt = System.nanoTime();
+
+    public SessionEntry(UUID uuid, SessionTarget target) {
+        this.uuid = uuid;
+        this.target = target;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public SessionTarget getTarget() {
+        return target;
+    }
+
+    public String getHost() {
+        return target.getHost();
+    }
+
+    public int getTelnetPort() {
+        return target.getTelnetPort();
+    }
+
+    /**
+     * @return The schedule group the session runs in.
+     */
+    public String getGroup() {
+        return StringUtils.isBlank(target.getGroup()) ? GroupScheduler.DEFAULT_GROUP : target.getGroup();
+    }
+
+    public SessionState getState() {
+        return state.get();
+    }
+
+    /**
+     * @return The connected session, or {@code null} while connecting or after a failed connect.
+     */
+    public SessionInfo getSessionInfo() {
+        return sessionInfo;
+    }
+
+    /**
+     * Records the outcome of the connect.
+     *
+     * @return False if the entry was closed in the meantime, the caller then owns the
+     * connection and has to tear it down.
+     */
+    public boolean complete(SessionInfo sessionInfo) {
+        this.sessionInfo = sessionInfo;
+        SessionState next = Boolean.TRUE.equals(sessionInfo.getIsConnect()) ? SessionState.CONNECTED : SessionState.FAILED;
+        return state.compareAndSet(SessionState.CONNECTING, next);
+    }
+
+    /**
+     * Marks a connecting or connected session as failed. Closed sessions stay closed.
+     */
+    public void fail() {
+        state.updateAndGet(current -> current == SessionState.CLOSED ? current : SessionState.FAILED);
+    }
+
+    /**
+     * @return The state the session was in before it was closed.
+     */
+    public SessionState close() {
+        return state.getAndSet(SessionState.CLOSED);
+    }
+
+    /**
+     * Marks a connected session as failed because its connection died.
+     *
+     * @return True for the one caller that made the transition and has to close the channel.
+     */
+    public boolean disconnected() {
+        return state.compareAndSet(SessionState.CONNECTED, SessionState.FAILED);
+    }
+
+    /**
+     * Moves a failed session back to connecting for another attempt.
+     *
+     * @return False if the session is not failed, e.g. it was closed meanwhile.
+     */
+    public boolean retry() {
+        return state.compareAndSet(SessionState.FAILED, SessionState.CONNECTING);
+    }
+
+    public ReentrantLock getExchangeLock() {
+        return exchangeLock;
+    }
+
+    /**
+     * Records that the device answered, which makes a liveness probe unnecessary for a while.
+     */
+    public void touch() {
+        lastActivity = System.nanoTime();
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    public int getProbeFailures() {
+        return probeFailures;
+    }
+
+    public void setProbeFailures(int probeFailures) {
+        this.probeFailures = probeFailures;
+    }
+
+    public int getReconnectAttempts() {
+        return reconnectAttempts;
+    }
+
+    public void setReconnectAttempts(int reconnectAttempts) {
+        this.reconnectAttempts = reconnectAttempts;
+    }
+
+    public long getNextReconnectAt() {
+        return nextReconnectAt;
+    }
+
+    public void setNextReconnectAt(long nextReconnectAt) {
+        this.nextReconnectAt = nextReconnectAt;
+    }
+
+    public boolean isConnected() {
+        return state.get() == SessionState.CONNECTED;
+    }
+
+    public SchedulerInfo toSchedulerInfo() {
+        SessionInfo info = sessionInfo;
+        boolean connected = isConnected() && info != null && info.getSession().isConnected();
+        return new SchedulerInfo(getHost(), getTelnetPort(), uuid, connected, getState(), getGroup(), target.getTags(), null);
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.service;
+
+import org.example.dto.SessionState;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe store of all sessions keyed by their UUID. Lookups and removals are O(1)
+ * and snapshots never wait for a connect in progress.
+ */
+@Component
+public class SessionRegistry {
+
+    private final Map<UUID, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    public void register(SessionEntry entry) {
+        sessions.put(entry.getUuid(), entry);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Registers the entry unless its UUID is taken.
+     *
+     * @return False if another entry has the UUID.
+     */
+    public boolean registerIfAbsent(SessionEntry entry) {
+        if (sessions.putIfAbsent(entry.getUuid(), entry) != null) {
+            return false;
+        }
+        version.incrementAndGet();
+        return true;
+    }
+
+    public SessionEntry get(UUID uuid) {
+        return sessions.get(uuid);
+    }
+
+    public SessionEntry remove(UUID uuid) {
+        SessionEntry entry = sessions.remove(uuid);
+        if (entry != null) {
+            version.incrementAndGet();
+        }
+        return entry;
+    }
+
+    public List<SessionEntry> snapshot() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    public List<SessionEntry> snapshot(SessionState state) {
+        List<SessionEntry> entries = new ArrayList<>();
+        sessions.values().forEach(entry -> {
+            if (entry.getState() == state) {
+                entries.add(entry);
+            }
+        });
+        return entries;
+    }
+
+    public boolean isEmpty() {
+        return sessions.isEmpty();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public void clear() {
+        sessions.clear();
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return A number that changes whenever a session is added or removed.
+     */
+    public long version() {
+        return version.get();
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.SupervisorProperties;
+import org.example.dto.SessionInfo;
+import org.example.dto.SessionState;
+import org.example.dto.TelnetStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps registered sessions connected. Every check it looks at each session:
+ * <ul>
+ *     <li>a connected session whose SSH session or channel is gone is marked failed,</li>
+ *     <li>one the device has not answered for a while gets a telnet probe, and is marked
+ *     failed after several probes in a row go unanswered,</li>
+ *     <li>a failed session is reconnected in the background once its backoff has passed.</li>
+ * </ul>
+ * Reconnects reuse the {@link SessionEntry}, so the UUID and the schedule of the session
+ * stay the same. SSH level keepalives are sent by the sessions themselves, see
+ * {@link SshSessionPool}.
+ */
+@Service
+public class SessionSupervisor {
+
+    private static final Logger logger = LogManager.getLogger(SessionSupervisor.class);
+
+    private final SessionRegistry sessionRegistry;
+    private final SessionConnector sessionConnector;
+    private final CustomFTPClient customFTPClient;
+    private final SupervisorProperties properties;
+    private final AtomicInteger reconnectsInFlight = new AtomicInteger();
+    private final Set<UUID> probing = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService probeExecutor;
+
+    @Autowired
+    public SessionSupervisor(SessionRegistry sessionRegistry, SessionConnector sessionConnector,
+                             CustomFTPClient customFTPClient, SupervisorProperties properties) {
+        this.sessionRegistry = sessionRegistry;
+        this.sessionConnector = sessionConnector;
+        this.customFTPClient = customFTPClient;
+        this.properties = properties;
+        this.probeExecutor = Executors.newFixedThreadPool(properties.getProbePoolSize());
+        checker.scheduleWithFixedDelay(this::check, properties.getCheckInterval(), properties.getCheckInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks a connected session as failed and closes what is left of its connection.
+     * Safe to call from several places for the same session, only the first one closes.
+     */
+    public void markDead(SessionEntry entry, String reason) {
+        SessionInfo sessionInfo = entry.getSessionInfo();
+        if (!entry.disconnected()) {
+            return;
+        }
+        logger.warn("Session {} to {}:{} is dead ({}), reconnecting in the background", entry.getUuid(), entry.getHost(),
+                entry.getTelnetPort(), reason);
+        entry.setNextReconnectAt(System.nanoTime());
+        sessionConnector.closeChannel(sessionInfo);
+    }
+
+    private void check() {
+        try {
+            long now = System.nanoTime();
+            for (SessionEntry entry : sessionRegistry.snapshot()) {
+                SessionState state = entry.getState();
+                if (state == SessionState.CONNECTED) {
+                    checkConnected(entry, now);
+                } else if (state == SessionState.FAILED && now - entry.getNextReconnectAt() >= 0) {
+                    reconnect(entry);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Session check failed", e);
+        }
+    }
+
+    private void checkConnected(SessionEntry entry, long now) {
+        SessionInfo sessionInfo = entry.getSessionInfo();
+        if (!sessionInfo.getSession().isConnected()) {
+            markDead(entry, "SSH session closed");
+            return;
+        }
+        if (sessionInfo.getTelnetStream().getChannel().isClosed()) {
+            markDead(entry, "channel closed");
+            return;
+        }
+        long probeInterval = TimeUnit.MILLISECONDS.toNanos(properties.getProbeInterval());
+        // At most one probe per session queued or running, however slow the probes are
+        if (probeInterval > 0 && now - entry.getLastActivity() > probeInterval && probing.add(entry.getUuid())) {
+            probeExecutor.execute(() -> {
+                try {
+                    probe(entry);
+                } finally {
+                    probing.remove(entry.getUuid());
+                }
+            });
+        }
+    }
+
+    private void probe(SessionEntry entry) {
+        ReentrantLock lock = entry.getExchangeLock();
+        // A command is running, which tells us more than a probe would
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            SessionInfo sessionInfo = entry.getSessionInfo();
+            if (!entry.isConnected()) {
+                return;
+            }
+            TelnetStream telnetStream = sessionInfo.getTelnetStream();
+            if (customFTPClient.probe(telnetStream, properties.getProbePrompt(), properties.getProbeTimeout())) {
+                entry.setProbeFailures(0);
+                entry.touch();
+                return;
+            }
+            int failures = entry.getProbeFailures() + 1;
+            entry.setProbeFailures(failures);
+            logger.warn("Probe {} of session {} to {}:{} went unanswered", failures, entry.getUuid(), entry.getHost(), entry.getTelnetPort());
+            if (failures >= properties.getProbeFailures()) {
+                markDead(entry, failures + " probes unanswered");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reconnect(SessionEntry entry) {
+        if (reconnectsInFlight.get() >= properties.getMaxReconnects() || !entry.retry()) {
+            return;
+        }
+        reconnectsInFlight.incrementAndGet();
+        entry.setProbeFailures(0);
+        // Set before connecting, the entry is failed again before the callback below runs
+        int attempts = entry.getReconnectAttempts() + 1;
+        entry.setReconnectAttempts(attempts);
+        entry.setNextReconnectAt(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff(attempts)));
+        sessionConnector.connect(entry).whenComplete((state, e) -> {
+            reconnectsInFlight.decrementAndGet();
+            if (state == SessionState.CONNECTED) {
+                entry.setReconnectAttempts(0);
+                entry.touch();
+                logger.info("Session {} to {}:{} reconnected", entry.getUuid(), entry.getHost(), entry.getTelnetPort());
+            }
+        });
+    }
+
+    private long backoff(int attempts) {
+        long delay = Math.min(properties.getReconnectMaxBackoff(), properties.getReconnectInitialBackoff() << Math.min(attempts - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checker.shutdownNow();
+        probeExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.ShutdownProperties;
+import org.example.dto.SessionInfo;
+import org.example.dto.TelnetStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Disconnects sessions in parallel within a deadline.
+ * <p>
+ * Each session first waits for a command that is still talking to the device, then
+ * quits the device politely and closes its channel. Whatever has not finished by the
+ * deadline is closed forcibly, so a few hung devices cannot hold up a stop or a
+ * redeploy.
+ */
+@Component
+public class SessionTeardown {
+
+    private static final Logger logger = LogManager.getLogger(SessionTeardown.class);
+
+    private static final String QUIT_COMMAND = "q";
+    private static final String QUIT_CONFIRMATION = "closed by foreign host.";
+
+    private final CustomFTPClient customFTPClient;
+    private final SessionConnector sessionConnector;
+    private final ShutdownProperties properties;
+    private final ThreadPoolExecutor workers;
+
+    @Autowired
+    public SessionTeardown(CustomFTPClient customFTPClient, SessionConnector sessionConnector, ShutdownProperties properties) {
+        this.customFTPClient = customFTPClient;
+        this.sessionConnector = sessionConnector;
+        this.properties = properties;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(properties.getPoolSize(), properties.getPoolSize(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "session-teardown-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Disconnects sessions that were connected until the caller closed their entries.
+     *
+     * @param entries       The sessions, already in state CLOSED.
+     * @param timeoutMillis How long to wait before force-closing the rest.
+     * @return The number of sessions that had to be force-closed.
+     */
+    public int disconnect(List<SessionEntry> entries, long timeoutMillis) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        // Whoever removes an entry closes its channel, so it is released exactly once
+        Set<SessionEntry> open = ConcurrentHashMap.newKeySet();
+        open.addAll(entries);
+        CountDownLatch done = new CountDownLatch(entries.size());
+        for (SessionEntry entry : entries) {
+            workers.execute(() -> {
+                try {
+                    quit(entry, deadline);
+                    if (open.remove(entry)) {
+                        sessionConnector.closeChannel(entry.getSessionInfo());
+                    }
+                } catch (Exception e) {
+                    logger.error("Error while disconnecting {}:{}", entry.getHost(), entry.getTelnetPort(), e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        try {
+            done.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int forced = 0;
+        for (SessionEntry entry : entries) {
+            if (open.remove(entry)) {
+                sessionConnector.closeChannel(entry.getSessionInfo());
+                forced++;
+            }
+        }
+        if (forced > 0) {
+            logger.warn("Force-closed {} of {} sessions that did not disconnect within {} ms", forced, entries.size(), timeoutMillis);
+        }
+        return forced;
+    }
+
+    private void quit(SessionEntry entry, long deadline) {
+        SessionInfo sessionInfo = entry.getSessionInfo();
+        ReentrantLock lock = entry.getExchangeLock();
+        try {
+            // Let a running command finish instead of cutting it off
+            if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            TelnetStream telnetStream = sessionInfo.getTelnetStream();
+            if (!sessionInfo.getSession().isConnected() || telnetStream.getChannel().isClosed()) {
+                return;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return;
+            }
+            customFTPClient.runCommand(telnetStream, QUIT_COMMAND, QUIT_CONFIRMATION, Math.min(properties.getQuitTimeout(), remaining));
+            telnetStream.getOutputStream().close();
+        } catch (IOException e) {
+            logger.debug("Error while quitting {}:{}. Error: {}", entry.getHost(), entry.getTelnetPort(), e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
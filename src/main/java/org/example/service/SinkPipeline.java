@@ -0,0 +1,193 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.SinkProperties;
+import org.example.dto.CommandResult;
+import org.example.dto.SinkInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The queue and writer thread of one {@link ResultSink}.
+ * <p>
+ * The queue is a lock-free linked queue bounded by a counter: a publisher reserves a
+ * slot with one atomic increment and never takes a lock. The writer thread collects
+ * results into batches of up to {@code batch-size} and writes a partial batch once its
+ * oldest result has waited {@code flush-interval}. It parks while there is nothing to
+ * do and is woken when the queue stops being empty or a batch fills up.
+ */
+public class SinkPipeline {
+
+    private static final Logger logger = LogManager.getLogger(SinkPipeline.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final ResultSink sink;
+    private final SinkProperties.Pipeline settings;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushNanos;
+    private final Queue<CommandResult> queue = new ConcurrentLinkedQueue<>();
+    // Reserved slots, so it can be ahead of the queue's contents for a moment
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean stopping;
+
+    public SinkPipeline(ResultSink sink, SinkProperties.Pipeline settings) {
+        this.sink = sink;
+        this.settings = settings;
+        this.capacity = Math.max(1, settings.getQueueCapacity());
+        this.batchSize = Math.max(1, settings.getBatchSize());
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, settings.getFlushInterval()));
+        this.writer = new Thread(this::run, "sink-" + sink.getName());
+        this.writer.setDaemon(true);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Queues a result, applying the overflow policy if the queue is full. Only the
+     * BLOCK policy ever waits, and at most {@code block-timeout}.
+     */
+    public void publish(CommandResult result) {
+        if (stopping) {
+            dropped.incrementAndGet();
+            return;
+        }
+        published.incrementAndGet();
+        switch (settings.getOverflowPolicy()) {
+            case BLOCK:
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getBlockTimeout());
+                while (!tryAdd(result)) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                return;
+            case SAMPLE:
+                if (size.get() >= capacity / 2 && published.get() % Math.max(1, settings.getSampleRate()) != 0
+                        || !tryAdd(result)) {
+                    dropped.incrementAndGet();
+                }
+                return;
+            default:
+                while (!tryAdd(result)) {
+                    if (queue.poll() != null) {
+                        size.decrementAndGet();
+                        dropped.incrementAndGet();
+                    }
+                }
+        }
+    }
+
+    public void stop() {
+        stopping = true;
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Waits for the writer to finish the queue, then closes the sink.
+     *
+     * @return False if the writer did not finish in time; it is interrupted and what is left is lost.
+     */
+    public boolean awaitTermination(long timeoutMillis) {
+        try {
+            writer.join(Math.max(1, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean finished = !writer.isAlive();
+        if (!finished) {
+            writer.interrupt();
+            logger.warn("Sink {} did not finish in time, {} queued results are lost", sink.getName(), size.get());
+        }
+        try {
+            sink.close();
+        } catch (Exception e) {
+            logger.error("Failed to close sink {}. Error: {}", sink.getName(), e.getMessage(), e);
+        }
+        return finished;
+    }
+
+    public SinkInfo toInfo() {
+        return new SinkInfo(sink.getName(), settings.getOverflowPolicy(), size.get(), capacity, published.get(),
+                written.get(), dropped.get(), failed.get());
+    }
+
+    private boolean tryAdd(CommandResult result) {
+        int reserved = size.incrementAndGet();
+        if (reserved > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+        queue.offer(result);
+        if (reserved == 1 || reserved == batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void run() {
+        List<CommandResult> batch = new ArrayList<>(batchSize);
+        long batchStart = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            CommandResult result;
+            while (batch.size() < batchSize && (result = queue.poll()) != null) {
+                size.decrementAndGet();
+                if (batch.isEmpty()) {
+                    batchStart = System.nanoTime();
+                }
+                batch.add(result);
+            }
+            // Read before the checks, so results queued before stop() are still written
+            boolean stop = stopping;
+            if (!batch.isEmpty() && (batch.size() >= batchSize || stop || System.nanoTime() - batchStart >= flushNanos)) {
+                write(batch);
+                batch.clear();
+                continue;
+            }
+            if (stop) {
+                if (queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            LockSupport.parkNanos(this, batch.isEmpty() ? IDLE_PARK_NANOS : flushNanos - (System.nanoTime() - batchStart));
+        }
+    }
+
+    private void write(List<CommandResult> batch) {
+        try {
+            sink.write(batch);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            logger.warn("Sink {} failed to write {} results. Error: {}", sink.getName(), batch.size(), e.getMessage());
+            return;
+        }
+        if (size.get() == 0) {
+            try {
+                sink.flush();
+            } catch (Exception e) {
+                logger.warn("Sink {} failed to flush. Error: {}", sink.getName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.service;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.SshPoolProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps authenticated SSH sessions per (host, port, user, password) so that many telnet
+ * targets behind the same jump host share one session instead of each paying for TCP,
+ * key exchange and authentication. A target only ever gets a session that was
+ * authenticated with its own password; the pool keeps a keyed hash of it, not the
+ * password itself.
+ * <p>
+ * A session hands out at most {@code maxChannelsPerSession} leases; once all pooled
+ * sessions of a key are full another one is opened. Sessions that dropped are
+ * replaced on the next acquire and idle ones are closed in the background.
+ */
+@Service
+public class SshSessionPool {
+
+    private static final Logger logger = LogManager.getLogger(SshSessionPool.class);
+    private static final String CREDENTIAL_HASH = "HmacSHA256";
+
+    private final CustomFTPClient customFTPClient;
+    private final SshPoolProperties properties;
+    private final Map<Key, List<PooledSession>> sessionsByKey = new ConcurrentHashMap<>();
+    private final Map<Session, PooledSession> leases = new ConcurrentHashMap<>();
+    // Random per pool, so the hashes in the keys are of no use outside this process
+    private final SecretKeySpec credentialKey;
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ssh-pool-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public SshSessionPool(CustomFTPClient customFTPClient, SshPoolProperties properties) {
+        this.customFTPClient = customFTPClient;
+        this.properties = properties;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.credentialKey = new SecretKeySpec(secret, CREDENTIAL_HASH);
+        evictor.scheduleWithFixedDelay(this::evictIdle, properties.getEvictionInterval(), properties.getEvictionInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a connected session for the given credentials, opening one if every pooled
+     * session of that key is dead or already carries the maximum number of channels.
+     * Connects for the same key are serialized, so a burst of targets behind one jump
+     * host results in a single handshake.
+     *
+     * @return The leased session or an empty optional if the connection fails.
+     */
+    public Optional<Session> acquire(final String username, final String password, final String host, final int port) {
+        final Key key = new Key(host, port, username, credentialHash(password));
+        final List<PooledSession> sessions = sessionsByKey.computeIfAbsent(key, k -> new ArrayList<>());
+        synchronized (sessions) {
+            removeDisconnected(sessions);
+            for (PooledSession pooled : sessions) {
+                if (pooled.channels < properties.getMaxChannelsPerSession()) {
+                    pooled.channels++;
+                    return Optional.of(pooled.session);
+                }
+            }
+            Optional<Session> session = customFTPClient.connectionSession(username, password, host, port);
+            session.ifPresent(created -> {
+                keepAlive(created);
+                PooledSession pooled = new PooledSession(key, created);
+                pooled.channels++;
+                sessions.add(pooled);
+                leases.put(created, pooled);
+            });
+            return session;
+        }
+    }
+
+    private String credentialHash(final String password) {
+        try {
+            Mac mac = Mac.getInstance(CREDENTIAL_HASH);
+            mac.init(credentialKey);
+            return Base64.getEncoder().encodeToString(mac.doFinal(String.valueOf(password).getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void keepAlive(final Session session) {
+        if (properties.getKeepaliveInterval() <= 0) {
+            return;
+        }
+        try {
+            // Also becomes the socket read timeout, the session thread sends a keepalive whenever it fires
+            session.setServerAliveInterval(properties.getKeepaliveInterval());
+            session.setServerAliveCountMax(properties.getKeepaliveCountMax());
+        } catch (JSchException e) {
+            logger.warn("Failed to enable keepalive for {}:{}: {}", session.getHost(), session.getPort(), e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a lease taken with {@link #acquire}. The session stays open for other
+     * targets and is closed by the evictor once it has been idle long enough.
+     */
+    public void release(final Session session) {
+        final PooledSession pooled = leases.get(session);
+        if (pooled == null) {
+            return;
+        }
+        synchronized (sessionsByKey.get(pooled.key)) {
+            pooled.channels = Math.max(0, pooled.channels - 1);
+            if (pooled.channels == 0) {
+                pooled.idleSince = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void evictIdle() {
+        final long now = System.currentTimeMillis();
+        sessionsByKey.values().forEach(sessions -> {
+            synchronized (sessions) {
+                removeDisconnected(sessions);
+                Iterator<PooledSession> iterator = sessions.iterator();
+                while (iterator.hasNext()) {
+                    PooledSession pooled = iterator.next();
+                    if (pooled.channels == 0 && now - pooled.idleSince > properties.getIdleTimeout()) {
+                        iterator.remove();
+                        leases.remove(pooled.session);
+                        pooled.session.disconnect();
+                        logger.info("Closed idle SSH session to {}:{}", pooled.session.getHost(), pooled.session.getPort());
+                    }
+                }
+            }
+        });
+    }
+
+    private void removeDisconnected(final List<PooledSession> sessions) {
+        sessions.removeIf(pooled -> {
+            if (pooled.session.isConnected()) {
+                return false;
+            }
+            leases.remove(pooled.session);
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdownNow();
+        sessionsByKey.values().forEach(sessions -> {
+            synchronized (sessions) {
+                sessions.forEach(pooled -> pooled.session.disconnect());
+                sessions.clear();
+            }
+        });
+        leases.clear();
+    }
+
+    private record Key(String host, int port, String username, String credentialHash) {
+    }
+
+    private static final class PooledSession {
+        private final Key key;
+        private final Session session;
+        private int channels;
+        private long idleSince = System.currentTimeMillis();
+
+        private PooledSession(Key key, Session session) {
+            this.key = key;
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.config.ImportProperties;
+import org.example.dto.ImportError;
+import org.example.dto.ImportFormat;
+import org.example.dto.ImportReport;
+import org.example.dto.SessionState;
+import org.example.dto.SessionTarget;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Imports targets from a request body with one target per line, NDJSON or CSV.
+ * <p>
+ * The body is read line by line and each target starts connecting as soon as its line
+ * is parsed, so memory does not grow with the size of the inventory. At most
+ * {@code import.max-in-flight} connects are pending; while they are all taken reading
+ * pauses, which pushes back on the client. A line that cannot be parsed or validated is
+ * reported with its number and does not stop the import.
+ */
+@Service
+public class TargetImporter {
+
+    private static final Logger logger = LogManager.getLogger(TargetImporter.class);
+
+    private static final String TAGS = "tags";
+
+    private final ClusterService clusterService;
+    private final ObjectMapper objectMapper;
+    private final ImportProperties properties;
+    private final ObjectReader targetReader;
+
+    @Autowired
+    public TargetImporter(ClusterService clusterService, ObjectMapper objectMapper, ImportProperties properties) {
+        this.clusterService = clusterService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.targetReader = objectMapper.readerFor(SessionTarget.class).with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    }
+
+    /**
+     * Reads every target from {@code in}, connects them and waits for the connects
+     * still pending at the end of the input.
+     *
+     * @throws IOException If reading the input fails.
+     */
+    public ImportReport importTargets(InputStream in, ImportFormat format) throws IOException {
+        Progress progress = new Progress(properties.getMaxErrors());
+        int maxInFlight = Math.max(1, properties.getMaxInFlight());
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        LineReader reader = new LineReader(new InputStreamReader(in, StandardCharsets.UTF_8), properties.getMaxLineLength());
+        List<String> header = null;
+        try {
+            String line;
+            while ((line = reader.next()) != null) {
+                long number = reader.getNumber();
+                if (reader.isTooLong()) {
+                    progress.line();
+                    progress.reject(number, "Line is longer than " + properties.getMaxLineLength() + " characters");
+                    continue;
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                progress.line();
+                SessionTarget target;
+                try {
+                    if (format == ImportFormat.CSV && header == null) {
+                        header = splitCsv(line);
+                        continue;
+                    }
+                    target = format == ImportFormat.CSV ? fromCsv(header, line) : targetReader.readValue(line);
+                    FTPService.validate(target);
+                } catch (JsonProcessingException e) {
+                    progress.reject(number, describe(e));
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    progress.reject(number, e.getMessage());
+                    continue;
+                }
+                inFlight.acquire();
+                progress.imported();
+                try {
+                    clusterService.connectTarget(target).whenComplete((state, e) -> {
+                        progress.connected(number, target, e == null ? state : SessionState.FAILED);
+                        inFlight.release();
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+            // Only the tail of the import can still be pending
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Import interrupted after {} lines", reader.getNumber());
+        }
+        ImportReport report = progress.toReport();
+        logger.info("Imported {} targets from {} lines, {} rejected, {} connected, {} failed", report.getImported(),
+                report.getLines(), report.getRejected(), report.getConnected(), report.getFailed());
+        return report;
+    }
+
+    // Points at the field for binding errors, at the column for syntax errors
+    private static String describe(JsonProcessingException e) {
+        if (e instanceof JsonMappingException && !((JsonMappingException) e).getPath().isEmpty()) {
+            List<JsonMappingException.Reference> path = ((JsonMappingException) e).getPath();
+            return "Field " + path.get(path.size() - 1).getFieldName() + ": " + e.getOriginalMessage();
+        }
+        if (e.getLocation() != null && e.getLocation().getColumnNr() > 0) {
+            return "Column " + e.getLocation().getColumnNr() + ": " + e.getOriginalMessage();
+        }
+        return e.getOriginalMessage();
+    }
+
+    private SessionTarget fromCsv(List<String> header, String line) throws IOException {
+        List<String> fields = splitCsv(line);
+        if (fields.size() > header.size()) {
+            throw new IllegalArgumentException("Line has " + fields.size() + " fields, the header names " + header.size());
+        }
+        ObjectNode node = objectMapper.createObjectNode();
+        for (int i = 0; i < fields.size(); i++) {
+            String value = fields.get(i);
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (TAGS.equals(header.get(i))) {
+                ArrayNode tags = node.putArray(TAGS);
+                for (String tag : value.split(";")) {
+                    if (!tag.trim().isEmpty()) {
+                        tags.add(tag.trim());
+                    }
+                }
+            } else {
+                node.put(header.get(i), value);
+            }
+        }
+        return targetReader.readValue(node);
+    }
+
+    /**
+     * Splits one CSV line. Fields may be quoted, with {@code ""} for a quote inside;
+     * quoted line breaks are not supported.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * Reads lines without ever buffering more than the line limit, the rest of a
+     * longer line is skipped.
+     */
+    private static final class LineReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private long number;
+        private boolean tooLong;
+
+        private LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * @return The next line without its line break, or null at the end of the input.
+         */
+        private String next() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = reader.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        break;
+                    }
+                }
+                read = true;
+                char c = buffer[position++];
+                if (c == '\n') {
+                    break;
+                }
+                if (line.length() < maxLength) {
+                    line.append(c);
+                } else {
+                    tooLong = true;
+                }
+            }
+            if (!read) {
+                return null;
+            }
+            number++;
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(length - 1);
+            }
+            // A byte order mark some editors put in front of the first line
+            if (number == 1 && line.length() > 0 && line.charAt(0) == '\uFEFF') {
+                line.deleteCharAt(0);
+            }
+            return line.toString();
+        }
+
+        private long getNumber() {
+            return number;
+        }
+
+        private boolean isTooLong() {
+            return tooLong;
+        }
+    }
+
+    /**
+     * Counts of one import, updated by the reading thread and by connect callbacks.
+     */
+    private static final class Progress {
+        private final int maxErrors;
+        private final ImportReport report = new ImportReport();
+
+        private Progress(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private synchronized void line() {
+            report.setLines(report.getLines() + 1);
+        }
+
+        private synchronized void imported() {
+            report.setImported(report.getImported() + 1);
+        }
+
+        private synchronized void reject(long line, String message) {
+            report.setRejected(report.getRejected() + 1);
+            error(line, message);
+        }
+
+        private synchronized void connected(long line, SessionTarget target, SessionState state) {
+            if (state == SessionState.CONNECTED) {
+                report.setConnected(report.getConnected() + 1);
+            } else if (state == SessionState.FAILED) {
+                report.setFailed(report.getFailed() + 1);
+                error(line, target.getHost() + ":" + target.getTelnetPort() + " did not connect, retrying in the background");
+            }
+        }
+
+        private void error(long line, String message) {
+            if (report.getErrors().size() < maxErrors) {
+                report.getErrors().add(new ImportError(line, message));
+            } else {
+                report.setErrorsDropped(report.getErrorsDropped() + 1);
+            }
+        }
+
+        private synchronized ImportReport toReport() {
+            ImportReport copy = new ImportReport();
+            copy.setLines(report.getLines());
+            copy.setImported(report.getImported());
+            copy.setRejected(report.getRejected());
+            copy.setConnected(report.getConnected());
+            copy.setFailed(report.getFailed());
+            copy.setErrors(new ArrayList<>(report.getErrors()));
+            copy.setErrorsDropped(report.getErrorsDropped());
+            return copy;
+        }
+    }
+}
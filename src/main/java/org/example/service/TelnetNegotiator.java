@@ -0,0 +1,133 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Minimal telnet protocol handling for channels that reach the device directly.
+ * <p>
+ * Option negotiation is stripped from the incoming stream and answered on the channel:
+ * the device may echo and suppress go-ahead, every other option is refused.
+ * Subnegotiations are dropped. Plain data is passed on to the {@link ChannelReader}.
+ */
+public class TelnetNegotiator extends OutputStream {
+
+    private static final int IAC = 255;
+    private static final int DONT = 254;
+    private static final int DO = 253;
+    private static final int WONT = 252;
+    private static final int WILL = 251;
+    private static final int SB = 250;
+    private static final int SE = 240;
+    private static final int OPTION_ECHO = 1;
+    private static final int OPTION_SUPPRESS_GO_AHEAD = 3;
+
+    private static final int STATE_DATA = 0;
+    private static final int STATE_IAC = 1;
+    private static final int STATE_OPTION = 2;
+    private static final int STATE_SUBNEGOTIATION = 3;
+    private static final int STATE_SUBNEGOTIATION_IAC = 4;
+
+    private final ChannelReader reader;
+    private final TelnetOutputStream channelOutput;
+    // Options we already answered per verb, so a chatty device cannot make us loop
+    private final boolean[][] answered = new boolean[4][256];
+
+    private int state = STATE_DATA;
+    private int verb;
+
+    /**
+     * @param reader        Receives the data bytes.
+     * @param channelOutput The channel's output stream used to answer negotiation.
+     */
+    public TelnetNegotiator(final ChannelReader reader, final TelnetOutputStream channelOutput) {
+        this.reader = reader;
+        this.channelOutput = channelOutput;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        int dataStart = offset;
+        final int limit = offset + length;
+        for (int i = offset; i < limit; i++) {
+            final int b = bytes[i] & 0xFF;
+            switch (state) {
+                case STATE_DATA:
+                    if (b != IAC) {
+                        continue;
+                    }
+                    flushData(bytes, dataStart, i);
+                    state = STATE_IAC;
+                    break;
+                case STATE_IAC:
+                    if (b == IAC) {
+                        // Escaped 0xFF is data, keep it as the start of the next run
+                        dataStart = i;
+                        state = STATE_DATA;
+                        continue;
+                    }
+                    if (b >= WILL && b <= DONT) {
+                        verb = b;
+                        state = STATE_OPTION;
+                    } else if (b == SB) {
+                        state = STATE_SUBNEGOTIATION;
+                    } else {
+                        state = STATE_DATA;
+                    }
+                    break;
+                case STATE_OPTION:
+                    answer(verb, b);
+                    state = STATE_DATA;
+                    break;
+                case STATE_SUBNEGOTIATION:
+                    if (b == IAC) {
+                        state = STATE_SUBNEGOTIATION_IAC;
+                    }
+                    break;
+                default:
+                    state = b == SE ? STATE_DATA : STATE_SUBNEGOTIATION;
+                    break;
+            }
+            dataStart = i + 1;
+        }
+        if (state == STATE_DATA) {
+            flushData(bytes, dataStart, limit);
+        }
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+
+    private void flushData(final byte[] bytes, final int from, final int to) {
+        if (to > from) {
+            reader.write(bytes, from, to - from);
+        }
+    }
+
+    private void answer(final int verb, final int option) throws IOException {
+        if (answered[verb - WILL][option]) {
+            return;
+        }
+        answered[verb - WILL][option] = true;
+        final int reply;
+        switch (verb) {
+            case WILL:
+                reply = option == OPTION_ECHO || option == OPTION_SUPPRESS_GO_AHEAD ? DO : DONT;
+                break;
+            case DO:
+                reply = option == OPTION_SUPPRESS_GO_AHEAD ? WILL : WONT;
+                break;
+            default:
+                // WONT / DONT need no answer since we never asked for anything
+                return;
+        }
+        channelOutput.writeCommand(reply, option);
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The sending side of a direct telnet channel. Data bytes of 0xFF are doubled, so the
+ * device does not read them as IAC, and option replies go out unescaped. Every write
+ * holds this stream's monitor, so replies written from the SSH session thread never
+ * land in the middle of a command.
+ */
+public class TelnetOutputStream extends OutputStream {
+
+    private static final int IAC = 255;
+
+    private final OutputStream channelOutput;
+
+    public TelnetOutputStream(final OutputStream channelOutput) {
+        this.channelOutput = channelOutput;
+    }
+
+    @Override
+    public synchronized void write(final int b) throws IOException {
+        if ((b & 0xFF) == IAC) {
+            channelOutput.write(IAC);
+        }
+        channelOutput.write(b);
+    }
+
+    @Override
+    public synchronized void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        int start = offset;
+        final int limit = offset + length;
+        for (int i = offset; i < limit; i++) {
+            if ((bytes[i] & 0xFF) == IAC) {
+                // Up to and including the 0xFF, which then goes out a second time with the next run
+                channelOutput.write(bytes, start, i + 1 - start);
+                start = i;
+            }
+        }
+        channelOutput.write(bytes, start, limit - start);
+    }
+
+    /**
+     * Sends IAC, the verb and the option as they are and flushes them.
+     */
+    public synchronized void writeCommand(final int verb, final int option) throws IOException {
+        channelOutput.write(new byte[]{(byte) IAC, (byte) verb, (byte) option});
+        channelOutput.flush();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        channelOutput.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channelOutput.close();
+    }
+}
@@ -0,0 +1,246 @@
+package org.example.service;
+
+import org.example.dto.SeriesData;
+import org.example.dto.SeriesResolution;
+
+import java.util.Arrays;
+
+/**
+ * The samples of one metric of one session at three resolutions: raw, per minute and
+ * per hour.
+ * <p>
+ * Each resolution is a ring of parallel primitive arrays that grows on demand up to
+ * its capacity and then overwrites its oldest points, so a point costs a few array
+ * slots and no object. A sample goes into the raw ring and is folded into the current
+ * minute and hour buckets, which keep min, max, sum and count; the newest bucket is
+ * still open and is included in queries.
+ * <p>
+ * Samples of one session come from its ticks one at a time, queries may run at any
+ * time, so every method is synchronized.
+ */
+public class TimeSeries {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final RawRing raw;
+    private final BucketRing minutes;
+    private final BucketRing hours;
+
+    public TimeSeries(int rawCapacity, int minuteCapacity, int hourCapacity) {
+        this.raw = new RawRing(Math.max(1, rawCapacity));
+        this.minutes = new BucketRing(Math.max(1, minuteCapacity), SeriesResolution.MINUTE.getMillis());
+        this.hours = new BucketRing(Math.max(1, hourCapacity), SeriesResolution.HOUR.getMillis());
+    }
+
+    public synchronized void add(long timestamp, double value) {
+        // Keep the rings sorted if the clock steps back
+        long time = raw.size > 0 ? Math.max(timestamp, raw.lastTimestamp()) : timestamp;
+        raw.add(time, value);
+        minutes.add(time, value);
+        hours.add(time, value);
+    }
+
+    /**
+     * @return The finest resolution that still holds points from {@code from} on.
+     */
+    public synchronized SeriesResolution resolutionFor(long from) {
+        if (raw.size == 0 || raw.firstTimestamp() <= from || !raw.full()) {
+            return SeriesResolution.RAW;
+        }
+        if (minutes.firstTimestamp() <= from || !minutes.full()) {
+            return SeriesResolution.MINUTE;
+        }
+        return SeriesResolution.HOUR;
+    }
+
+    /**
+     * @return A copy of the points in [from, to), without session and name.
+     */
+    public synchronized SeriesData query(SeriesResolution resolution, long from, long to) {
+        if (resolution == SeriesResolution.RAW) {
+            return raw.copy(from, to);
+        }
+        return (resolution == SeriesResolution.MINUTE ? minutes : hours).copy(from, to, resolution);
+    }
+
+    // Positions are logical, from the oldest point at 0; the arrays start at physical index head
+    private abstract static class Ring {
+        final int capacity;
+        int head;
+        int size;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+        }
+
+        abstract int length();
+
+        abstract void grow(int length);
+
+        abstract long timestampAt(int slot);
+
+        boolean full() {
+            return size == capacity;
+        }
+
+        int slot(int position) {
+            int slot = head + position;
+            return slot >= length() ? slot - length() : slot;
+        }
+
+        // Slot for a new point, dropping the oldest one when the ring is at capacity
+        int append() {
+            if (size == length() && length() < capacity) {
+                grow(Math.min(capacity, Math.max(INITIAL_CAPACITY, length() * 2)));
+            }
+            if (size == capacity) {
+                int slot = head;
+                head = slot(1);
+                return slot;
+            }
+            return slot(size++);
+        }
+
+        long firstTimestamp() {
+            return timestampAt(head);
+        }
+
+        long lastTimestamp() {
+            return timestampAt(slot(size - 1));
+        }
+
+        // Position of the first point at or after the time
+        int search(long time) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestampAt(slot(mid)) < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class RawRing extends Ring {
+        private long[] timestamps = new long[0];
+        private double[] values = new double[0];
+
+        private RawRing(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        int length() {
+            return timestamps.length;
+        }
+
+        // Only called while the ring is not wrapped, so head is 0
+        @Override
+        void grow(int length) {
+            timestamps = Arrays.copyOf(timestamps, length);
+            values = Arrays.copyOf(values, length);
+        }
+
+        @Override
+        long timestampAt(int slot) {
+            return timestamps[slot];
+        }
+
+        private void add(long timestamp, double value) {
+            int slot = append();
+            timestamps[slot] = timestamp;
+            values[slot] = value;
+        }
+
+        private SeriesData copy(long from, long to) {
+            int first = search(from);
+            int count = search(to) - first;
+            long[] resultTimestamps = new long[count];
+            double[] resultValues = new double[count];
+            for (int i = 0; i < count; i++) {
+                int slot = slot(first + i);
+                resultTimestamps[i] = timestamps[slot];
+                resultValues[i] = values[slot];
+            }
+            return new SeriesData(null, null, SeriesResolution.RAW, resultTimestamps, resultValues, null, null, null);
+        }
+    }
+
+    private static final class BucketRing extends Ring {
+        private final long width;
+        // Bucket numbers since the epoch, an int lasts for thousands of years even per minute
+        private int[] buckets = new int[0];
+        private double[] min = new double[0];
+        private double[] max = new double[0];
+        private double[] sum = new double[0];
+        private int[] counts = new int[0];
+
+        private BucketRing(int capacity, long width) {
+            super(capacity);
+            this.width = width;
+        }
+
+        @Override
+        int length() {
+            return buckets.length;
+        }
+
+        @Override
+        void grow(int length) {
+            buckets = Arrays.copyOf(buckets, length);
+            min = Arrays.copyOf(min, length);
+            max = Arrays.copyOf(max, length);
+            sum = Arrays.copyOf(sum, length);
+            counts = Arrays.copyOf(counts, length);
+        }
+
+        @Override
+        long timestampAt(int slot) {
+            return buckets[slot] * width;
+        }
+
+        private void add(long timestamp, double value) {
+            int bucket = (int) (timestamp / width);
+            if (size > 0) {
+                int last = slot(size - 1);
+                if (buckets[last] == bucket) {
+                    min[last] = Math.min(min[last], value);
+                    max[last] = Math.max(max[last], value);
+                    sum[last] += value;
+                    counts[last]++;
+                    return;
+                }
+            }
+            int slot = append();
+            buckets[slot] = bucket;
+            min[slot] = value;
+            max[slot] = value;
+            sum[slot] = value;
+            counts[slot] = 1;
+        }
+
+        // A bucket is included if it overlaps the range
+        private SeriesData copy(long from, long to, SeriesResolution resolution) {
+            int first = search(from - width + 1);
+            int count = search(to) - first;
+            long[] resultTimestamps = new long[count];
+            double[] means = new double[count];
+            double[] mins = new double[count];
+            double[] maxes = new double[count];
+            int[] resultCounts = new int[count];
+            for (int i = 0; i < count; i++) {
+                int slot = slot(first + i);
+                resultTimestamps[i] = buckets[slot] * width;
+                means[i] = sum[slot] / counts[slot];
+                mins[i] = min[slot];
+                maxes[i] = max[slot];
+                resultCounts[i] = counts[slot];
+            }
+            return new SeriesData(null, null, resolution, resultTimestamps, means, mins, maxes, resultCounts);
+        }
+    }
+}
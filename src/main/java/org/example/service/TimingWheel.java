@@ -0,0 +1,192 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel for large numbers of one-shot timers.
+ * <p>
+ * A single thread advances the wheel one slot per tick and hands expired tasks to an
+ * executor, so scheduling costs O(1) and ten thousand pending timers need no more than
+ * ten thousand small objects. Deadlines are rounded up to the next tick. Slots are only
+ * touched by the wheel thread; new and cancelled timers reach it through a queue and a
+ * flag respectively.
+ */
+public class TimingWheel {
+
+    private static final Logger logger = LogManager.getLogger(TimingWheel.class);
+
+    private final long tickNanos;
+    private final Slot[] wheel;
+    private final int mask;
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean stopped;
+
+    /**
+     * @param tickMillis Resolution of the wheel.
+     * @param wheelSize  Number of slots, rounded up to a power of two.
+     * @param executor   Runs the expired tasks.
+     * @param name       Name of the wheel thread.
+     */
+    public TimingWheel(final long tickMillis, final int wheelSize, final Executor executor, final String name) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        final int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * @param task        Handed to the executor once the delay has passed.
+     * @param delayMillis How long to wait, at least one tick.
+     * @return A handle to cancel the timer.
+     */
+    public Timeout schedule(final Runnable task, final long delayMillis) {
+        final Timeout timeout = new Timeout(task, System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the wheel thread. Pending timers never fire.
+     */
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!stopped) {
+            final long deadline = (tick + 1) * tickNanos;
+            long sleep = deadline - (System.nanoTime() - startTime);
+            while (sleep > 0 && !stopped) {
+                LockSupport.parkNanos(this, sleep);
+                sleep = deadline - (System.nanoTime() - startTime);
+            }
+            if (stopped) {
+                break;
+            }
+            transferPending(tick);
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+        pending.clear();
+    }
+
+    private void transferPending(final long currentTick) {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            final long due = (timeout.deadline + tickNanos - 1) / tickNanos;
+            // Already overdue timers go into the current slot and fire on this tick
+            final long target = Math.max(due, currentTick);
+            timeout.remainingRounds = (target - currentTick) / wheel.length;
+            wheel[(int) (target & mask)].add(timeout);
+        }
+    }
+
+    private void expire(final Slot slot) {
+        Timeout timeout = slot.head;
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            if (timeout.cancelled) {
+                slot.remove(timeout);
+            } else if (timeout.remainingRounds <= 0) {
+                slot.remove(timeout);
+                dispatch(timeout);
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private void dispatch(final Timeout timeout) {
+        try {
+            executor.execute(timeout.task);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Executor rejected an expired timer, it is shutting down");
+        } catch (RuntimeException e) {
+            logger.error("Failed to dispatch an expired timer", e);
+        }
+    }
+
+    /**
+     * A scheduled task. Cancelling is a flag; the wheel drops the timer when it next looks at it.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private volatile boolean cancelled;
+
+        private Timeout(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class Slot {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(final Timeout timeout) {
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(final Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.next = null;
+            timeout.prev = null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.interceptor;
+
+import org.example.config.ClusterProperties;
+import org.example.service.ClusterSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterAuthFilterTest {
+
+    private static final byte[] BODY = "[]".getBytes(StandardCharsets.UTF_8);
+
+    private ClusterSigner signer;
+    private ClusterAuthFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        ClusterProperties properties = new ClusterProperties();
+        properties.setSecret(Base64.getEncoder().encodeToString(new byte[32]));
+        properties.setMaxRequestSize(1024);
+        signer = new ClusterSigner(properties);
+        filter = new ClusterAuthFilter(signer, properties);
+    }
+
+    @Test
+    void passesSignedRequest() throws Exception {
+        MockHttpServletRequest request = request("/ftp/cluster/adopt");
+        request.addHeader(ClusterSigner.HEADER, signer.sign("POST", "/ftp/cluster/adopt", null, BODY));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+        assertEquals(Boolean.TRUE, request.getAttribute(ClusterAuthFilter.VERIFIED_ATTRIBUTE));
+    }
+
+    @Test
+    void rejectsUnsignedRequestWhateverThePathSpelling() throws Exception {
+        String[] paths = {
+                "/ftp/cluster/adopt",
+                "/ftp;x/cluster/adopt",
+                "/ftp/%63luster/remove",
+                "/ftp/cluster;a/exec",
+                "/ftp/cluster/exec;jsessionid=1",
+                "/ftp//cluster/remove",
+                "/%66tp/cluster/adopt",
+                "/ftp/cluster",
+        };
+        for (String path : paths) {
+            MockHttpServletRequest request = request(path);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+
+            filter.doFilter(request, response, chain);
+
+            assertNull(chain.getRequest(), path);
+            assertEquals(401, response.getStatus(), path);
+        }
+    }
+
+    @Test
+    void rejectsSignatureForAnotherPath() throws Exception {
+        MockHttpServletRequest request = request("/ftp/cluster;a/exec");
+        request.addHeader(ClusterSigner.HEADER, signer.sign("POST", "/ftp/cluster/status", null, BODY));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(401, response.getStatus());
+    }
+
+    @Test
+    void leavesOtherEndpointsAlone() throws Exception {
+        MockHttpServletRequest request = request("/ftp/clusters");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertSame(request, chain.getRequest());
+        assertNull(request.getAttribute(ClusterAuthFilter.VERIFIED_ATTRIBUTE));
+    }
+
+    @Test
+    void interceptorRefusesRequestsTheFilterDidNotVerify() {
+        ClusterAuthInterceptor interceptor = new ClusterAuthInterceptor();
+        MockHttpServletRequest request = request("/ftp/cluster/adopt");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request, response, null));
+        assertEquals(401, response.getStatus());
+
+        request.setAttribute(ClusterAuthFilter.VERIFIED_ATTRIBUTE, Boolean.TRUE);
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setContent(BODY);
+        return request;
+    }
+}
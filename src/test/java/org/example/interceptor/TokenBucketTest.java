@@ -0,0 +1,123 @@
+package org.example.interceptor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    // Ten requests per second
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final long EMISSION = INTERVAL / 10;
+    private static final long BURST = INTERVAL - EMISSION;
+    private static final long START = 1_000_000_000_000L;
+
+    @Test
+    void fullBucketAdmitsOneBurst() {
+        TokenBucket bucket = new TokenBucket(START);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bucket.tryAcquire(START, EMISSION, BURST), "request " + (i + 1));
+        }
+        assertFalse(bucket.tryAcquire(START, EMISSION, BURST));
+        assertEquals(EMISSION, bucket.waitTime(START, BURST));
+    }
+
+    @Test
+    void refillsOneRequestPerEmissionInterval() {
+        TokenBucket bucket = new TokenBucket(START);
+        for (int i = 0; i < 10; i++) {
+            bucket.tryAcquire(START, EMISSION, BURST);
+        }
+
+        assertFalse(bucket.tryAcquire(START + EMISSION - 1, EMISSION, BURST));
+        assertTrue(bucket.tryAcquire(START + EMISSION, EMISSION, BURST));
+        assertFalse(bucket.tryAcquire(START + EMISSION, EMISSION, BURST));
+        assertTrue(bucket.tryAcquire(START + 2 * EMISSION, EMISSION, BURST));
+    }
+
+    @Test
+    void steadyRateAtTheLimitIsNeverRefused() {
+        TokenBucket bucket = new TokenBucket(START);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(bucket.tryAcquire(START + i * EMISSION, EMISSION, BURST), "request " + (i + 1));
+            assertEquals(0, bucket.waitTime(START + i * EMISSION, BURST));
+        }
+    }
+
+    @Test
+    void fasterRateIsCappedAtTheLimitAfterTheBurst() {
+        TokenBucket bucket = new TokenBucket(START);
+        int admitted = 0;
+        // Four times the limit for ten seconds
+        for (long now = START; now < START + 10 * INTERVAL; now += EMISSION / 4) {
+            if (bucket.tryAcquire(now, EMISSION, BURST)) {
+                admitted++;
+            }
+        }
+
+        // The burst at once, then one per emission interval from 0.1 s up to 9.9 s
+        assertEquals(10 + 99, admitted);
+    }
+
+    @Test
+    void idleTimeDoesNotBuildMoreThanOneBurst() {
+        TokenBucket bucket = new TokenBucket(START);
+        long later = START + 60 * INTERVAL;
+
+        int admitted = 0;
+        while (bucket.tryAcquire(later, EMISSION, BURST)) {
+            admitted++;
+        }
+
+        assertEquals(10, admitted);
+    }
+
+    @Test
+    void concurrentRequestsShareOneBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(START);
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire(START, EMISSION, BURST)) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(10, admitted.get());
+    }
+
+    @Test
+    void isIdleOnceFullAgainForTheIdleTime() {
+        TokenBucket bucket = new TokenBucket(START);
+        bucket.tryAcquire(START, EMISSION, BURST);
+
+        assertFalse(bucket.isIdle(START + EMISSION, INTERVAL));
+        assertTrue(bucket.isIdle(START + EMISSION + INTERVAL + 1, INTERVAL));
+    }
+}
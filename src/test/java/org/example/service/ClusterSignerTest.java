@@ -0,0 +1,105 @@
+package org.example.service;
+
+import org.example.config.ClusterProperties;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterSignerTest {
+
+    private static final byte[] BODY = "[{\"host\":\"10.0.0.1\"}]".getBytes(StandardCharsets.UTF_8);
+
+    private final ClusterSigner signer = signer(new byte[32]);
+
+    @Test
+    void acceptsTheRequestItSigned() {
+        String header = signer.sign("POST", "/ftp/cluster/adopt", "force=true", BODY);
+
+        assertTrue(signer.verify(header, "POST", "/ftp/cluster/adopt", "force=true", BODY));
+    }
+
+    @Test
+    void refusesAReplay() {
+        String header = signer.sign("POST", "/ftp/cluster/adopt", null, BODY);
+
+        assertTrue(signer.verify(header, "POST", "/ftp/cluster/adopt", null, BODY));
+        assertFalse(signer.verify(header, "POST", "/ftp/cluster/adopt", null, BODY));
+    }
+
+    @Test
+    void signsEveryRequestWithItsOwnNonce() {
+        assertNotEquals(signer.sign("GET", "/ftp/cluster/sessions", null, null), signer.sign("GET", "/ftp/cluster/sessions", null, null));
+    }
+
+    @Test
+    void refusesAnyChangeToTheRequest() {
+        String header = signer.sign("POST", "/ftp/cluster/adopt", "force=true", BODY);
+
+        assertFalse(signer.verify(header, "PUT", "/ftp/cluster/adopt", "force=true", BODY));
+        assertFalse(signer.verify(header, "POST", "/ftp/cluster/remove", "force=true", BODY));
+        assertFalse(signer.verify(header, "POST", "/ftp/cluster/adopt", "force=false", BODY));
+        assertFalse(signer.verify(header, "POST", "/ftp/cluster/adopt", null, BODY));
+        assertFalse(signer.verify(header, "POST", "/ftp/cluster/adopt", "force=true", "[]".getBytes(StandardCharsets.UTF_8)));
+        // Still unused, the refusals above must not have been remembered
+        assertTrue(signer.verify(header, "POST", "/ftp/cluster/adopt", "force=true", BODY));
+    }
+
+    @Test
+    void refusesSignaturesOutsideTheSkew() {
+        long now = System.currentTimeMillis();
+
+        assertFalse(verifiesSignedAt(now - 61000));
+        assertFalse(verifiesSignedAt(now + 61000));
+        assertTrue(verifiesSignedAt(now - 30000));
+        assertTrue(verifiesSignedAt(now + 30000));
+    }
+
+    @Test
+    void refusesATamperedTime() {
+        String header = signer.sign("GET", "/ftp/cluster/sessions", null, null);
+        long time = Long.parseLong(header.substring(0, header.indexOf(':')));
+        String moved = (time + 1) + header.substring(header.indexOf(':'));
+
+        assertFalse(signer.verify(moved, "GET", "/ftp/cluster/sessions", null, null));
+    }
+
+    @Test
+    void refusesAnotherSecret() {
+        byte[] otherKey = new byte[32];
+        otherKey[0] = 1;
+        String header = signer(otherKey).sign("GET", "/ftp/cluster/sessions", null, null);
+
+        assertFalse(signer.verify(header, "GET", "/ftp/cluster/sessions", null, null));
+    }
+
+    @Test
+    void refusesMalformedHeaders() {
+        assertFalse(signer.verify(null, "GET", "/ftp/cluster/sessions", null, null));
+        assertFalse(signer.verify("", "GET", "/ftp/cluster/sessions", null, null));
+        assertFalse(signer.verify("abc:nonce:mac", "GET", "/ftp/cluster/sessions", null, null));
+        assertFalse(signer.verify(System.currentTimeMillis() + "::mac", "GET", "/ftp/cluster/sessions", null, null));
+    }
+
+    @Test
+    void unconfiguredSignerAcceptsNothing() {
+        ClusterSigner unconfigured = new ClusterSigner(new ClusterProperties());
+
+        assertFalse(unconfigured.isConfigured());
+        assertFalse(unconfigured.verify(signer.sign("GET", "/ftp/cluster/sessions", null, null), "GET", "/ftp/cluster/sessions", null, null));
+    }
+
+    private boolean verifiesSignedAt(long time) {
+        return signer.verify(signer.sign(time, "GET", "/ftp/cluster/sessions", null, null), "GET", "/ftp/cluster/sessions", null, null);
+    }
+
+    private static ClusterSigner signer(byte[] key) {
+        ClusterProperties properties = new ClusterProperties();
+        properties.setSecret(Base64.getEncoder().encodeToString(key));
+        return new ClusterSigner(properties);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmitterSendersTest {
+
+    private final EmitterSenders senders = new EmitterSenders("test-watchdog", 1, 100);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        senders.shutdown();
+    }
+
+    @Test
+    void stalledClientDoesNotHoldTheOnlySender() throws Exception {
+        AtomicBoolean expired = new AtomicBoolean();
+        AtomicReference<Exception> stalledError = new AtomicReference<>();
+        EmitterSenders.Stream stalled = senders.stream(new StalledEmitter(), () -> expired.set(true));
+        senders.execute(() -> {
+            try {
+                stalled.send(SseEmitter.event().name("result"));
+            } catch (Exception e) {
+                stalledError.set(e);
+            }
+        });
+
+        AtomicInteger delivered = new AtomicInteger();
+        EmitterSenders.Stream healthy = senders.stream(new CountingEmitter(delivered), () -> {
+        });
+        CountDownLatch done = new CountDownLatch(1);
+        senders.execute(() -> {
+            try {
+                healthy.send(SseEmitter.event().name("result"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            done.countDown();
+        });
+
+        assertTrue(done.await(2, TimeUnit.SECONDS), "healthy client waited for the stalled one");
+        assertEquals(1, delivered.get());
+        assertTrue(expired.get());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (stalledError.get() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertInstanceOf(IllegalStateException.class, stalledError.get());
+    }
+
+    @Test
+    void fastClientIsNeverExpired() throws Exception {
+        AtomicBoolean expired = new AtomicBoolean();
+        AtomicInteger delivered = new AtomicInteger();
+        EmitterSenders.Stream stream = senders.stream(new CountingEmitter(delivered), () -> expired.set(true));
+        for (int i = 0; i < 5; i++) {
+            stream.send(SseEmitter.event().name("result"));
+            Thread.sleep(40);
+        }
+        assertEquals(5, delivered.get());
+        assertFalse(expired.get());
+    }
+
+    // Blocks like a client that stopped reading, ignoring interrupts as a servlet container may
+    private final class StalledEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder builder) {
+            boolean done = false;
+            while (!done) {
+                try {
+                    done = release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // keep blocking
+                }
+            }
+        }
+    }
+
+    private static final class CountingEmitter extends SseEmitter {
+        private final AtomicInteger delivered;
+
+        private CountingEmitter(AtomicInteger delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            delivered.incrementAndGet();
+        }
+    }
+}
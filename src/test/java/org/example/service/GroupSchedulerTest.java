@@ -0,0 +1,191 @@
+package org.example.service;
+
+import org.example.config.SchedulerProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupSchedulerTest {
+
+    private final Map<UUID, AtomicInteger> ticks = new ConcurrentHashMap<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger overlaps = new AtomicInteger();
+    // Ticks wait here while it is set, to keep a run going
+    private volatile CountDownLatch gate;
+    private volatile long tickMillis;
+    private GroupScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.setTickDuration(5);
+        properties.setWheelSize(64);
+        properties.setShedLag(0);
+        scheduler = new GroupScheduler(properties, (uuid, budget) -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            try {
+                ticks.computeIfAbsent(uuid, key -> new AtomicInteger()).incrementAndGet();
+                CountDownLatch waitFor = gate;
+                if (waitFor != null) {
+                    waitFor.await(5, TimeUnit.SECONDS);
+                }
+                if (tickMillis > 0) {
+                    Thread.sleep(tickMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void configuringAgainRearmsPendingTicks() throws InterruptedException {
+        UUID session = UUID.randomUUID();
+        scheduler.configure("g", 0, 60000, 0);
+        scheduler.schedule(session, "g", null);
+        awaitTicks(session, 1, 1000);
+
+        scheduler.configure("g", 0, 50, 0);
+
+        awaitTicks(session, 3, 1000);
+    }
+
+    @Test
+    void pauseStopsTicksUntilResumed() throws InterruptedException {
+        UUID session = UUID.randomUUID();
+        scheduler.configure("g", 0, 20, 0);
+        scheduler.schedule(session, "g", null);
+        awaitTicks(session, 2, 1000);
+
+        assertTrue(scheduler.pause("g"));
+        Thread.sleep(30);
+        int paused = count(session);
+        Thread.sleep(150);
+        assertEquals(paused, count(session));
+
+        assertTrue(scheduler.resume("g"));
+        awaitTicks(session, paused + 2, 1000);
+    }
+
+    @Test
+    void pauseAndResumeLeaveOneTimer() throws InterruptedException {
+        UUID session = UUID.randomUUID();
+        scheduler.configure("g", 50, 60000, 0);
+        scheduler.schedule(session, "g", null);
+
+        // The timer armed by schedule belongs to an older generation once resume arms again
+        scheduler.pause("g");
+        scheduler.resume("g");
+        awaitTicks(session, 1, 1000);
+        Thread.sleep(150);
+
+        assertEquals(1, count(session));
+    }
+
+    @Test
+    void resizeWhilePendingReplacesTheTimer() throws InterruptedException {
+        UUID session = UUID.randomUUID();
+        scheduler.configure("g", 50, 60000, 0);
+        scheduler.schedule(session, "g", null);
+
+        assertTrue(scheduler.resize("g", 60000, 0));
+        Thread.sleep(200);
+
+        assertEquals(0, count(session));
+    }
+
+    @Test
+    void resizeWhileRunningAppliesToNextTick() throws InterruptedException {
+        UUID session = UUID.randomUUID();
+        gate = new CountDownLatch(1);
+        scheduler.configure("g", 0, 30, 0);
+        scheduler.schedule(session, "g", null);
+        awaitTicks(session, 1, 1000);
+
+        // The running tick is not armed, so resize leaves it and it arms itself when done
+        assertTrue(scheduler.resize("g", 60000, 0));
+        gate.countDown();
+        Thread.sleep(200);
+
+        assertEquals(1, count(session));
+    }
+
+    @Test
+    void ticksOfOneSessionNeverOverlap() throws InterruptedException {
+        UUID session = UUID.randomUUID();
+        tickMillis = 30;
+        scheduler.configure("g", 0, 10, 0);
+        scheduler.schedule(session, "g", null);
+
+        awaitTicks(session, 4, 2000);
+
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    void unscheduledSessionStopsTicking() throws InterruptedException {
+        UUID session = UUID.randomUUID();
+        scheduler.configure("g", 0, 20, 0);
+        scheduler.schedule(session, "g", null);
+        awaitTicks(session, 1, 1000);
+
+        scheduler.unschedule(session);
+        Thread.sleep(30);
+        int unscheduled = count(session);
+        Thread.sleep(150);
+
+        assertEquals(unscheduled, count(session));
+    }
+
+    @Test
+    void sessionWaitsForItsGroupToBeConfigured() throws InterruptedException {
+        UUID session = UUID.randomUUID();
+        scheduler.schedule(session, "later", null);
+        Thread.sleep(50);
+        assertEquals(0, count(session));
+
+        scheduler.configure("later", 0, 60000, 0);
+
+        awaitTicks(session, 1, 1000);
+    }
+
+    @Test
+    void unknownGroupIsReported() {
+        assertFalse(scheduler.pause("missing"));
+        assertFalse(scheduler.resume("missing"));
+        assertFalse(scheduler.resize("missing", 10, 0));
+    }
+
+    private void awaitTicks(UUID session, int expected, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (count(session) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(count(session) >= expected, "expected " + expected + " ticks, got " + count(session));
+    }
+
+    private int count(UUID session) {
+        AtomicInteger count = ticks.get(session);
+        return count == null ? 0 : count.get();
+    }
+}
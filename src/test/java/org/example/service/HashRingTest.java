@@ -0,0 +1,94 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashRingTest {
+
+    private static final int KEYS = 20000;
+    private static final int VIRTUAL_NODES = 128;
+
+    @Test
+    void emptyRingHasNoOwner() {
+        assertNull(new HashRing(Collections.emptyList(), VIRTUAL_NODES).owner("10.0.0.1:22"));
+    }
+
+    @Test
+    void singleNodeOwnsEverything() {
+        HashRing ring = new HashRing(List.of("http://a:8080"), VIRTUAL_NODES);
+        for (String key : keys()) {
+            assertEquals("http://a:8080", ring.owner(key));
+        }
+    }
+
+    @Test
+    void ownershipDoesNotDependOnNodeOrderOrDuplicates() {
+        HashRing ring = new HashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080"), VIRTUAL_NODES);
+        HashRing shuffled = new HashRing(List.of("http://c:8080", "http://a:8080", "http://b:8080", "http://a:8080"), VIRTUAL_NODES);
+
+        assertEquals(List.of("http://a:8080", "http://b:8080", "http://c:8080"), shuffled.getNodes());
+        for (String key : keys()) {
+            assertEquals(ring.owner(key), shuffled.owner(key));
+        }
+    }
+
+    @Test
+    void spreadsKeysEvenly() {
+        List<String> nodes = List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080");
+        HashRing ring = new HashRing(nodes, VIRTUAL_NODES);
+        Map<String, Integer> counts = new HashMap<>();
+        for (String key : keys()) {
+            counts.merge(ring.owner(key), 1, Integer::sum);
+        }
+
+        for (String node : nodes) {
+            int count = counts.getOrDefault(node, 0);
+            assertTrue(count > KEYS / nodes.size() * 0.75 && count < KEYS / nodes.size() * 1.25, node + " owns " + count);
+        }
+    }
+
+    @Test
+    void joiningNodeOnlyTakesKeys() {
+        HashRing before = new HashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080"), VIRTUAL_NODES);
+        HashRing after = new HashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080"), VIRTUAL_NODES);
+        int moved = 0;
+        for (String key : keys()) {
+            String owner = after.owner(key);
+            if (!owner.equals(before.owner(key))) {
+                assertEquals("http://d:8080", owner, key + " moved between old nodes");
+                moved++;
+            }
+        }
+
+        assertTrue(moved > KEYS / 4 * 0.75 && moved < KEYS / 4 * 1.25, moved + " keys moved");
+    }
+
+    @Test
+    void leavingNodeOnlyGivesUpItsKeys() {
+        HashRing before = new HashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080"), VIRTUAL_NODES);
+        HashRing after = new HashRing(List.of("http://a:8080", "http://c:8080"), VIRTUAL_NODES);
+        for (String key : keys()) {
+            String owner = before.owner(key);
+            if (!owner.equals("http://b:8080")) {
+                assertEquals(owner, after.owner(key), key + " moved although its node stayed");
+            }
+        }
+    }
+
+    private static List<String> keys() {
+        List<String> keys = new ArrayList<>(KEYS);
+        for (int i = 0; i < KEYS; i++) {
+            keys.add("10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255) + ":22");
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    void prometheusExportsTotalsOverAllHosts() {
+        registry.forHost("10.0.0.1").recordCommand(TimeUnit.MILLISECONDS.toNanos(5), 100, false);
+        registry.forHost("10.0.0.2").recordCommand(TimeUnit.MILLISECONDS.toNanos(5), 50, true);
+        registry.forHost("10.0.0.2").recordFailedConnect();
+
+        String text = registry.prometheus();
+
+        assertTrue(text.contains("telnet_bytes_read_total{host=\"10.0.0.1\"} 100\n"), text);
+        assertTrue(text.contains("telnet_bytes_read_total{host=\"10.0.0.2\"} 50\n"), text);
+        assertTrue(text.contains("telnet_bytes_read_total{host=\"all\"} 150\n"), text);
+        assertTrue(text.contains("telnet_command_timeouts_total{host=\"all\"} 1\n"), text);
+        assertTrue(text.contains("telnet_failed_connects_total{host=\"all\"} 1\n"), text);
+        assertTrue(text.contains("telnet_command_seconds_count{host=\"all\"} 2\n"), text);
+    }
+
+    @Test
+    void prometheusExportsTotalsBeforeAnyHost() {
+        assertTrue(registry.prometheus().contains("telnet_results_emitted_total{host=\"all\"} 0\n"));
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.service;
+
+import org.example.config.TelnetProperties.OverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputCaptureTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("spill");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    void keepsOutputUpToTheCap() {
+        OutputCapture capture = new OutputCapture(4, OverflowPolicy.TRUNCATE, directory.toString(), 60000);
+        capture.reset();
+        write(capture, "abcdefgh");
+
+        assertEquals("abcd\n[output truncated, 4 bytes dropped]", capture.toString(StandardCharsets.UTF_8));
+        assertEquals(8, capture.totalBytes());
+        assertTrue(capture.isTruncated());
+    }
+
+    @Test
+    void earlierSpillFilesSurviveLaterCommands() throws IOException {
+        OutputCapture capture = new OutputCapture(4, OverflowPolicy.SPILL, directory.toString(), 60000);
+
+        capture.reset();
+        write(capture, "first output");
+        capture.toString(StandardCharsets.UTF_8);
+        Path first = capture.getSpillFile();
+
+        capture.reset();
+        write(capture, "second output");
+        capture.toString(StandardCharsets.UTF_8);
+        Path second = capture.getSpillFile();
+
+        capture.reset();
+        write(capture, "ok");
+        capture.toString(StandardCharsets.UTF_8);
+
+        assertNotEquals(first, second);
+        assertNull(capture.getSpillFile());
+        assertEquals("first output", Files.readString(first));
+        assertEquals("second output", Files.readString(second));
+    }
+
+    @Test
+    void sameOutputPointsToTheSameFile() throws IOException {
+        OutputCapture capture = new OutputCapture(4, OverflowPolicy.SPILL, directory.toString(), 60000);
+
+        capture.reset();
+        write(capture, "repeated output");
+        String first = capture.toString(StandardCharsets.UTF_8);
+        capture.reset();
+        write(capture, "repeated output");
+        String second = capture.toString(StandardCharsets.UTF_8);
+
+        assertEquals(first, second);
+        assertEquals(1, files());
+    }
+
+    @Test
+    void expiredFilesAreDeletedOnTheNextSpill() throws Exception {
+        OutputCapture capture = new OutputCapture(4, OverflowPolicy.SPILL, directory.toString(), 0);
+
+        capture.reset();
+        write(capture, "first output");
+        capture.toString(StandardCharsets.UTF_8);
+        Path first = capture.getSpillFile();
+        Thread.sleep(5);
+        capture.reset();
+        write(capture, "second output");
+        capture.toString(StandardCharsets.UTF_8);
+
+        assertFalse(Files.exists(first));
+        assertTrue(Files.exists(capture.getSpillFile()));
+    }
+
+    @Test
+    void closeDeletesEverySpillFile() throws IOException {
+        OutputCapture capture = new OutputCapture(4, OverflowPolicy.SPILL, directory.toString(), 60000);
+        for (String output : new String[]{"first output", "second output"}) {
+            capture.reset();
+            write(capture, output);
+            capture.toString(StandardCharsets.UTF_8);
+        }
+        capture.reset();
+        write(capture, "unfinished output");
+
+        capture.close();
+
+        assertEquals(0, files());
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static void write(OutputCapture capture, String output) {
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        // In two chunks, like output arriving over the channel
+        int split = Math.min(3, bytes.length);
+        capture.write(bytes, 0, split);
+        capture.write(bytes, split, bytes.length - split);
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.service;
+
+import org.example.config.DedupProperties;
+import org.example.config.DedupProperties.Mode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputChangeDetectorTest {
+
+    private static final UUID SESSION = UUID.randomUUID();
+    private static final String TABLE = "port 1  state UP\nport 2  state UP\nport 3  state UP\nport 4  state UP\n";
+
+    @Test
+    void suppressesUnchangedOutput() {
+        OutputChangeDetector detector = detector(Mode.SUPPRESS, 0);
+
+        assertEquals(OutputChangeDetector.Kind.FULL, detector.detect(SESSION, "show", "a", null).getKind());
+        OutputChangeDetector.Change again = detector.detect(SESSION, "show", "a", null);
+        assertTrue(again.isUnchanged());
+        assertNull(again.getOutput());
+        assertEquals(OutputChangeDetector.Kind.FULL, detector.detect(SESSION, "show", "b", null).getKind());
+    }
+
+    @Test
+    void masksVolatileParts() {
+        DedupProperties properties = new DedupProperties();
+        properties.setMode(Mode.SUPPRESS);
+        properties.setHeartbeat(0);
+        properties.setMasks(List.of("\\d{2}:\\d{2}:\\d{2}"));
+        OutputChangeDetector detector = new OutputChangeDetector(properties);
+
+        detector.detect(SESSION, "show", "time 10:00:00 ok", null);
+
+        assertTrue(detector.detect(SESSION, "show", "time 10:00:05 ok", null).isUnchanged());
+        assertEquals(OutputChangeDetector.Kind.FULL, detector.detect(SESSION, "show", "time 10:00:05 fail", null).getKind());
+    }
+
+    @Test
+    void diffCoversOnlyTheChangedRegion() {
+        OutputChangeDetector detector = detector(Mode.DIFF, 0);
+        detector.detect(SESSION, "show", TABLE, null);
+
+        OutputChangeDetector.Change change = detector.detect(SESSION, "show", TABLE.replace("port 2  state UP", "port 2  state DOWN"), null);
+
+        assertEquals(OutputChangeDetector.Kind.DIFF, change.getKind());
+        assertEquals("@@ -2,1 +2,1 @@\n-port 2  state UP\n+port 2  state DOWN\n", change.getOutput());
+    }
+
+    @Test
+    void diffOfAddedAndRemovedLines() {
+        OutputChangeDetector detector = detector(Mode.DIFF, 0);
+        String longer = TABLE + "port 5  state UP\n";
+        detector.detect(SESSION, "show", TABLE, null);
+
+        assertEquals("@@ -5,0 +5,1 @@\n+port 5  state UP\n", detector.detect(SESSION, "show", longer, null).getOutput());
+        assertEquals("@@ -5,1 +5,0 @@\n-port 5  state UP\n", detector.detect(SESSION, "show", TABLE, null).getOutput());
+    }
+
+    @Test
+    void sendsFullOutputWhenTheDiffIsNotShorter() {
+        OutputChangeDetector detector = detector(Mode.DIFF, 0);
+        detector.detect(SESSION, "show", "a", null);
+
+        OutputChangeDetector.Change change = detector.detect(SESSION, "show", "b", null);
+
+        assertEquals(OutputChangeDetector.Kind.FULL, change.getKind());
+        assertEquals("b", change.getOutput());
+    }
+
+    @Test
+    void heartbeatSendsFullOutputEvenWhenItChangesEveryTime() throws InterruptedException {
+        OutputChangeDetector detector = detector(Mode.DIFF, 50);
+        detector.detect(SESSION, "show", TABLE, null);
+        String current = TABLE;
+        long deadline = System.currentTimeMillis() + 2000;
+        OutputChangeDetector.Change change;
+        int tick = 0;
+        do {
+            Thread.sleep(10);
+            current = current.replaceFirst("state \\w+", "state " + tick++);
+            change = detector.detect(SESSION, "show", current, null);
+        } while (change.getKind() == OutputChangeDetector.Kind.DIFF && System.currentTimeMillis() < deadline);
+
+        assertEquals(OutputChangeDetector.Kind.FULL, change.getKind());
+        assertEquals(current, change.getOutput());
+    }
+
+    @Test
+    void heartbeatSendsUnchangedOutputInFull() throws InterruptedException {
+        OutputChangeDetector detector = detector(Mode.SUPPRESS, 30);
+        detector.detect(SESSION, "show", TABLE, null);
+        assertTrue(detector.detect(SESSION, "show", TABLE, null).isUnchanged());
+
+        Thread.sleep(40);
+
+        assertEquals(OutputChangeDetector.Kind.FULL, detector.detect(SESSION, "show", TABLE, null).getKind());
+    }
+
+    @Test
+    void commandsAndSessionsAreTrackedApart() {
+        OutputChangeDetector detector = detector(Mode.SUPPRESS, 0);
+        detector.detect(SESSION, "show", "a", null);
+
+        assertEquals(OutputChangeDetector.Kind.FULL, detector.detect(SESSION, "other", "a", null).getKind());
+        assertEquals(OutputChangeDetector.Kind.FULL, detector.detect(UUID.randomUUID(), "show", "a", null).getKind());
+        detector.forget(SESSION);
+        assertEquals(OutputChangeDetector.Kind.FULL, detector.detect(SESSION, "show", "a", null).getKind());
+    }
+
+    private static OutputChangeDetector detector(Mode mode, long heartbeat) {
+        DedupProperties properties = new DedupProperties();
+        properties.setMode(mode);
+        properties.setHeartbeat(heartbeat);
+        return new OutputChangeDetector(properties);
+    }
+}
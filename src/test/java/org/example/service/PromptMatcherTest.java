@@ -0,0 +1,115 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptMatcherTest {
+
+    @Test
+    void matchesWithinOneChunk() {
+        PromptMatcher matcher = new PromptMatcher("# ");
+        byte[] chunk = bytes("show run\r\nrouter# more");
+
+        assertEquals(18, matcher.feed(chunk, 0, chunk.length));
+        assertEquals(0, matcher.matched());
+    }
+
+    @Test
+    void matchesPromptSplitAcrossChunks() {
+        PromptMatcher matcher = new PromptMatcher("NES-SIP>");
+        byte[] first = bytes("output\r\nNES-");
+        byte[] second = bytes("SIP> trailing");
+
+        assertEquals(first.length, matcher.feed(first, 0, first.length));
+        assertFalse(matcher.isMatched());
+        assertEquals(4, matcher.feed(second, 0, second.length));
+        assertEquals(0, matcher.matched());
+    }
+
+    @Test
+    void matchesPromptSplitIntoSingleBytes() {
+        PromptMatcher matcher = new PromptMatcher("login:");
+        byte[] stream = bytes("xxlogin:");
+        for (int i = 0; i < stream.length - 1; i++) {
+            assertEquals(1, matcher.feed(stream, i, 1));
+            assertFalse(matcher.isMatched());
+        }
+        assertEquals(1, matcher.feed(stream, stream.length - 1, 1));
+        assertTrue(matcher.isMatched());
+    }
+
+    @Test
+    void fallsBackAfterPartialMatchAcrossChunks() {
+        // The third "a" breaks the match of "aab" but keeps "aa" as its start
+        PromptMatcher matcher = new PromptMatcher("aab");
+        byte[] first = bytes("xaa");
+        byte[] second = bytes("aab");
+
+        matcher.feed(first, 0, first.length);
+        assertFalse(matcher.isMatched());
+        assertEquals(3, matcher.feed(second, 0, second.length));
+        assertTrue(matcher.isMatched());
+    }
+
+    @Test
+    void reportsFirstPatternToComplete() {
+        PromptMatcher matcher = new PromptMatcher("]]>", "Password:", "> ");
+        byte[] first = bytes("enter Pass");
+        byte[] second = bytes("word: > ");
+
+        matcher.feed(first, 0, first.length);
+        assertEquals(5, matcher.feed(second, 0, second.length));
+        assertEquals(1, matcher.matched());
+    }
+
+    @Test
+    void honoursOffset() {
+        PromptMatcher matcher = new PromptMatcher("$ ");
+        byte[] chunk = bytes("$ skipped|ok$ ");
+
+        assertEquals(5, matcher.feed(chunk, 9, 5));
+        assertTrue(matcher.isMatched());
+    }
+
+    @Test
+    void resetDropsPartialMatch() {
+        PromptMatcher matcher = new PromptMatcher("ab");
+        byte[] first = bytes("a");
+        byte[] second = bytes("b");
+
+        matcher.feed(first, 0, first.length);
+        matcher.reset();
+        assertEquals(1, matcher.feed(second, 0, second.length));
+        assertFalse(matcher.isMatched());
+    }
+
+    @Test
+    void emptyPatternNeverMatches() {
+        PromptMatcher matcher = new PromptMatcher("");
+        byte[] chunk = bytes("anything");
+
+        assertEquals(chunk.length, matcher.feed(chunk, 0, chunk.length));
+        assertFalse(matcher.isMatched());
+    }
+
+    @Test
+    void matchesMultiByteCharactersSplitAcrossChunks() {
+        PromptMatcher matcher = new PromptMatcher("\u00e9>");
+        byte[] stream = bytes("caf\u00e9>");
+        int split = stream.length - 2;
+
+        matcher.feed(stream, 0, split);
+        assertFalse(matcher.isMatched());
+        assertEquals(2, matcher.feed(stream, split, 2));
+        assertTrue(matcher.isMatched());
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
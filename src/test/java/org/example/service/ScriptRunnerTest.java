@@ -0,0 +1,73 @@
+package org.example.service;
+
+import org.example.config.TelnetProperties;
+import org.example.dto.CommandStep;
+import org.example.dto.TelnetStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScriptRunnerTest {
+
+    private final List<String> sent = new ArrayList<>();
+    private final List<String> outputs = new ArrayList<>();
+    private final ScriptRunner runner = new ScriptRunner(new ScriptedClient(), 4);
+
+    @Test
+    void capturedValueStopsAtLineBreak() {
+        outputs.add("port 7\r\nreboot\r\n");
+        runner.run(null, Arrays.asList(step("show", Collections.singletonMap("port", "(?s)port (.*)")), step("open ${port}", null)),
+                false, ">", 1000, 0);
+
+        assertEquals(Arrays.asList("show", "open 7"), sent);
+    }
+
+    @Test
+    void wholeMatchStopsAtLineBreak() {
+        outputs.add("id=\nreboot");
+        runner.run(null, Arrays.asList(step("show", Collections.singletonMap("id", "id=\\s*\\S*")), step("use ${id}", null)),
+                false, ">", 1000, 0);
+
+        assertEquals(Arrays.asList("show", "use id="), sent);
+    }
+
+    @Test
+    void singleLineValueIsKept() {
+        outputs.add("name: core-1 \r\n");
+        runner.run(null, Arrays.asList(step("show", Collections.singletonMap("name", "name: (\\S+)")), step("ping ${name}", null)),
+                false, ">", 1000, 0);
+
+        assertEquals(Arrays.asList("show", "ping core-1"), sent);
+    }
+
+    private static CommandStep step(String command, Map<String, String> capture) {
+        CommandStep step = new CommandStep();
+        step.setCommand(command);
+        step.setCapture(capture);
+        return step;
+    }
+
+    // Answers each command with the next scripted output, or an empty one
+    private class ScriptedClient extends CustomFTPClient {
+
+        ScriptedClient() {
+            super(new TelnetProperties(), new MetricsRegistry());
+        }
+
+        @Override
+        public List<CommandReply> executePipelined(TelnetStream telnetStream, List<String> cmds, List<String> waitFors, long[] timeoutMillis) {
+            List<CommandReply> replies = new ArrayList<>();
+            for (String cmd : cmds) {
+                sent.add(cmd);
+                replies.add(new CommandReply(outputs.isEmpty() ? "" : outputs.remove(0), true));
+            }
+            return replies;
+        }
+    }
+}
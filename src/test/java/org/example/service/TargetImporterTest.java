@@ -0,0 +1,135 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ClusterProperties;
+import org.example.config.ImportProperties;
+import org.example.dto.ImportFormat;
+import org.example.dto.ImportReport;
+import org.example.dto.SessionState;
+import org.example.dto.SessionTarget;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TargetImporterTest {
+
+    private final List<SessionTarget> connected = Collections.synchronizedList(new ArrayList<>());
+    private final ImportProperties properties = new ImportProperties();
+    private final TargetImporter importer = new TargetImporter(new RecordingClusterService(), new ObjectMapper(), properties);
+
+    @Test
+    void csvHonoursQuotedFields() throws IOException {
+        ImportReport report = importCsv("host,command,waitFor,tags\r\n"
+                + "10.0.0.1,\"show, all\",\"say \"\"hi\"\"\",core;edge\r\n"
+                + "10.0.0.2,show,,\n");
+
+        assertEquals(3, report.getLines());
+        assertEquals(2, report.getImported());
+        assertEquals(0, report.getRejected());
+        SessionTarget first = find("10.0.0.1");
+        assertEquals("show, all", first.getCommand());
+        assertEquals("say \"hi\"", first.getWaitFor());
+        assertEquals(List.of("core", "edge"), first.getTags());
+        SessionTarget second = find("10.0.0.2");
+        assertEquals("show", second.getCommand());
+        assertNull(second.getWaitFor());
+    }
+
+    @Test
+    void csvRejectsBadLinesByNumber() throws IOException {
+        ImportReport report = importCsv("\uFEFFhost,command\n"
+                + "10.0.0.1,\"unterminated\n"
+                + "10.0.0.2,show,extra\n"
+                + "\n"
+                + "10.0.0.3,show\n");
+
+        assertEquals(4, report.getLines());
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getRejected());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertEquals("Unterminated quote", report.getErrors().get(0).getMessage());
+        assertEquals(3, report.getErrors().get(1).getLine());
+        assertEquals("10.0.0.3", connected.get(0).getHost());
+    }
+
+    @Test
+    void ndjsonReportsEachBadLineAndGoesOn() throws IOException {
+        ImportReport report = importNdjson("{\"host\":\"10.0.0.1\",\"command\":\"show\"}\n"
+                + "{\"host\":\"10.0.0.2\",\n"
+                + "{\"host\":\"10.0.0.3\",\"command\":\"show\",\"telnetPort\":\"x\"}\n"
+                + "{\"command\":\"show\"}\n"
+                + "{\"host\":\"10.0.0.5\",\"command\":\"show\"} {}\n"
+                + "{\"host\":\"10.0.0.6\",\"command\":\"show\"}");
+
+        assertEquals(6, report.getLines());
+        assertEquals(2, report.getImported());
+        assertEquals(4, report.getRejected());
+        assertEquals(List.of(2L, 3L, 4L, 5L), lines(report));
+        assertTrue(report.getErrors().get(1).getMessage().startsWith("Field telnetPort"), report.getErrors().get(1).getMessage());
+        assertEquals("host is required", report.getErrors().get(2).getMessage());
+        assertEquals(2, report.getConnected());
+    }
+
+    @Test
+    void overlongLineIsRejectedAndSkipped() throws IOException {
+        properties.setMaxLineLength(40);
+        ImportReport report = importNdjson("{\"host\":\"10.0.0.1\",\"command\":\"" + "x".repeat(100) + "\"}\n"
+                + "{\"host\":\"10.0.0.2\",\"command\":\"show\"}\n");
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getErrors().get(0).getLine());
+        assertEquals("10.0.0.2", connected.get(0).getHost());
+    }
+
+    @Test
+    void errorsBeyondTheLimitAreOnlyCounted() throws IOException {
+        properties.setMaxErrors(1);
+        ImportReport report = importNdjson("{}\n{}\n{}\n");
+
+        assertEquals(3, report.getRejected());
+        assertEquals(1, report.getErrors().size());
+        assertEquals(2, report.getErrorsDropped());
+    }
+
+    private ImportReport importCsv(String body) throws IOException {
+        return importer.importTargets(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+    }
+
+    private ImportReport importNdjson(String body) throws IOException {
+        return importer.importTargets(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON);
+    }
+
+    private SessionTarget find(String host) {
+        return connected.stream().filter(target -> host.equals(target.getHost())).findFirst().orElseThrow();
+    }
+
+    private static List<Long> lines(ImportReport report) {
+        List<Long> lines = new ArrayList<>();
+        report.getErrors().forEach(error -> lines.add(error.getLine()));
+        return lines;
+    }
+
+    // Connects every target at once, on this node
+    private class RecordingClusterService extends ClusterService {
+
+        RecordingClusterService() {
+            super(null, null, null, new ClusterProperties(), null, new ObjectMapper());
+        }
+
+        @Override
+        public CompletableFuture<SessionState> connectTarget(SessionTarget target) {
+            connected.add(target);
+            return CompletableFuture.completedFuture(SessionState.CONNECTED);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.service;
+
+import org.example.config.TelnetProperties.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TelnetNegotiatorTest {
+
+    private static final int IAC = 255;
+    private static final int DONT = 254;
+    private static final int DO = 253;
+    private static final int WONT = 252;
+    private static final int WILL = 251;
+    private static final int SB = 250;
+    private static final int SE = 240;
+
+    private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    private final ChannelReader reader = new ChannelReader(4096);
+    private final TelnetNegotiator negotiator = new TelnetNegotiator(reader, new TelnetOutputStream(sent));
+
+    @Test
+    void stripsNegotiationAndAnswersIt() throws Exception {
+        negotiator.write(bytes('a', IAC, WILL, 1, 'b', IAC, DO, 24, 'c', IAC, WILL, 3));
+
+        assertEquals("abc", read("c"));
+        assertArrayEquals(bytes(IAC, DO, 1, IAC, WONT, 24, IAC, DO, 3), sent.toByteArray());
+    }
+
+    @Test
+    void answersEachOptionOnce() throws Exception {
+        negotiator.write(bytes(IAC, WILL, 5, IAC, WILL, 5, 'x'));
+
+        assertEquals("x", read("x"));
+        assertArrayEquals(bytes(IAC, DONT, 5), sent.toByteArray());
+    }
+
+    @Test
+    void handlesSequencesSplitAcrossWrites() throws Exception {
+        negotiator.write(bytes('a', IAC));
+        negotiator.write(bytes(WILL));
+        negotiator.write(bytes(1, IAC));
+        negotiator.write(bytes(IAC, 'b'));
+
+        assertEquals("a\u00ffb", new String(readBytes("b"), StandardCharsets.ISO_8859_1));
+        assertArrayEquals(bytes(IAC, DO, 1), sent.toByteArray());
+    }
+
+    @Test
+    void dropsSubnegotiation() throws Exception {
+        negotiator.write(bytes('a', IAC, SB, 24, 1, IAC, SE, 'b'));
+
+        assertEquals("ab", read("b"));
+    }
+
+    @Test
+    void escapesIacInCommands() throws IOException {
+        TelnetOutputStream output = new TelnetOutputStream(sent);
+
+        output.write(bytes('a', IAC, 'b', IAC, IAC));
+        output.write(IAC);
+
+        assertArrayEquals(bytes('a', IAC, IAC, 'b', IAC, IAC, IAC, IAC, IAC, IAC), sent.toByteArray());
+    }
+
+    private String read(String prompt) throws InterruptedException {
+        return new String(readBytes(prompt), StandardCharsets.ISO_8859_1);
+    }
+
+    private byte[] readBytes(String prompt) throws InterruptedException {
+        OutputCapture capture = new OutputCapture(4096, OverflowPolicy.TRUNCATE, System.getProperty("java.io.tmpdir"), 0);
+        reader.readUntil(new PromptMatcher(prompt), capture, 1000);
+        return capture.toString(StandardCharsets.ISO_8859_1).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
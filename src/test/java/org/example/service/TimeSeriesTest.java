@@ -0,0 +1,135 @@
+package org.example.service;
+
+import org.example.dto.SeriesData;
+import org.example.dto.SeriesResolution;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimeSeriesTest {
+
+    private static final long MINUTE = 60000;
+    private static final long HOUR = 3600000;
+    // A whole hour, so minute and hour buckets start on it
+    private static final long START = 1700000000000L / HOUR * HOUR;
+
+    @Test
+    void rawRingKeepsTheNewestPointsOnceItWraps() {
+        TimeSeries series = new TimeSeries(20, 10, 10);
+        for (int i = 0; i < 50; i++) {
+            series.add(START + i * 1000, i);
+        }
+
+        SeriesData data = series.query(SeriesResolution.RAW, 0, Long.MAX_VALUE);
+
+        assertEquals(20, data.getTimestamps().length);
+        assertEquals(START + 30 * 1000, data.getTimestamps()[0]);
+        assertEquals(START + 49 * 1000, data.getTimestamps()[19]);
+        assertEquals(30.0, data.getValues()[0]);
+        assertEquals(49.0, data.getValues()[19]);
+    }
+
+    @Test
+    void rawQueryIsHalfOpen() {
+        TimeSeries series = new TimeSeries(100, 10, 10);
+        for (int i = 0; i < 10; i++) {
+            series.add(START + i * 1000, i);
+        }
+
+        SeriesData data = series.query(SeriesResolution.RAW, START + 2000, START + 5000);
+
+        assertArrayEquals(new long[]{START + 2000, START + 3000, START + 4000}, data.getTimestamps());
+        assertArrayEquals(new double[]{2, 3, 4}, data.getValues(), 0);
+    }
+
+    @Test
+    void rawQueryAcrossTheWrapStaysInOrder() {
+        // Capacity 20 is not a power of two, so the wrap does not line up with growth
+        TimeSeries series = new TimeSeries(20, 10, 10);
+        for (int i = 0; i < 33; i++) {
+            series.add(START + i * 1000, i);
+        }
+
+        SeriesData data = series.query(SeriesResolution.RAW, START + 15000, START + 25000);
+
+        assertEquals(10, data.getTimestamps().length);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(START + (15 + i) * 1000, data.getTimestamps()[i]);
+        }
+    }
+
+    @Test
+    void minuteBucketsKeepMinMaxMeanAndCount() {
+        TimeSeries series = new TimeSeries(100, 10, 10);
+        series.add(START, 4);
+        series.add(START + 10000, 2);
+        series.add(START + 59999, 6);
+        series.add(START + MINUTE, 10);
+
+        SeriesData data = series.query(SeriesResolution.MINUTE, START, START + 2 * MINUTE);
+
+        assertArrayEquals(new long[]{START, START + MINUTE}, data.getTimestamps());
+        assertArrayEquals(new double[]{4, 10}, data.getValues(), 1e-9);
+        assertArrayEquals(new double[]{2, 10}, data.getMin(), 0);
+        assertArrayEquals(new double[]{6, 10}, data.getMax(), 0);
+        assertArrayEquals(new int[]{3, 1}, data.getCount());
+    }
+
+    @Test
+    void bucketQueryIncludesBucketsOverlappingTheRange() {
+        TimeSeries series = new TimeSeries(100, 10, 10);
+        for (int minute = 0; minute < 5; minute++) {
+            series.add(START + minute * MINUTE, minute);
+        }
+
+        // Starts within minute 1 and ends within minute 3
+        SeriesData data = series.query(SeriesResolution.MINUTE, START + MINUTE + 30000, START + 3 * MINUTE + 1);
+
+        assertArrayEquals(new long[]{START + MINUTE, START + 2 * MINUTE, START + 3 * MINUTE}, data.getTimestamps());
+    }
+
+    @Test
+    void minuteRingWrapsAndHoursKeepTheTotals() {
+        TimeSeries series = new TimeSeries(10, 5, 10);
+        for (int minute = 0; minute < 120; minute++) {
+            series.add(START + minute * MINUTE, minute < 60 ? 1 : 3);
+        }
+
+        SeriesData minutes = series.query(SeriesResolution.MINUTE, 0, Long.MAX_VALUE);
+        assertArrayEquals(new long[]{START + 115 * MINUTE, START + 116 * MINUTE, START + 117 * MINUTE, START + 118 * MINUTE,
+                START + 119 * MINUTE}, minutes.getTimestamps());
+
+        SeriesData hours = series.query(SeriesResolution.HOUR, 0, Long.MAX_VALUE);
+        assertArrayEquals(new long[]{START, START + HOUR}, hours.getTimestamps());
+        assertArrayEquals(new double[]{1, 3}, hours.getValues(), 1e-9);
+        assertArrayEquals(new int[]{60, 60}, hours.getCount());
+    }
+
+    @Test
+    void resolutionFollowsWhatTheRingsStillHold() {
+        TimeSeries series = new TimeSeries(5, 10, 10);
+        assertEquals(SeriesResolution.RAW, series.resolutionFor(START));
+
+        for (int minute = 0; minute < 120; minute++) {
+            series.add(START + minute * MINUTE, minute);
+        }
+
+        // Raw holds minutes 115 to 119, the minute ring 110 to 119
+        assertEquals(SeriesResolution.RAW, series.resolutionFor(START + 115 * MINUTE));
+        assertEquals(SeriesResolution.MINUTE, series.resolutionFor(START + 110 * MINUTE));
+        assertEquals(SeriesResolution.HOUR, series.resolutionFor(START + 100 * MINUTE));
+    }
+
+    @Test
+    void clockSteppingBackKeepsTheRingSorted() {
+        TimeSeries series = new TimeSeries(100, 10, 10);
+        series.add(START + 5000, 1);
+        series.add(START + 1000, 2);
+        series.add(START + 6000, 3);
+
+        SeriesData data = series.query(SeriesResolution.RAW, START, START + 10000);
+
+        assertArrayEquals(new long[]{START + 5000, START + 5000, START + 6000}, data.getTimestamps());
+    }
+}
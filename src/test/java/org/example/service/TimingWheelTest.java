@@ -0,0 +1,136 @@
+package org.example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    // Eight slots of 5 ms, one rotation takes 40 ms
+    private final TimingWheel wheel = new TimingWheel(5, 8, Runnable::run, "test-wheel");
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void firesNoEarlierThanTheDelay() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(fired::countDown, 30);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 30);
+    }
+
+    @Test
+    void delayBeyondOneRotationWaitsForItsRound() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(fired::countDown, 130);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 130);
+    }
+
+    @Test
+    void zeroDelayFiresOnNextTick() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        wheel.schedule(fired::countDown, 0);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void firesInDeadlineOrder() throws InterruptedException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch fired = new CountDownLatch(3);
+        wheel.schedule(() -> { order.add(3); fired.countDown(); }, 90);
+        wheel.schedule(() -> { order.add(1); fired.countDown(); }, 10);
+        wheel.schedule(() -> { order.add(2); fired.countDown(); }, 50);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3), order);
+    }
+
+    @Test
+    void cancelledTimerNeverFires() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+        TimingWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, 20);
+        wheel.schedule(later::countDown, 60);
+        timeout.cancel();
+
+        assertTrue(later.await(1, TimeUnit.SECONDS));
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    void cancellingAfterTransferStillDropsTimer() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+        TimingWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, 100);
+        wheel.schedule(later::countDown, 150);
+        // Give the wheel a few ticks to move the timer into its slot
+        Thread.sleep(30);
+        timeout.cancel();
+
+        assertTrue(later.await(1, TimeUnit.SECONDS));
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    void manyTimersAllFire() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            wheel.schedule(fired::countDown, i % 97);
+        }
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void stoppedWheelFiresNothing() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+        wheel.schedule(fired::incrementAndGet, 20);
+        wheel.stop();
+        Thread.sleep(60);
+
+        assertTrue(wheel.isStopped());
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    void rejectedDispatchDoesNotStopTheWheel() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        TimingWheel rejecting = new TimingWheel(5, 8, task -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new RejectedExecutionException();
+            }
+            task.run();
+        }, "rejecting-wheel");
+        try {
+            rejecting.schedule(() -> { }, 0);
+            rejecting.schedule(fired::countDown, 20);
+
+            assertTrue(fired.await(1, TimeUnit.SECONDS));
+            assertFalse(rejecting.isStopped());
+        } finally {
+            rejecting.stop();
+        }
+    }
+}